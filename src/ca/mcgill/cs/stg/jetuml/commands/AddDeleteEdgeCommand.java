@@ -32,6 +32,14 @@ public class AddDeleteEdgeCommand implements Command
 		aP2 = aEdge.getEnd();
 		aAdding = pAdding;
 	}
+
+	/**
+	 * @return The edge that the command adds or deletes.
+	 */
+	public Edge getEdge()
+	{
+		return aEdge;
+	}
 	
 	/**
 	 * Undoes the command and adds/deletes the edge.
@@ -69,7 +77,7 @@ public class AddDeleteEdgeCommand implements Command
 	private void delete() 
 	{
 		aGraph.removeEdge(aEdge);
-		aGraph.layout();
+		aGraph.layout(aEdge);
 	}
 	
 	/**
@@ -78,11 +86,11 @@ public class AddDeleteEdgeCommand implements Command
 	private void add() 
 	{
 		Point.Double n1Point = new Point.Double();
-		n1Point.setLocation(aP1.getBounds().getX() + 1, aP1.getBounds().getY() + 1);
+		n1Point.setLocation(aP1.getX() + 1, aP1.getY() + 1);
 		Point.Double n2Point = new Point.Double();
-		n2Point.setLocation(aP2.getBounds().getX() + 1, aP2.getBounds().getY() + 1);
+		n2Point.setLocation(aP2.getX() + 1, aP2.getY() + 1);
 		aGraph.connect(aEdge, n1Point, n2Point);
-		aGraph.layout();
+		aGraph.layout(aEdge);
 	}
 	
 }
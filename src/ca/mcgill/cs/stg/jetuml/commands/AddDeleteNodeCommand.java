@@ -27,10 +27,18 @@ public class AddDeleteNodeCommand implements Command
 	{
 		aGraph = pGraph;
 		aNode = pNode;
-		aX = aNode.getBounds().getMinX();
-		aY = aNode.getBounds().getMinY();
+		aX = aNode.getX();
+		aY = aNode.getY();
 		aAdding = pAdding;
 	}
+
+	/**
+	 * @return The node that the command adds or deletes.
+	 */
+	public Node getNode()
+	{
+		return aNode;
+	}
 	
 	/**
 	 * Undoes the command and adds/deletes the node.
@@ -68,7 +76,7 @@ public class AddDeleteNodeCommand implements Command
 	private void delete() 
 	{
 		aGraph.removeNode(aNode);
-		aGraph.layout();
+		aGraph.layout(aNode);
 	}
 	
 	/**
@@ -78,7 +86,7 @@ public class AddDeleteNodeCommand implements Command
 	{
 		Point.Double point = new Point.Double(aX, aY);
 		aGraph.add(aNode, point);
-		aGraph.layout();
+		aGraph.layout(aNode);
 	}
 	
 }
@@ -35,6 +35,22 @@ public class AttachDetachChildCommand implements Command
 		aChild = pChild;
 		aAdding = pAdding;
 	}
+
+	/**
+	 * @return The node that the child is attached to or detached from.
+	 */
+	public Node getParent()
+	{
+		return aParent;
+	}
+
+	/**
+	 * @return The node that the command attaches or detaches.
+	 */
+	public Node getChild()
+	{
+		return aChild;
+	}
 	
 	/**
 	 * Undoes the command and adds/deletes the attachment.
@@ -83,7 +99,8 @@ public class AttachDetachChildCommand implements Command
 		{
 			((ActorNode) aParent).removeChild(aChild);
 		}
-		aGraph.layout();
+		aGraph.layout(aParent);
+		aGraph.layout(aChild);
 	}
 	
 	/**
@@ -103,7 +120,8 @@ public class AttachDetachChildCommand implements Command
 		{
 			((ActorNode) aParent).addChild(aIndex, aChild);
 		}
-		aGraph.layout();
+		aGraph.layout(aParent);
+		aGraph.layout(aChild);
 	}
 	
 }
\ No newline at end of file
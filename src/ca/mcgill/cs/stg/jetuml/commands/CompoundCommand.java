@@ -1,5 +1,7 @@
 package ca.mcgill.cs.stg.jetuml.commands;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Stack;
 
 /**
@@ -38,6 +40,17 @@ public class CompoundCommand implements Command
 		return aSize;
 	}
 
+	/**
+	 * Undo and execute reverse the stack, so that it always holds the
+	 * commands in the order in which they were last performed, whether
+	 * by adding them, by undoing them or by executing them.
+	 * @return The commands, in the order in which they were last performed.
+	 */
+	public List<Command> getCommands()
+	{
+		return Collections.unmodifiableList(aCommands);
+	}
+
 	/**
 	 * Undoes each command on the stack.
 	 * Puts them in a temporary stack and pops them to retain the order
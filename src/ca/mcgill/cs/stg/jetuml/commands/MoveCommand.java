@@ -28,6 +28,14 @@ public class MoveCommand implements Command
 		aDX = pDX;
 		aDY = pDY;
 	}
+
+	/**
+	 * @return The node that the command moves.
+	 */
+	public Node getNode()
+	{
+		return aNode;
+	}
 	
 	/**
 	 * Undoes the command and moves the node back where it came from.
@@ -35,7 +43,7 @@ public class MoveCommand implements Command
 	public void undo() 
 	{
 		aNode.translate(-aDX, -aDY);
-		aGraph.layout();
+		aGraph.layout(aNode);
 	}
 
 	/**
@@ -44,7 +52,7 @@ public class MoveCommand implements Command
 	public void execute() 
 	{
 		aNode.translate(aDX, aDY);
-		aGraph.layout();
+		aGraph.layout(aNode);
 	}
 
 }
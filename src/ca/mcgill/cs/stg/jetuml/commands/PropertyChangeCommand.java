@@ -8,6 +8,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.GraphElement;
 
 /**
  * Stores the change of properties of an element.
@@ -39,6 +40,14 @@ public class PropertyChangeCommand implements Command
 		aIndex = pIndex;
 	}
 
+	/**
+	 * @return The object whose property the command changes.
+	 */
+	public Object getObject()
+	{
+		return aObject;
+	}
+
 
 	/**
 	 * Undoes the command and changes the property of the Object to the old value.
@@ -66,7 +75,7 @@ public class PropertyChangeCommand implements Command
 			e.printStackTrace();
 			return;
 		}
-		aGraph.layout();
+		layoutGraph();
 	}
 
 	/**
@@ -95,7 +104,21 @@ public class PropertyChangeCommand implements Command
 			e.printStackTrace();
 			return;
 		}
-		aGraph.layout();
+		layoutGraph();
 	}
 
+	/**
+	 * Lays out the part of the graph affected by the change.
+	 */
+	private void layoutGraph()
+	{
+		if(aObject instanceof GraphElement)
+		{
+			aGraph.layout((GraphElement) aObject);
+		}
+		else
+		{
+			aGraph.layout();
+		}
+	}
 }
@@ -28,6 +28,7 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ResourceBundle;
 
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
@@ -79,6 +80,26 @@ public class SequenceDiagramGraph extends Graph
 		return true;
 	}
 
+	/*
+	 * Call nodes also depend on the object they are on.
+	 */
+	@Override
+	protected List<Node> getNodesAffectedByRemoval(Node pNode)
+	{
+		List<Node> result = super.getNodesAffectedByRemoval(pNode);
+		if(pNode instanceof ImplicitParameterNode)
+		{
+			for(Node node : getNodes())
+			{
+				if(node instanceof CallNode && ((CallNode) node).getImplicitParameter() == pNode)
+				{
+					result.add(node);
+				}
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public void removeEdge(Edge pEdge)
 	{
@@ -89,6 +110,17 @@ public class SequenceDiagramGraph extends Graph
 		}		
 	}
  
+	/*
+	 * The layout places the calls relative to their objects and 
+	 * stretches every life line to the lowest call, so moving any
+	 * node can move the others.
+	 */
+	@Override
+	public Rectangle2D getBoundsAffectedByMove(Node pNode)
+	{
+		return null;
+	}
+
 	@Override
 	public void layout(Graphics2D pGraphics2D, Grid pGrid)
 	{
@@ -143,7 +175,7 @@ public class SequenceDiagramGraph extends Graph
 				for(int i = 0; i < pObjects.size(); i++)
 				{
 					ImplicitParameterNode n = (ImplicitParameterNode)pObjects.get(i);
-					n.translate(0, -n.getBounds().getY());
+					n.translate(0, -n.getY());
 					top = Math.max(top, n.getTopRectangle().getHeight());
 				}
 
@@ -159,7 +191,7 @@ public class SequenceDiagramGraph extends Graph
 					Node n = (Node)iter.next();
 					if(n instanceof CallNode) 
 					{
-						top = Math.max(top, n.getBounds().getY() + n.getBounds().getHeight());
+						top = Math.max(top, n.getY() + n.getHeight());
 					}
 				}
 
@@ -178,32 +210,25 @@ public class SequenceDiagramGraph extends Graph
 	@Override
 	public void draw(Graphics2D pGraphics2D, Grid pGrid)
 	{
-		layout(pGraphics2D, pGrid);
-		Collection<Node> nodes = getNodes();
-		Iterator<Node> iter = nodes.iterator();
-		while (iter.hasNext())
+		updateLayout(pGraphics2D, pGrid);
+		List<Node> nodes = getVisibleNodes(pGraphics2D);
+		for(Node n : nodes)
 		{
-			Node n = (Node) iter.next();
 			if(!(n instanceof CallNode)) 
 			{
 				n.draw(pGraphics2D);
 			}
 		}
 
-		iter = nodes.iterator();
-		while(iter.hasNext())
+		for(Node n : nodes)
 		{
-			Node n = (Node) iter.next();
 			if(n instanceof CallNode) 
 			{
 				n.draw(pGraphics2D);
 			}
 		}
-		Collection<Edge> edges = getEdges();
-		Iterator<Edge> iter2 = edges.iterator();
-		while(iter2.hasNext())
+		for(Edge e : getVisibleEdges(pGraphics2D))
 		{
-			Edge e = (Edge) iter2.next();
 			e.draw(pGraphics2D);
 		}
 	}
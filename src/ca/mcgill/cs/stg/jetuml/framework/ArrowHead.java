@@ -24,6 +24,7 @@ package ca.mcgill.cs.stg.jetuml.framework;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 
@@ -45,6 +46,20 @@ public final class ArrowHead
 	private static final double ARROW_LENGTH = 10;
 	// CSON:
 	
+	/*
+	 * The corners of every arrow head when its end point is at the 
+	 * origin and it points in the direction of the x-axis: the end 
+	 * point, the two side corners, and the back corner of diamonds.
+	 */
+	private static final double[] UNIT_CORNERS = { 0, 0, 
+			-ARROW_LENGTH * Math.cos(ARROW_ANGLE), -ARROW_LENGTH * Math.sin(ARROW_ANGLE), 
+			-ARROW_LENGTH * Math.cos(ARROW_ANGLE), ARROW_LENGTH * Math.sin(ARROW_ANGLE), 
+			-2 * ARROW_LENGTH * Math.cos(ARROW_ANGLE), 0 };
+	private static final int END = 0;
+	private static final int SIDE1 = 2;
+	private static final int SIDE2 = 4;
+	private static final int BACK = 6;
+	
    private ArrowHead() {}
    
    /**
@@ -56,6 +71,15 @@ public final class ArrowHead
    public void draw(Graphics2D pGraphics2D, Point2D pPoint1, Point2D pEnd)
    {
 	   GeneralPath path = getPath(pPoint1, pEnd);
+	   if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.SHAPES)
+	   {
+		   if(this == BLACK_DIAMOND || this == BLACK_TRIANGLE) 
+		   {
+			   pGraphics2D.fill(path);
+		   }
+		   pGraphics2D.draw(path);
+		   return;
+	   }
 	   Color oldColor = pGraphics2D.getColor();
 	   if(this == BLACK_DIAMOND || this == BLACK_TRIANGLE) 
 	   {
@@ -118,33 +142,28 @@ public final class ArrowHead
    		{
    			return path;
    		}
-   		
-   		double dx = pEnd.getX() - pPoint1.getX();
-   		double dy = pEnd.getY() - pPoint1.getY();
-   		double angle = Math.atan2(dy, dx);
-   		double x1 = pEnd.getX() - ARROW_LENGTH * Math.cos(angle + ARROW_ANGLE);
-   		double y1 = pEnd.getY() - ARROW_LENGTH * Math.sin(angle + ARROW_ANGLE);
-   		double x2 = pEnd.getX() - ARROW_LENGTH * Math.cos(angle - ARROW_ANGLE);
-   		double y2 = pEnd.getY() - ARROW_LENGTH * Math.sin(angle - ARROW_ANGLE);
+   		// Allocated per call: edge shapes are also built on the load and save threads
+   		AffineTransform transform = AffineTransform.getTranslateInstance(pEnd.getX(), pEnd.getY());
+   		transform.rotate(pEnd.getX() - pPoint1.getX(), pEnd.getY() - pPoint1.getY());
+   		double[] corners = new double[UNIT_CORNERS.length];
+   		transform.transform(UNIT_CORNERS, 0, corners, 0, corners.length / 2);
 
-   		path.moveTo((float)pEnd.getX(), (float)pEnd.getY());
-   		path.lineTo((float)x1, (float)y1);
+   		path.moveTo((float)corners[END], (float)corners[END + 1]);
+   		path.lineTo((float)corners[SIDE1], (float)corners[SIDE1 + 1]);
    		if(this == V)
    		{
-   			path.moveTo((float)x2, (float)y2);
-   			path.lineTo((float)pEnd.getX(), (float)pEnd.getY());
+   			path.moveTo((float)corners[SIDE2], (float)corners[SIDE2 + 1]);
+   			path.lineTo((float)corners[END], (float)corners[END + 1]);
    		}
    		else if(this == TRIANGLE || this == BLACK_TRIANGLE)
    		{
-   			path.lineTo((float)x2, (float)y2);
+   			path.lineTo((float)corners[SIDE2], (float)corners[SIDE2 + 1]);
    			path.closePath();                  
    		}
    		else if(this == DIAMOND || this == BLACK_DIAMOND)
    		{
-   			double x3 = x2 - ARROW_LENGTH * Math.cos(angle + ARROW_ANGLE);
-   			double y3 = y2 - ARROW_LENGTH * Math.sin(angle + ARROW_ANGLE);
-   			path.lineTo((float)x3, (float)y3);
-   			path.lineTo((float)x2, (float)y2);
+   			path.lineTo((float)corners[BACK], (float)corners[BACK + 1]);
+   			path.lineTo((float)corners[SIDE2], (float)corners[SIDE2 + 1]);
    			path.closePath();         
    		}      
    		return path;
@@ -24,7 +24,6 @@ package ca.mcgill.cs.stg.jetuml.framework;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
 
 /**
  * A style for a segmented line that indicates the number
@@ -49,12 +48,12 @@ public final class BentStyle
      * is bent according to this bent style.
      * @param pStart the starting rectangle
      * @param pEnd the ending rectangle
-     * @return an array list of points at which to bend the
+     * @return the points at which to bend the
      * segmented line joining the two rectangles
 	 */
-	public ArrayList<Point2D> getPath(Rectangle2D pStart, Rectangle2D pEnd)
+	public Polyline getPath(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = getPath(this, pStart, pEnd);
+		Polyline r = getPath(this, pStart, pEnd);
 		if(r != null) 
 		{
 			return r;
@@ -62,7 +61,7 @@ public final class BentStyle
       
 		if(pStart.equals(pEnd)) 
 		{
-		r = getSelfPath(pStart);
+			r = getSelfPath(pStart);
 		} 
 		else if (this == HVH)
 		{
@@ -74,7 +73,7 @@ public final class BentStyle
 		}
 		else if (this == HV) 
 		{
-		r = getPath(VH, pStart, pEnd);
+			r = getPath(VH, pStart, pEnd);
 		} 
 		else if (this == VH) 
 		{
@@ -88,15 +87,40 @@ public final class BentStyle
    }
 
 	/*
-     * Gets the four connecting points at which a bent line
-     * connects to a rectangle.
+     * Gets the coordinates of one of the four connecting points 
+     * at which a bent line connects to a rectangle: the middle of
+     * the left, right, top and bottom sides, in that order.
 	 */
-	private static Point2D[] connectionPoints(Rectangle2D pRectangle)
+	private static double connectionX(Rectangle2D pRectangle, int pIndex)
 	{
-		return new Point2D[] { new Point2D.Double(pRectangle.getX(), pRectangle.getCenterY()),
-							   new Point2D.Double(pRectangle.getMaxX(), pRectangle.getCenterY()),
-							   new Point2D.Double(pRectangle.getCenterX(), pRectangle.getY()),
-							   new Point2D.Double(pRectangle.getCenterX(), pRectangle.getMaxY())};
+		if(pIndex == 0)
+		{
+			return pRectangle.getX();
+		}
+		else if(pIndex == 1)
+		{
+			return pRectangle.getMaxX();
+		}
+		else
+		{
+			return pRectangle.getCenterX();
+		}
+	}
+	
+	private static double connectionY(Rectangle2D pRectangle, int pIndex)
+	{
+		if(pIndex == 2)
+		{
+			return pRectangle.getY();
+		}
+		else if(pIndex == 3)
+		{
+			return pRectangle.getMaxY();
+		}
+		else
+		{
+			return pRectangle.getCenterY();
+		}
 	}
    
 	/*
@@ -104,238 +128,213 @@ public final class BentStyle
      * is bent according to a bent style.
      * @param start the starting rectangle
      * @param end the ending rectangle
-     * @return an array list of points at which to bend the
+     * @return the points at which to bend the
      * segmented line joining the two rectangles
 	 */
-	private static ArrayList<Point2D> getPath(BentStyle pBent, Rectangle2D pStart, Rectangle2D pEnd)
+	private static Polyline getPath(BentStyle pBent, Rectangle2D pStart, Rectangle2D pEnd)
 	{
-	   ArrayList<Point2D> r = null;
-	   if(pBent == STRAIGHT)
-	   {
-		   r = getPathStraight(pStart, pEnd);
-	   }
-       else if(pBent == HV)
-       {
-    	  r = getPathHV(pStart, pEnd);
-      	}
-      	else if(pBent == VH)
-      	{
-      		r = getPathVH(pStart, pEnd);
-      	}
-      	else if(pBent == HVH)
-      	{
-      		r = getPathHVH(pStart, pEnd);
-      	}
-      	else if(pBent == VHV)
-      	{
-      		r = getPathVHV(pStart, pEnd);
-      	}
-	   if(r != null)
-	   {
-		   return r;
-	   }
-	   	return null;
+		if(pBent == STRAIGHT)
+		{
+			return getPathStraight(pStart, pEnd);
+		}
+		else if(pBent == HV)
+		{
+			return getPathHV(pStart, pEnd);
+		}
+		else if(pBent == VH)
+		{
+			return getPathVH(pStart, pEnd);
+		}
+		else if(pBent == HVH)
+		{
+			return getPathHVH(pStart, pEnd);
+		}
+		else if(pBent == VHV)
+		{
+			return getPathVHV(pStart, pEnd);
+		}
+		return null;
 	}
 	
 	/**
 	 * @param pStart bounds of starting Node
-	 * @param pEnd bounds of endiArrayList<Point2D> r = new ArrayList<>();ng Node
-	 * @return An ArrayList of points along the straight path between the nodes.
+	 * @param pEnd bounds of ending Node
+	 * @return The points along the straight path between the nodes.
 	 */
-	public static ArrayList<Point2D> getPathStraight(Rectangle2D pStart, Rectangle2D pEnd)
+	public static Polyline getPathStraight(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
-		Point2D[] a = connectionPoints(pStart);
-	    Point2D[] b = connectionPoints(pEnd);
-	    Point2D p = a[0];
-	    Point2D q = b[0];
-	    double distance = p.distance(q);
-	    if(distance == 0)
-	    {
-		   return null;
-	    }
-	    for(int i = 0; i < a.length; i++) 
-	    {
-		   for(int j = 0; j < b.length; j++)
-		   {
-			   double d = a[i].distance(b[j]);
-			   if(d < distance)
-			   {
-				   p = a[i]; q = b[j];
-				   distance = d;
-			   }
-		   }
-	   }
-	   r.add(p);
-	   r.add(q);
-	   return r;
+		final int connections = 4;
+		int start = 0;
+		int end = 0;
+		double distance = Point2D.distance(connectionX(pStart, 0), connectionY(pStart, 0), 
+				connectionX(pEnd, 0), connectionY(pEnd, 0));
+		if(distance == 0)
+		{
+			return null;
+		}
+		for(int i = 0; i < connections; i++) 
+		{
+			for(int j = 0; j < connections; j++)
+			{
+				double d = Point2D.distance(connectionX(pStart, i), connectionY(pStart, i), 
+						connectionX(pEnd, j), connectionY(pEnd, j));
+				if(d < distance)
+				{
+					start = i; 
+					end = j;
+					distance = d;
+				}
+			}
+		}
+		return new Polyline(connectionX(pStart, start), connectionY(pStart, start), 
+				connectionX(pEnd, end), connectionY(pEnd, end));
 	}
 	
 	/**
 	 * @param pStart bounds of starting Node
 	 * @param pEnd bounds of ending Node
-	 * @return An ArrayList of points along the HV path between the nodes.
+	 * @return The points along the HV path between the nodes.
 	 */
-	public static ArrayList<Point2D> getPathHV(Rectangle2D pStart, Rectangle2D pEnd)
+	public static Polyline getPathHV(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
 		double x1;
-  	    double x2 = pEnd.getCenterX();
-  	    double y1 = pStart.getCenterY();
-  	    double y2;
-  	    if(x2 + MIN_SEGMENT <= pStart.getX()) 
-  	    {
-  		    x1 = pStart.getX();
-  	    }
-  	    else if(x2 - MIN_SEGMENT >= pStart.getMaxX()) 
-  	    {
-  		    x1 = pStart.getMaxX();
-  	    }
-  	    else 
-  	    {
-		   	return null;
-  	    }
-  	    if(y1 + MIN_SEGMENT <= pEnd.getY()) 
-  	    {
-  		    y2 = pEnd.getY();
-  	    } 
-  	    else if(y1 - MIN_SEGMENT >= pEnd.getMaxY()) 
-  	    {
-  		    y2 = pEnd.getMaxY();
-  	    }
-  	    else
-  	    {
-		 	return null;
-  	    }
-  	    r.add(new Point2D.Double(x1, y1));
-  	    r.add(new Point2D.Double(x2, y1));
-  	    r.add(new Point2D.Double(x2, y2));
-  	    return r;
+		double x2 = pEnd.getCenterX();
+		double y1 = pStart.getCenterY();
+		double y2;
+		if(x2 + MIN_SEGMENT <= pStart.getX()) 
+		{
+			x1 = pStart.getX();
+		}
+		else if(x2 - MIN_SEGMENT >= pStart.getMaxX()) 
+		{
+			x1 = pStart.getMaxX();
+		}
+		else 
+		{
+			return null;
+		}
+		if(y1 + MIN_SEGMENT <= pEnd.getY()) 
+		{
+			y2 = pEnd.getY();
+		} 
+		else if(y1 - MIN_SEGMENT >= pEnd.getMaxY()) 
+		{
+			y2 = pEnd.getMaxY();
+		}
+		else
+		{
+			return null;
+		}
+		return new Polyline(x1, y1, x2, y1, x2, y2);
 	}
 	
 	/**
 	 * @param pStart bounds of starting Node
 	 * @param pEnd bounds of ending Node
-	 * @return An ArrayList of points along the VH path between the nodes.
+	 * @return The points along the VH path between the nodes.
 	 */
-	public static ArrayList<Point2D> getPathVH(Rectangle2D pStart, Rectangle2D pEnd)
+	public static Polyline getPathVH(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
 		double x1 = pStart.getCenterX();
-  		double x2;
-  		double y1;
-  		double y2 = pEnd.getCenterY();
-  		if(x1 + MIN_SEGMENT <= pEnd.getX()) 
-  		{
-  			x2 = pEnd.getX();
-  		}
-  		else if(x1 - MIN_SEGMENT >= pEnd.getMaxX()) 
-  		{
-  			x2 = pEnd.getMaxX();
-  		}
-  		else 
-  		{
-  			return null;
-  		}
-  		if(y2 + MIN_SEGMENT <= pStart.getY()) 
-  		{
+		double x2;
+		double y1;
+		double y2 = pEnd.getCenterY();
+		if(x1 + MIN_SEGMENT <= pEnd.getX()) 
+		{
+			x2 = pEnd.getX();
+		}
+		else if(x1 - MIN_SEGMENT >= pEnd.getMaxX()) 
+		{
+			x2 = pEnd.getMaxX();
+		}
+		else 
+		{
+			return null;
+		}
+		if(y2 + MIN_SEGMENT <= pStart.getY()) 
+		{
 			y1 = pStart.getY();
 		}
-  		else if(y2 - MIN_SEGMENT >= pStart.getMaxY()) 
-  		{
-  			y1 = pStart.getMaxY();
-  		} 
-  		else 
-  		{
-  			return null;
-  		}
-  		r.add(new Point2D.Double(x1, y1));
-  		r.add(new Point2D.Double(x1, y2));
-  		r.add(new Point2D.Double(x2, y2));
-  		return r;
+		else if(y2 - MIN_SEGMENT >= pStart.getMaxY()) 
+		{
+			y1 = pStart.getMaxY();
+		} 
+		else 
+		{
+			return null;
+		}
+		return new Polyline(x1, y1, x1, y2, x2, y2);
 	}
 	
 	/**
 	 * @param pStart bounds of starting Node
 	 * @param pEnd bounds of ending Node
-	 * @return An ArrayList of points along the HVH path between the nodes.
+	 * @return The points along the HVH path between the nodes.
 	 */
-	public static ArrayList<Point2D> getPathHVH(Rectangle2D pStart, Rectangle2D pEnd)
+	public static Polyline getPathHVH(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
 		double x1;
-  		double x2;
-  		double y1 = pStart.getCenterY();
-  		double y2 = pEnd.getCenterY();
-  		if(pStart.getMaxX() + 2 * MIN_SEGMENT <= pEnd.getX())
-  		{
-  			x1 = pStart.getMaxX();
-  			x2 = pEnd.getX();
-  		}
-  		else if(pEnd.getMaxX() + 2 * MIN_SEGMENT <= pStart.getX())
-  		{
-  			x1 = pStart.getX();
-  			x2 = pEnd.getMaxX();
-  		}
-  		else 
-  		{
+		double x2;
+		double y1 = pStart.getCenterY();
+		double y2 = pEnd.getCenterY();
+		if(pStart.getMaxX() + 2 * MIN_SEGMENT <= pEnd.getX())
+		{
+			x1 = pStart.getMaxX();
+			x2 = pEnd.getX();
+		}
+		else if(pEnd.getMaxX() + 2 * MIN_SEGMENT <= pStart.getX())
+		{
+			x1 = pStart.getX();
+			x2 = pEnd.getMaxX();
+		}
+		else 
+		{
 			return null;
 		}
-  		if(Math.abs(y1 - y2) <= MIN_SEGMENT)
-  		{
-  			r.add(new Point2D.Double(x1, y2));
-  			r.add(new Point2D.Double(x2, y2));
-  		}
-  		else
-  		{
-  			r.add(new Point2D.Double(x1, y1));
-  			r.add(new Point2D.Double((x1 + x2) / 2, y1));
-  			r.add(new Point2D.Double((x1 + x2) / 2, y2));
-  			r.add(new Point2D.Double(x2, y2));
-  		}
-  		return r;
+		if(Math.abs(y1 - y2) <= MIN_SEGMENT)
+		{
+			return new Polyline(x1, y2, x2, y2);
+		}
+		else
+		{
+			return new Polyline(x1, y1, (x1 + x2) / 2, y1, (x1 + x2) / 2, y2, x2, y2);
+		}
 	}
 	
 	/**
 	 * @param pStart bounds of starting Node
 	 * @param pEnd bounds of ending Node
-	 * @return An ArrayList of points along the VHV path between the nodes.
+	 * @return The points along the VHV path between the nodes.
 	 */
-	public static ArrayList<Point2D> getPathVHV(Rectangle2D pStart, Rectangle2D pEnd)
+	public static Polyline getPathVHV(Rectangle2D pStart, Rectangle2D pEnd)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
 		double x1 = pStart.getCenterX();
-  		double x2 = pEnd.getCenterX();
-  		double y1;
-  		double y2;
-  		if(pStart.getMaxY() + 2 * MIN_SEGMENT <= pEnd.getY())
-  		{
-  			y1 = pStart.getMaxY();
-  			y2 = pEnd.getY();
-  		}
-  		else if(pEnd.getMaxY() + 2 * MIN_SEGMENT <= pStart.getY())
-  		{
-  			y1 = pStart.getY();
-  			y2 = pEnd.getMaxY();
-  		}
-  		else 
-  		{
+		double x2 = pEnd.getCenterX();
+		double y1;
+		double y2;
+		if(pStart.getMaxY() + 2 * MIN_SEGMENT <= pEnd.getY())
+		{
+			y1 = pStart.getMaxY();
+			y2 = pEnd.getY();
+		}
+		else if(pEnd.getMaxY() + 2 * MIN_SEGMENT <= pStart.getY())
+		{
+			y1 = pStart.getY();
+			y2 = pEnd.getMaxY();
+		}
+		else 
+		{
 			return null;
 		}
-  		if(Math.abs(x1 - x2) <= MIN_SEGMENT)
-  		{
-  			r.add(new Point2D.Double(x2, y1));
-  			r.add(new Point2D.Double(x2, y2));
-  		}
-  		else
-  		{
-  			r.add(new Point2D.Double(x1, y1));
-  			r.add(new Point2D.Double(x1, (y1 + y2) / 2));
-  			r.add(new Point2D.Double(x2, (y1 + y2) / 2));
-  			r.add(new Point2D.Double(x2, y2));
-  		}
-  		return r;
-  	}
+		if(Math.abs(x1 - x2) <= MIN_SEGMENT)
+		{
+			return new Polyline(x2, y1, x2, y2);
+		}
+		else
+		{
+			return new Polyline(x1, y1, x1, (y1 + y2) / 2, x2, (y1 + y2) / 2, x2, y2);
+		}
+	}
 	
 	@Override
 	public String toString()
@@ -373,20 +372,14 @@ public final class BentStyle
      * is bent according to a bent style.
      * @param s the starting and ending rectangle
 	 */
-	private static ArrayList<Point2D> getSelfPath(Rectangle2D pStart)
+	private static Polyline getSelfPath(Rectangle2D pStart)
 	{
-		ArrayList<Point2D> r = new ArrayList<>();
 		double x1 = pStart.getX() + pStart.getWidth() * 3 / 4;
 		double y1 = pStart.getY();
 		double y2 = pStart.getY() - SELF_HEIGHT;
 		double x2 = pStart.getX() + pStart.getWidth() + SELF_WIDTH;
 		double y3 = pStart.getY() + pStart.getHeight() / 4;
 		double x3 = pStart.getX() + pStart.getWidth();
-		r.add(new Point2D.Double(x1, y1));
-		r.add(new Point2D.Double(x1, y2));
-		r.add(new Point2D.Double(x2, y2));
-		r.add(new Point2D.Double(x2, y3));
-		r.add(new Point2D.Double(x3, y3));
-		return r;
+		return new Polyline(x1, y1, x1, y2, x2, y2, x2, y3, x3, y3);
    }
 }
@@ -0,0 +1,552 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.mcgill.cs.stg.jetuml.graph.AbstractNode;
+import ca.mcgill.cs.stg.jetuml.graph.ActorNode;
+import ca.mcgill.cs.stg.jetuml.graph.CallEdge;
+import ca.mcgill.cs.stg.jetuml.graph.CallNode;
+import ca.mcgill.cs.stg.jetuml.graph.CircularStateNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassRelationshipEdge;
+import ca.mcgill.cs.stg.jetuml.graph.Edge;
+import ca.mcgill.cs.stg.jetuml.graph.FieldNode;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.ImplicitParameterNode;
+import ca.mcgill.cs.stg.jetuml.graph.InterfaceNode;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+import ca.mcgill.cs.stg.jetuml.graph.NoteNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectNode;
+import ca.mcgill.cs.stg.jetuml.graph.PackageNode;
+import ca.mcgill.cs.stg.jetuml.graph.RectangularNode;
+import ca.mcgill.cs.stg.jetuml.graph.ReturnEdge;
+import ca.mcgill.cs.stg.jetuml.graph.SegmentedLineEdge;
+import ca.mcgill.cs.stg.jetuml.graph.StateNode;
+import ca.mcgill.cs.stg.jetuml.graph.StateTransitionEdge;
+import ca.mcgill.cs.stg.jetuml.graph.UseCaseNode;
+
+/**
+ * Reads a graph written by BinaryGraphWriter, which describes the
+ * format. The graph is rebuilt with the same operations as when
+ * it is read from XML, so that both formats give the same graph.
+ */
+final class BinaryGraphReader
+{
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+	private static final int NEW = 1;
+	private static final int FIRST_REFERENCE = 2;
+	private static final int DOUBLE = 1;
+
+	private final InputStream aIn;
+	private final List<String> aStrings = new ArrayList<>();
+	private final List<Node> aNodes = new ArrayList<>();
+
+	/**
+	 * Creates a reader for the parts of a graph written by a
+	 * BinaryGraphWriter, as used by EditJournal.
+	 * @param pIn The stream to read.
+	 */
+	BinaryGraphReader(InputStream pIn)
+	{
+		aIn = pIn;
+	}
+
+	/**
+	 * Checks whether pIn starts with the header of the binary format,
+	 * without consuming it.
+	 * @param pIn A stream that supports mark and reset.
+	 * @return True if the stream starts with BinaryGraphWriter.MAGIC.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	static boolean accepts(InputStream pIn) throws IOException
+	{
+		byte[] magic = BinaryGraphWriter.MAGIC;
+		pIn.mark(magic.length);
+		try
+		{
+			for(byte expected : magic)
+			{
+				if(pIn.read() != expected)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		finally
+		{
+			pIn.reset();
+		}
+	}
+
+	/**
+	 * Reads a graph from pIn. Does not close pIn.
+	 * @param pIn The stream to read.
+	 * @return The graph in the stream.
+	 * @throws IOException If the stream does not contain a graph
+	 * in a version of the format that this reader recognizes.
+	 */
+	static Graph read(InputStream pIn) throws IOException
+	{
+		try
+		{
+			return new BinaryGraphReader(new BufferedInputStream(pIn)).readGraph();
+		}
+		catch(RuntimeException exception)
+		{
+			// A damaged file can describe a graph that the nodes reject
+			throw new IOException("Invalid binary file", exception);
+		}
+	}
+
+	private Graph readGraph() throws IOException
+	{
+		for(byte expected : BinaryGraphWriter.MAGIC)
+		{
+			if(readByte() != expected)
+			{
+				throw new IOException("Not a binary JetUML file");
+			}
+		}
+		int version = readInt();
+		if(version != BinaryGraphWriter.VERSION)
+		{
+			throw new IOException("Unsupported version of the binary format: " + version);
+		}
+		Graph graph = (Graph) create(BinaryGraphWriter.GRAPH_TYPES);
+		if(readBoolean())
+		{
+			graph.setMinBounds(readRectangle());
+		}
+		int nodes = readInt();
+		for(int i = 0; i < nodes; i++)
+		{
+			Node node = readNode();
+			Point2D point = new Point2D.Double(readCoordinate(), readCoordinate());
+			try
+			{
+				graph.addNode(node, point);
+			}
+			catch(RuntimeException exception)
+			{
+				// Skipped, as when reading XML
+			}
+		}
+		int edges = readInt();
+		for(int i = 0; i < edges; i++)
+		{
+			Edge edge = readEdge();
+			Node start = readNode();
+			Node end = readNode();
+			try
+			{
+				graph.connect(edge, start, end);
+			}
+			catch(RuntimeException exception)
+			{
+				// Skipped, as when reading XML
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Numbers pNode as the writer numbered it in BinaryGraphWriter.define.
+	 * @param pNode A node that the writer did not write.
+	 */
+	void define(Node pNode)
+	{
+		aNodes.add(pNode);
+	}
+
+	/**
+	 * Reads a node written by BinaryGraphWriter.writeNode.
+	 * @return The node, or null.
+	 * @throws IOException If the stream does not contain a node.
+	 */
+	Node readNode() throws IOException
+	{
+		int number = readInt();
+		if(number == 0)
+		{
+			return null;
+		}
+		if(number != NEW)
+		{
+			return element(aNodes, number - FIRST_REFERENCE);
+		}
+		Node node = (Node) create(BinaryGraphWriter.NODE_TYPES);
+		aNodes.add(node);
+		int children = readInt();
+		for(int i = 0; i < children; i++)
+		{
+			((AbstractNode) node).addChild(readNode());
+		}
+		readProperties(node);
+		return node;
+	}
+
+	/**
+	 * Gives pNode the state written by BinaryGraphWriter.writeState.
+	 * @param pNode The node to update.
+	 * @throws IOException If the stream does not contain the state of pNode.
+	 */
+	void readState(Node pNode) throws IOException
+	{
+		int count = readInt();
+		List<Node> children = new ArrayList<>();
+		for(int i = 0; i < count; i++)
+		{
+			children.add(readNode());
+		}
+		// As addChild and removeChild would, but without changing the
+		// lists of the other parents, which have their own state
+		List<Node> current = pNode.getChildren();
+		if(!current.equals(children))
+		{
+			List<Node> previous = new ArrayList<>(current);
+			for(Node child : previous)
+			{
+				if(!children.contains(child) && child.getParent() == pNode)
+				{
+					child.setParent(null);
+				}
+			}
+			current.clear();
+			current.addAll(children);
+			for(Node child : children)
+			{
+				if(!previous.contains(child))
+				{
+					child.setParent(pNode);
+				}
+			}
+		}
+		readProperties(pNode);
+		if(pNode instanceof RectangularNode)
+		{
+			readBounds(pNode);
+		}
+		else
+		{
+			pNode.translate(readCoordinate() - pNode.getX(), readCoordinate() - pNode.getY());
+		}
+	}
+
+	private void readProperties(Node pNode) throws IOException
+	{
+		Class<?> type = pNode.getClass();
+		if(type == ActorNode.class)
+		{
+			readBounds(pNode);
+			readText(((ActorNode) pNode).getName());
+			readParent(pNode);
+		}
+		else if(type == CallNode.class)
+		{
+			Node implicitParameter = readNode();
+			if(implicitParameter != ((CallNode) pNode).getImplicitParameter())
+			{
+				((CallNode) pNode).setImplicitParameter(implicitParameter == null ? null : 
+					cast(implicitParameter, ImplicitParameterNode.class));
+			}
+			((CallNode) pNode).setOpenBottom(readBoolean());
+		}
+		else if(type == CircularStateNode.class)
+		{
+			readBounds(pNode);
+			boolean isFinal = readBoolean();
+			if(isFinal != ((CircularStateNode) pNode).isFinal())
+			{
+				// Only when it changes, as in XML, because it moves the node
+				((CircularStateNode) pNode).setFinal(isFinal);
+			}
+			readParent(pNode);
+		}
+		else if(type == ClassNode.class)
+		{
+			readText(((ClassNode) pNode).getAttributes());
+			readText(((ClassNode) pNode).getMethods());
+			readText(((ClassNode) pNode).getName());
+		}
+		else if(type == FieldNode.class)
+		{
+			readBounds(pNode);
+			((FieldNode) pNode).setBoxedValue(readBoolean());
+			readText(((FieldNode) pNode).getName());
+			readParent(pNode);
+			readText(((FieldNode) pNode).getValue());
+		}
+		else if(type == ImplicitParameterNode.class)
+		{
+			readBounds(pNode);
+			readText(((ImplicitParameterNode) pNode).getName());
+			readParent(pNode);
+		}
+		else if(type == InterfaceNode.class)
+		{
+			readText(((InterfaceNode) pNode).getMethods());
+			readText(((InterfaceNode) pNode).getName());
+		}
+		else if(type == NoteNode.class)
+		{
+			readBounds(pNode);
+			readParent(pNode);
+			readText(((NoteNode) pNode).getText());
+		}
+		else if(type == ObjectNode.class)
+		{
+			readBounds(pNode);
+			readText(((ObjectNode) pNode).getName());
+			readParent(pNode);
+		}
+		else if(type == PackageNode.class)
+		{
+			readBounds(pNode);
+			readText(((PackageNode) pNode).getContents());
+			((PackageNode) pNode).setName(readString());
+			readParent(pNode);
+		}
+		else if(type == StateNode.class)
+		{
+			readBounds(pNode);
+			readText(((StateNode) pNode).getName());
+			readParent(pNode);
+		}
+		else if(type == UseCaseNode.class)
+		{
+			readBounds(pNode);
+			readText(((UseCaseNode) pNode).getName());
+			readParent(pNode);
+		}
+		else
+		{
+			readParent(pNode);
+		}
+	}
+
+	/**
+	 * Reads an edge written by BinaryGraphWriter.writeEdge.
+	 * @return The edge.
+	 * @throws IOException If the stream does not contain an edge.
+	 */
+	Edge readEdge() throws IOException
+	{
+		Edge edge = (Edge) create(BinaryGraphWriter.EDGE_TYPES);
+		readProperties(edge);
+		return edge;
+	}
+
+	/**
+	 * Gives pEdge the properties written by BinaryGraphWriter.writeProperties.
+	 * @param pEdge The edge to update.
+	 * @throws IOException If the stream does not contain the properties of pEdge.
+	 */
+	void readProperties(Edge pEdge) throws IOException
+	{
+		Class<?> type = pEdge.getClass();
+		if(type == CallEdge.class)
+		{
+			((CallEdge) pEdge).setMiddleLabel(readString());
+			boolean signal = readBoolean();
+			if(signal != ((CallEdge) pEdge).isSignal())
+			{
+				// Only when it changes, as in XML, because it sets the arrow head
+				((CallEdge) pEdge).setSignal(signal);
+			}
+		}
+		else if(type == ClassRelationshipEdge.class || type == ReturnEdge.class)
+		{
+			SegmentedLineEdge segmented = (SegmentedLineEdge) pEdge;
+			if(type == ClassRelationshipEdge.class)
+			{
+				((ClassRelationshipEdge) segmented).setBentStyle(element(BinaryGraphWriter.BENT_STYLES, readInt()));
+			}
+			segmented.setEndArrowHead(element(BinaryGraphWriter.ARROW_HEADS, readInt()));
+			segmented.setEndLabel(readString());
+			segmented.setLineStyle(element(BinaryGraphWriter.LINE_STYLES, readInt()));
+			segmented.setMiddleLabel(readString());
+			segmented.setStartArrowHead(element(BinaryGraphWriter.ARROW_HEADS, readInt()));
+			segmented.setStartLabel(readString());
+		}
+		else if(type == StateTransitionEdge.class)
+		{
+			((StateTransitionEdge) pEdge).setLabel(readString());
+		}
+	}
+
+	private void readParent(Node pNode) throws IOException
+	{
+		Node parent = readNode();
+		if(parent != pNode.getParent())
+		{
+			pNode.setParent(parent);
+		}
+	}
+
+	private void readBounds(Node pNode) throws IOException
+	{
+		((RectangularNode) pNode).setBounds(readRectangle());
+	}
+
+	private Rectangle2D readRectangle() throws IOException
+	{
+		return new Rectangle2D.Double(readCoordinate(), readCoordinate(), readCoordinate(), readCoordinate());
+	}
+
+	private void readText(MultiLineString pText) throws IOException
+	{
+		pText.setText(readString());
+		pText.setJustification(readInt());
+		pText.setUnderlined(readBoolean());
+	}
+
+	private String readString() throws IOException
+	{
+		int number = readInt();
+		if(number == 0)
+		{
+			return null;
+		}
+		if(number != NEW)
+		{
+			return element(aStrings, number - FIRST_REFERENCE);
+		}
+		int length = readInt();
+		StringBuilder builder = new StringBuilder(Math.min(length, 1 << 16));
+		for(int i = 0; i < length; i++)
+		{
+			int character = readInt();
+			if(character > Character.MAX_VALUE)
+			{
+				throw new IOException("Invalid character: " + character);
+			}
+			builder.append((char) character);
+		}
+		String string = builder.toString();
+		aStrings.add(string);
+		return string;
+	}
+
+	double readCoordinate() throws IOException
+	{
+		long value = readLong();
+		if(value == DOUBLE)
+		{
+			long bits = 0;
+			for(int i = 0; i < 8; i++)
+			{
+				bits = bits << 8 | readByte();
+			}
+			return Double.longBitsToDouble(bits);
+		}
+		long zigzag = value >>> 1;
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	private boolean readBoolean() throws IOException
+	{
+		int value = readByte();
+		if(value > 1)
+		{
+			throw new IOException("Invalid boolean: " + value);
+		}
+		return value == 1;
+	}
+
+	int readInt() throws IOException
+	{
+		long value = readLong();
+		if(value > 0xFFFFFFFFL)
+		{
+			throw new IOException("Invalid number: " + value);
+		}
+		return (int) value;
+	}
+
+	private long readLong() throws IOException
+	{
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7)
+		{
+			int next = readByte();
+			value |= (long) (next & 0x7F) << shift;
+			if((next & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Invalid number");
+	}
+
+	private int readByte() throws IOException
+	{
+		int next = aIn.read();
+		if(next < 0)
+		{
+			throw new EOFException();
+		}
+		return next;
+	}
+
+	private Object create(Class<?>[] pTypes) throws IOException
+	{
+		return XmlGraphReader.create(element(pTypes, readInt()).getName(), NO_ARGUMENTS);
+	}
+
+	private static <T> T element(T[] pTable, int pIndex) throws IOException
+	{
+		if(pIndex < 0 || pIndex >= pTable.length)
+		{
+			throw new IOException("Unknown tag: " + pIndex);
+		}
+		return pTable[pIndex];
+	}
+
+	private static <T> T element(List<T> pList, int pIndex) throws IOException
+	{
+		if(pIndex < 0 || pIndex >= pList.size())
+		{
+			throw new IOException("Undefined reference: " + pIndex);
+		}
+		return pList.get(pIndex);
+	}
+
+	private static <T> T cast(Object pValue, Class<T> pType) throws IOException
+	{
+		if(!pType.isInstance(pValue))
+		{
+			throw new IOException("Expected " + pType.getSimpleName() + ": " + pValue);
+		}
+		return pType.cast(pValue);
+	}
+}
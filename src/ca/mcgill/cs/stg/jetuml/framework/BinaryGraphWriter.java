@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ca.mcgill.cs.stg.jetuml.diagrams.ClassDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.ObjectDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.SequenceDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.StateDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.UseCaseDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.graph.ActorNode;
+import ca.mcgill.cs.stg.jetuml.graph.CallEdge;
+import ca.mcgill.cs.stg.jetuml.graph.CallNode;
+import ca.mcgill.cs.stg.jetuml.graph.CircularStateNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassRelationshipEdge;
+import ca.mcgill.cs.stg.jetuml.graph.Edge;
+import ca.mcgill.cs.stg.jetuml.graph.FieldNode;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.ImplicitParameterNode;
+import ca.mcgill.cs.stg.jetuml.graph.InterfaceNode;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+import ca.mcgill.cs.stg.jetuml.graph.NoteEdge;
+import ca.mcgill.cs.stg.jetuml.graph.NoteNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectReferenceEdge;
+import ca.mcgill.cs.stg.jetuml.graph.PackageNode;
+import ca.mcgill.cs.stg.jetuml.graph.PointNode;
+import ca.mcgill.cs.stg.jetuml.graph.RectangularNode;
+import ca.mcgill.cs.stg.jetuml.graph.ReturnEdge;
+import ca.mcgill.cs.stg.jetuml.graph.SegmentedLineEdge;
+import ca.mcgill.cs.stg.jetuml.graph.StateNode;
+import ca.mcgill.cs.stg.jetuml.graph.StateTransitionEdge;
+import ca.mcgill.cs.stg.jetuml.graph.UseCaseNode;
+
+/**
+ * Writes a graph in the binary format of JetUML. The file holds the same
+ * information as the XML format, as the sequence of operations that
+ * XmlGraphReader performs to rebuild the graph: each node and edge is
+ * defined where the XML form writes it in full, and referred to by
+ * number afterwards.
+ *
+ * The file starts with MAGIC and VERSION. Then:
+ * - Counts, indices and justifications are unsigned variable-length
+ *   integers (7 bits per byte, least significant group first).
+ * - Coordinates are written as the zigzag encoding of twice the value
+ *   when it is an integer, and as 1 followed by the 8 bytes of the
+ *   double otherwise.
+ * - Strings are written once and referred to by number afterwards:
+ *   0 for null, 1 followed by the string for a new string, and n + 2
+ *   for the n-th string of the file.
+ * - Nodes are written the same way, with a type tag for new nodes.
+ * - Graphs, nodes, edges and constants are identified by their position
+ *   in the tables below. New types must be added at the end of a table,
+ *   and any other change to the format requires a new VERSION.
+ */
+final class BinaryGraphWriter
+{
+	static final byte[] MAGIC = {'J', 'E', 'T', 'B'};
+	static final int VERSION = 1;
+
+	static final Class<?>[] GRAPH_TYPES = {ClassDiagramGraph.class, ObjectDiagramGraph.class, SequenceDiagramGraph.class,
+		StateDiagramGraph.class, UseCaseDiagramGraph.class};
+	static final Class<?>[] NODE_TYPES = {ActorNode.class, CallNode.class, CircularStateNode.class, ClassNode.class,
+		FieldNode.class, ImplicitParameterNode.class, InterfaceNode.class, NoteNode.class, ObjectNode.class, PackageNode.class,
+		PointNode.class, StateNode.class, UseCaseNode.class};
+	static final Class<?>[] EDGE_TYPES = {CallEdge.class, ClassRelationshipEdge.class, NoteEdge.class, ObjectReferenceEdge.class,
+		ReturnEdge.class, StateTransitionEdge.class};
+	static final ArrowHead[] ARROW_HEADS = {ArrowHead.NONE, ArrowHead.TRIANGLE, ArrowHead.BLACK_TRIANGLE, ArrowHead.V,
+		ArrowHead.HALF_V, ArrowHead.DIAMOND, ArrowHead.BLACK_DIAMOND};
+	static final BentStyle[] BENT_STYLES = {BentStyle.STRAIGHT, BentStyle.HV, BentStyle.VH, BentStyle.HVH, BentStyle.VHV};
+	static final LineStyle[] LINE_STYLES = {LineStyle.SOLID, LineStyle.DOTTED};
+
+	private static final int NEW = 1;
+	private static final int FIRST_REFERENCE = 2;
+	private static final int DOUBLE = 1;
+
+	private final OutputStream aOut;
+	private final Map<String, Integer> aStrings = new HashMap<>();
+	private final Map<Node, Integer> aNodes = new IdentityHashMap<>();
+
+	/**
+	 * Creates a writer for the parts of a graph, as used by EditJournal.
+	 * The strings and nodes that it writes are numbered across all the
+	 * calls to the writer.
+	 * @param pOut The stream to write to.
+	 */
+	BinaryGraphWriter(OutputStream pOut)
+	{
+		aOut = pOut;
+	}
+
+	/**
+	 * Writes pGraph to pOut and closes pOut.
+	 * @param pGraph The graph to write.
+	 * @param pOut The stream to write to.
+	 * @throws IOException If the graph cannot be written, including
+	 * when it contains a type of node or edge that the format does not define.
+	 */
+	static void write(Graph pGraph, OutputStream pOut) throws IOException
+	{
+		try( OutputStream out = new BufferedOutputStream(pOut) )
+		{
+			new BinaryGraphWriter(out).writeGraph(pGraph);
+		}
+	}
+
+	private void writeGraph(Graph pGraph) throws IOException
+	{
+		aOut.write(MAGIC);
+		writeInt(VERSION);
+		writeInt(tagOf(pGraph.getClass(), GRAPH_TYPES));
+		Rectangle2D minBounds = pGraph.getMinBounds();
+		writeBoolean(minBounds != null);
+		if(minBounds != null)
+		{
+			writeRectangle(minBounds);
+		}
+		writeInt(pGraph.getNodes().size());
+		for(Node node : pGraph.getNodes())
+		{
+			writeNode(node);
+			writeCoordinate(node.getX());
+			writeCoordinate(node.getY());
+		}
+		writeInt(pGraph.getEdges().size());
+		for(Edge edge : pGraph.getEdges())
+		{
+			writeEdge(edge);
+			writeNode(edge.getStart());
+			writeNode(edge.getEnd());
+		}
+	}
+
+	/**
+	 * Numbers pNode as if it had been written, so that it is
+	 * written as a reference.
+	 * @param pNode A node that the reader already has.
+	 */
+	void define(Node pNode)
+	{
+		if(!aNodes.containsKey(pNode))
+		{
+			aNodes.put(pNode, aNodes.size());
+		}
+	}
+
+	/**
+	 * Writes pNode in full the first time, and as a reference afterwards.
+	 * @param pNode The node to write, or null.
+	 * @throws IOException If the node cannot be written.
+	 */
+	void writeNode(Node pNode) throws IOException
+	{
+		if(pNode == null)
+		{
+			writeInt(0);
+			return;
+		}
+		Integer number = aNodes.get(pNode);
+		if(number != null)
+		{
+			writeInt(number + FIRST_REFERENCE);
+			return;
+		}
+		aNodes.put(pNode, aNodes.size());
+		writeInt(NEW);
+		writeInt(tagOf(pNode.getClass(), NODE_TYPES));
+		writeInt(pNode.getChildren().size());
+		for(Node child : pNode.getChildren())
+		{
+			writeNode(child);
+		}
+		writeProperties(pNode);
+	}
+
+	/**
+	 * Writes the current state of a node that was already written:
+	 * its children, its properties and its position.
+	 * @param pNode The node to write.
+	 * @throws IOException If the node cannot be written.
+	 */
+	void writeState(Node pNode) throws IOException
+	{
+		writeInt(pNode.getChildren().size());
+		for(Node child : pNode.getChildren())
+		{
+			writeNode(child);
+		}
+		writeProperties(pNode);
+		// Last, because setting some of the properties moves the node
+		if(pNode instanceof RectangularNode)
+		{
+			writeBounds(pNode);
+		}
+		else
+		{
+			writeCoordinate(pNode.getX());
+			writeCoordinate(pNode.getY());
+		}
+	}
+
+	/*
+	 * The properties are written in the order in which
+	 * XmlGraphWriter writes them.
+	 */
+	private void writeProperties(Node pNode) throws IOException
+	{
+		Class<?> type = pNode.getClass();
+		if(type == ActorNode.class)
+		{
+			writeBounds(pNode);
+			writeText(((ActorNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+		else if(type == CallNode.class)
+		{
+			writeNode(((CallNode) pNode).getImplicitParameter());
+			writeBoolean(((CallNode) pNode).isOpenBottom());
+		}
+		else if(type == CircularStateNode.class)
+		{
+			writeBounds(pNode);
+			writeBoolean(((CircularStateNode) pNode).isFinal());
+			writeNode(pNode.getParent());
+		}
+		else if(type == ClassNode.class)
+		{
+			writeText(((ClassNode) pNode).getAttributes());
+			writeText(((ClassNode) pNode).getMethods());
+			writeText(((ClassNode) pNode).getName());
+		}
+		else if(type == FieldNode.class)
+		{
+			FieldNode node = (FieldNode) pNode;
+			writeBounds(pNode);
+			writeBoolean(node.isBoxedValue());
+			writeText(node.getName());
+			writeNode(pNode.getParent());
+			writeText(node.getValue());
+		}
+		else if(type == ImplicitParameterNode.class)
+		{
+			writeBounds(pNode);
+			writeText(((ImplicitParameterNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+		else if(type == InterfaceNode.class)
+		{
+			writeText(((InterfaceNode) pNode).getMethods());
+			writeText(((InterfaceNode) pNode).getName());
+		}
+		else if(type == NoteNode.class)
+		{
+			writeBounds(pNode);
+			writeNode(pNode.getParent());
+			writeText(((NoteNode) pNode).getText());
+		}
+		else if(type == ObjectNode.class)
+		{
+			writeBounds(pNode);
+			writeText(((ObjectNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+		else if(type == PackageNode.class)
+		{
+			writeBounds(pNode);
+			writeText(((PackageNode) pNode).getContents());
+			writeString(((PackageNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+		else if(type == PointNode.class)
+		{
+			writeNode(pNode.getParent());
+		}
+		else if(type == StateNode.class)
+		{
+			writeBounds(pNode);
+			writeText(((StateNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+		else
+		{
+			writeBounds(pNode);
+			writeText(((UseCaseNode) pNode).getName());
+			writeNode(pNode.getParent());
+		}
+	}
+
+	/**
+	 * Writes the type and the properties of pEdge.
+	 * @param pEdge The edge to write.
+	 * @throws IOException If the edge cannot be written.
+	 */
+	void writeEdge(Edge pEdge) throws IOException
+	{
+		writeInt(tagOf(pEdge.getClass(), EDGE_TYPES));
+		writeProperties(pEdge);
+	}
+
+	/**
+	 * Writes the properties of pEdge, which can change after the
+	 * edge is written.
+	 * @param pEdge The edge to write.
+	 * @throws IOException If the edge cannot be written.
+	 */
+	void writeProperties(Edge pEdge) throws IOException
+	{
+		Class<?> type = pEdge.getClass();
+		if(type == CallEdge.class)
+		{
+			writeString(((CallEdge) pEdge).getMiddleLabel());
+			writeBoolean(((CallEdge) pEdge).isSignal());
+		}
+		else if(type == ClassRelationshipEdge.class || type == ReturnEdge.class)
+		{
+			SegmentedLineEdge edge = (SegmentedLineEdge) pEdge;
+			if(type == ClassRelationshipEdge.class)
+			{
+				writeInt(tagOf(((ClassRelationshipEdge) edge).getBentStyle(), BENT_STYLES));
+			}
+			writeInt(tagOf(edge.getEndArrowHead(), ARROW_HEADS));
+			writeString(edge.getEndLabel());
+			writeInt(tagOf(edge.getLineStyle(), LINE_STYLES));
+			writeString(edge.getMiddleLabel());
+			writeInt(tagOf(edge.getStartArrowHead(), ARROW_HEADS));
+			writeString(edge.getStartLabel());
+		}
+		else if(type == StateTransitionEdge.class)
+		{
+			writeString(((StateTransitionEdge) pEdge).getLabel());
+		}
+	}
+
+	private void writeBounds(Node pNode) throws IOException
+	{
+		writeRectangle(((RectangularNode) pNode).getBounds());
+	}
+
+	private void writeRectangle(Rectangle2D pRectangle) throws IOException
+	{
+		writeCoordinate(pRectangle.getX());
+		writeCoordinate(pRectangle.getY());
+		writeCoordinate(pRectangle.getWidth());
+		writeCoordinate(pRectangle.getHeight());
+	}
+
+	private void writeText(MultiLineString pText) throws IOException
+	{
+		writeString(pText.getText());
+		writeInt(pText.getJustification());
+		writeBoolean(pText.isUnderlined());
+	}
+
+	private void writeString(String pString) throws IOException
+	{
+		if(pString == null)
+		{
+			writeInt(0);
+			return;
+		}
+		Integer number = aStrings.get(pString);
+		if(number != null)
+		{
+			writeInt(number + FIRST_REFERENCE);
+			return;
+		}
+		aStrings.put(pString, aStrings.size());
+		writeInt(NEW);
+		// UTF-16 code units rather than UTF-8, to keep unpaired surrogates
+		writeInt(pString.length());
+		for(int i = 0; i < pString.length(); i++)
+		{
+			writeInt(pString.charAt(i));
+		}
+	}
+
+	/*
+	 * Most coordinates are small integers because of the grid. -0.0 is not,
+	 * so that it reads back as -0.0.
+	 */
+	void writeCoordinate(double pValue) throws IOException
+	{
+		long integer = (long) pValue;
+		if(integer == pValue && Math.abs(integer) < 1L << 52 && (integer != 0 || 1 / pValue > 0))
+		{
+			writeLong(((integer << 1) ^ (integer >> 63)) << 1);
+		}
+		else
+		{
+			writeInt(DOUBLE);
+			long bits = Double.doubleToRawLongBits(pValue);
+			for(int shift = 56; shift >= 0; shift -= 8)
+			{
+				aOut.write((int) (bits >>> shift));
+			}
+		}
+	}
+
+	private void writeBoolean(boolean pValue) throws IOException
+	{
+		aOut.write(pValue ? 1 : 0);
+	}
+
+	void writeInt(int pValue) throws IOException
+	{
+		writeLong(pValue & 0xFFFFFFFFL);
+	}
+
+	private void writeLong(long pValue) throws IOException
+	{
+		long value = pValue;
+		while((value & ~0x7FL) != 0)
+		{
+			aOut.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		aOut.write((int) value);
+	}
+
+	private static int tagOf(Object pValue, Object[] pTable) throws IOException
+	{
+		for(int i = 0; i < pTable.length; i++)
+		{
+			if(pTable[i] == pValue)
+			{
+				return i;
+			}
+		}
+		throw new IOException("The binary format does not support " + pValue);
+	}
+}
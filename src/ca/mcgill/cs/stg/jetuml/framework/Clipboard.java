@@ -166,8 +166,8 @@ public final class Clipboard
 		pGraphPanel.startCompoundListening();
 		for(Node cloneNode: copyNodes)
 		{
-			double x = cloneNode.getBounds().getX();
-			double y = cloneNode.getBounds().getY();
+			double x = cloneNode.getX();
+			double y = cloneNode.getY();
 			if(!pOriginalPositions)
 			{
 				/*
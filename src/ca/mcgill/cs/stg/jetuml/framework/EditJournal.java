@@ -0,0 +1,799 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Point2D;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+import javax.swing.SwingUtilities;
+
+import ca.mcgill.cs.stg.jetuml.commands.AddDeleteEdgeCommand;
+import ca.mcgill.cs.stg.jetuml.commands.AddDeleteNodeCommand;
+import ca.mcgill.cs.stg.jetuml.commands.AttachDetachChildCommand;
+import ca.mcgill.cs.stg.jetuml.commands.Command;
+import ca.mcgill.cs.stg.jetuml.commands.CompoundCommand;
+import ca.mcgill.cs.stg.jetuml.commands.MoveCommand;
+import ca.mcgill.cs.stg.jetuml.commands.PropertyChangeCommand;
+import ca.mcgill.cs.stg.jetuml.graph.CallNode;
+import ca.mcgill.cs.stg.jetuml.graph.Edge;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.GraphElement;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+
+/**
+ * Keeps the edits to a graph in a file next to the file of the graph,
+ * so that they can be recovered if the editor ends before the graph is
+ * saved. The UndoManager adds the commands that it performs, undoes and
+ * redoes, and those of each event make one entry at the end of the journal
+ * once the event is handled, as the graph notifies some commands before it
+ * completes them. The journal is written on a background thread. An entry
+ * costs in proportion to its commands rather than to the graph: it holds
+ * the nodes and edges that they added or removed, and the state in which
+ * they left the other nodes and edges that they changed. Replaying an entry
+ * thus does not depend on the rules by which the editor places nodes and edges.
+ *
+ * The entries apply to a base: the file of the graph as it was read, or a
+ * copy of the graph that the journal holds, taken when the graph is saved
+ * and when the entries outgrow the base. Recovering a graph thus never
+ * replays much more than the size of the graph.
+ *
+ * The journal starts with MAGIC, VERSION and the base: FILE_BASE followed
+ * by the length and modification time of the file, or SNAPSHOT_BASE 
+ * followed by the length and the bytes of the graph in the binary format.
+ * Each entry is then its length, the CRC-32 of its content, and its 
+ * content: operations written with a BinaryGraphWriter, up to END. The
+ * nodes of the base are numbered in the order of getNodes(Graph), and its
+ * edges in the order of Graph.getEdges. An entry that was not completely
+ * written ends the journal.
+ *
+ * Except for recover, the methods must be called on the Event Dispatch Thread.
+ */
+final class EditJournal
+{
+	static final byte[] MAGIC = {'J', 'E', 'T', 'J'};
+	static final int VERSION = 1;
+
+	private static final int FILE_BASE = 0;
+	private static final int SNAPSHOT_BASE = 1;
+
+	private static final int ADD_NODE = 0;
+	private static final int REMOVE_NODE = 1;
+	private static final int ADD_EDGE = 2;
+	private static final int REMOVE_EDGE = 3;
+	private static final int NODE = 4;
+	private static final int EDGE = 5;
+	private static final int END = 6;
+
+	private static final int NEW = 0;
+	private static final int INT_SIZE = 4;
+	private static final int LONG_SIZE = 8;
+	private static final int MINIMUM_COMPACTION = 1 << 18; // Bytes of entries that never make the journal start over
+
+	private final File aFile;
+	private final Executor aExecutor;
+	private final ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+	private final List<Command> aPending = new ArrayList<>(); // Of the event being handled
+	private Graph aGraph;
+	private byte[] aHeader;
+	private long aBaseSize;
+	private long aEntriesSize;
+	private int aVersion;
+	private BinaryGraphWriter aWriter;
+	private Map<Edge, Integer> aEdges;
+	private boolean aDiscarded;
+	private volatile boolean aFailed;
+	private FileOutputStream aOut; // Only used by the tasks of aExecutor
+
+	/**
+	 * Creates a journal that starts with the first call to startFrom.
+	 * @param pFile The file of the journal.
+	 * @param pExecutor The executor that writes the journal. It must run
+	 * the tasks one at a time, in order.
+	 */
+	EditJournal(File pFile, Executor pExecutor)
+	{
+		aFile = pFile;
+		aExecutor = pExecutor;
+	}
+
+	/**
+	 * @return The file of the journal.
+	 */
+	File getFile()
+	{
+		return aFile;
+	}
+
+	/**
+	 * @return A number that changes each time a command is added.
+	 */
+	int getVersion()
+	{
+		return aVersion;
+	}
+
+	/**
+	 * Starts the journal over from the file of pGraph, as it was just read.
+	 * The journal file is removed until the first entry.
+	 * @param pGraph The graph in the file.
+	 * @param pLength The length of the file when it was read.
+	 * @param pLastModified The modification time of the file when it was read.
+	 */
+	void startFrom(Graph pGraph, long pLength, long pLastModified)
+	{
+		start(pGraph, header(FILE_BASE, 2 * LONG_SIZE).putLong(pLength).putLong(pLastModified).array(), pLength);
+		aExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				delete();
+			}
+		});
+	}
+
+	/**
+	 * Starts the journal over from a copy of pGraph. The journal file 
+	 * is replaced right away, as the copy holds all the edits so far.
+	 * @param pGraph The graph.
+	 * @param pSnapshot The copy of pGraph taken by PersistenceService.snapshot.
+	 */
+	void startFrom(Graph pGraph, byte[] pSnapshot)
+	{
+		final byte[] header = header(SNAPSHOT_BASE, INT_SIZE + pSnapshot.length).putInt(pSnapshot.length).put(pSnapshot).array();
+		start(pGraph, header, pSnapshot.length);
+		aExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				replace(header);
+			}
+		});
+	}
+
+	/**
+	 * Adds a command that was just performed or undone. Its entry is
+	 * written once the current event is handled.
+	 * @param pCommand The command.
+	 */
+	void add(Command pCommand)
+	{
+		if(aWriter == null || aDiscarded || aFailed)
+		{
+			return;
+		}
+		aVersion++;
+		aPending.add(pCommand);
+		if(aPending.size() == 1)
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				public void run()
+				{
+					writePending();
+				}
+			});
+		}
+	}
+
+	/*
+	 * Writes the entry for the pending commands. Starts the journal over 
+	 * from a copy of the graph when the entries outgrow the base.
+	 */
+	private void writePending()
+	{
+		if(aPending.isEmpty() || aDiscarded || aFailed)
+		{
+			aPending.clear();
+			return;
+		}
+		// So that the graph holds exactly the nodes and edges present after the commands
+		aGraph.completeRemovals();
+		Set<GraphElement> addedOrRemoved = new LinkedHashSet<>();
+		Set<GraphElement> changed = new LinkedHashSet<>();
+		for(Command command : aPending)
+		{
+			collect(command, addedOrRemoved, changed);
+		}
+		aPending.clear();
+		try
+		{
+			for(GraphElement element : addedOrRemoved)
+			{
+				writePresence(element);
+			}
+			for(GraphElement element : changed)
+			{
+				if(!aGraph.contains(element))
+				{
+					continue;
+				}
+				if(element instanceof Node)
+				{
+					aWriter.writeInt(NODE);
+					aWriter.writeNode((Node) element);
+					aWriter.writeState((Node) element);
+				}
+				else
+				{
+					aWriter.writeInt(EDGE);
+					writeEdge((Edge) element);
+					aWriter.writeProperties((Edge) element);
+				}
+			}
+			aWriter.writeInt(END);
+		}
+		catch(IOException exception)
+		{
+			// A type that the binary format does not define: the graph cannot be saved either
+			aFailed = true;
+			return;
+		}
+		byte[] content = aBuffer.toByteArray();
+		aBuffer.reset();
+		CRC32 checksum = new CRC32();
+		checksum.update(content, 0, content.length);
+		final byte[] entry = ByteBuffer.allocate(2 * INT_SIZE + content.length)
+				.putInt(content.length).putInt((int) checksum.getValue()).put(content).array();
+		final byte[] header = aHeader;
+		aExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				append(header, entry);
+			}
+		});
+		aEntriesSize += entry.length;
+		if(aEntriesSize > Math.max(MINIMUM_COMPACTION, aBaseSize))
+		{
+			try
+			{
+				startFrom(aGraph, PersistenceService.snapshot(aGraph));
+			}
+			catch(IOException exception)
+			{
+				aFailed = true;
+			}
+		}
+	}
+
+	/**
+	 * Removes the journal file after the graph is saved, unless
+	 * it was edited since.
+	 * @param pVersion The version of the journal when the save started.
+	 */
+	void saved(int pVersion)
+	{
+		if(pVersion == aVersion && !aDiscarded)
+		{
+			aExecutor.execute(new Runnable()
+			{
+				public void run()
+				{
+					delete();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Removes the journal file and ignores the entries added afterwards,
+	 * for a graph that is closed.
+	 */
+	void discard()
+	{
+		aDiscarded = true;
+		aPending.clear();
+		aExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				delete();
+			}
+		});
+	}
+
+	/**
+	 * Reads a journal and replays its entries.
+	 * @param pJournal The journal of the file of pGraph.
+	 * @param pGraph The graph in the file. It is left unchanged.
+	 * @param pLength The length of the file when it was read.
+	 * @param pLastModified The modification time of the file when it was read.
+	 * @return The graph with the edits in the journal, or null if the
+	 * journal does not hold any edit to the graph in the file.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	static Graph recover(File pJournal, Graph pGraph, long pLength, long pLastModified) throws IOException
+	{
+		try( DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pJournal))) )
+		{
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if(!Arrays.equals(magic, MAGIC))
+			{
+				throw new IOException("Not a JetUML journal");
+			}
+			int version = in.readInt();
+			if(version != VERSION)
+			{
+				throw new IOException("Unsupported version of the journal: " + version);
+			}
+			byte[] snapshot = null;
+			int base = in.readByte();
+			if(base == FILE_BASE)
+			{
+				if(in.readLong() != pLength || in.readLong() != pLastModified)
+				{
+					return null; // The entries apply to another version of the file
+				}
+			}
+			else if(base == SNAPSHOT_BASE)
+			{
+				snapshot = new byte[checkLength(in.readInt(), pJournal)];
+				in.readFully(snapshot);
+			}
+			else
+			{
+				throw new IOException("Unknown base: " + base);
+			}
+			ByteArrayOutputStream entries = new ByteArrayOutputStream();
+			int count = readEntries(in, entries, pJournal);
+			if(count == 0 && (snapshot == null || Arrays.equals(snapshot, PersistenceService.snapshot(pGraph))))
+			{
+				return null;
+			}
+			if(snapshot == null)
+			{
+				snapshot = PersistenceService.snapshot(pGraph);
+			}
+			Graph graph = BinaryGraphReader.read(new ByteArrayInputStream(snapshot));
+			BinaryGraphReader reader = new BinaryGraphReader(new ByteArrayInputStream(entries.toByteArray()));
+			for(Node node : getNodes(graph))
+			{
+				reader.define(node);
+			}
+			List<Edge> edges = new ArrayList<>(graph.getEdges());
+			try
+			{
+				for(int i = 0; i < count; i++)
+				{
+					replay(reader, graph, edges);
+					// As the layout that follows each event in the editor
+					graph.completeRemovals();
+				}
+			}
+			catch(RuntimeException exception)
+			{
+				throw new IOException("Invalid journal", exception);
+			}
+			graph.layout();
+			return graph;
+		}
+	}
+
+	private void start(Graph pGraph, byte[] pHeader, long pBaseSize)
+	{
+		aGraph = pGraph;
+		aHeader = pHeader;
+		aBaseSize = pBaseSize;
+		aEntriesSize = 0;
+		aFailed = false;
+		aPending.clear(); // Their edits are in the base
+		aBuffer.reset();
+		aWriter = new BinaryGraphWriter(aBuffer);
+		for(Node node : getNodes(pGraph))
+		{
+			aWriter.define(node);
+		}
+		aEdges = new IdentityHashMap<>();
+		for(Edge edge : pGraph.getEdges())
+		{
+			aEdges.put(edge, aEdges.size());
+		}
+	}
+
+	/*
+	 * Collects the nodes and edges that pCommand added or removed, in the
+	 * order in which it did, and the nodes and edges that it changed. 
+	 * Whether the command added or removed an element is left to the graph:
+	 * the editor does not always manage to add back a node that it removed.
+	 */
+	private static void collect(Command pCommand, Set<GraphElement> pAddedOrRemoved, Set<GraphElement> pChanged)
+	{
+		if(pCommand instanceof CompoundCommand)
+		{
+			for(Command command : ((CompoundCommand) pCommand).getCommands())
+			{
+				collect(command, pAddedOrRemoved, pChanged);
+			}
+		}
+		else if(pCommand instanceof AddDeleteNodeCommand)
+		{
+			Node node = ((AddDeleteNodeCommand) pCommand).getNode();
+			pAddedOrRemoved.add(node);
+			pChanged.add(node);
+			addChanged(node.getParent(), pChanged);
+		}
+		else if(pCommand instanceof AddDeleteEdgeCommand)
+		{
+			Edge edge = ((AddDeleteEdgeCommand) pCommand).getEdge();
+			pAddedOrRemoved.add(edge);
+			pChanged.add(edge);
+			addChanged(edge.getStart(), pChanged);
+			addChanged(edge.getEnd(), pChanged);
+		}
+		else if(pCommand instanceof MoveCommand)
+		{
+			addTree(((MoveCommand) pCommand).getNode(), pChanged);
+		}
+		else if(pCommand instanceof AttachDetachChildCommand)
+		{
+			addChanged(((AttachDetachChildCommand) pCommand).getParent(), pChanged);
+			addChanged(((AttachDetachChildCommand) pCommand).getChild(), pChanged);
+		}
+		else if(pCommand instanceof PropertyChangeCommand && ((PropertyChangeCommand) pCommand).getObject() instanceof GraphElement)
+		{
+			pChanged.add((GraphElement) ((PropertyChangeCommand) pCommand).getObject());
+		}
+	}
+
+	/*
+	 * Writes whether pElement is in the graph after the command.
+	 */
+	private void writePresence(GraphElement pElement) throws IOException
+	{
+		boolean present = aGraph.contains(pElement);
+		if(pElement instanceof Node)
+		{
+			Node node = (Node) pElement;
+			aWriter.writeInt(present ? ADD_NODE : REMOVE_NODE);
+			aWriter.writeNode(node);
+			if(present)
+			{
+				aWriter.writeCoordinate(node.getX());
+				aWriter.writeCoordinate(node.getY());
+			}
+		}
+		else
+		{
+			Edge edge = (Edge) pElement;
+			aWriter.writeInt(present ? ADD_EDGE : REMOVE_EDGE);
+			writeEdge(edge);
+			if(present)
+			{
+				aWriter.writeNode(edge.getStart());
+				aWriter.writeNode(edge.getEnd());
+			}
+		}
+	}
+
+	private static void addChanged(Node pNode, Set<GraphElement> pChanged)
+	{
+		if(pNode != null)
+		{
+			pChanged.add(pNode);
+		}
+	}
+
+	/*
+	 * Some nodes move their children with them.
+	 */
+	private static void addTree(Node pNode, Set<GraphElement> pChanged)
+	{
+		pChanged.add(pNode);
+		for(Node child : pNode.getChildren())
+		{
+			addTree(child, pChanged);
+		}
+	}
+
+	private void writeEdge(Edge pEdge) throws IOException
+	{
+		Integer number = aEdges.get(pEdge);
+		if(number == null)
+		{
+			aEdges.put(pEdge, aEdges.size());
+			aWriter.writeInt(NEW);
+			aWriter.writeEdge(pEdge);
+		}
+		else
+		{
+			aWriter.writeInt(number + 1);
+		}
+	}
+
+	/*
+	 * Performs the operations of one entry on pGraph.
+	 */
+	private static void replay(BinaryGraphReader pReader, Graph pGraph, List<Edge> pEdges) throws IOException
+	{
+		for(int operation = pReader.readInt(); operation != END; operation = pReader.readInt())
+		{
+			if(operation == ADD_NODE)
+			{
+				Node node = pReader.readNode();
+				Point2D point = new Point2D.Double(pReader.readCoordinate(), pReader.readCoordinate());
+				if(!pGraph.contains(node))
+				{
+					pGraph.addNode(node, point);
+				}
+			}
+			else if(operation == REMOVE_NODE)
+			{
+				Node node = pReader.readNode();
+				if(pGraph.contains(node))
+				{
+					pGraph.removeNode(node);
+				}
+			}
+			else if(operation == ADD_EDGE)
+			{
+				Edge edge = readEdge(pReader, pEdges);
+				Node start = pReader.readNode();
+				Node end = pReader.readNode();
+				if(!pGraph.contains(edge))
+				{
+					pGraph.connect(edge, start, end);
+				}
+				if(!pGraph.contains(end))
+				{
+					// As Graph.connect adds the end node when it is new
+					pGraph.addNode(end, new Point2D.Double(end.getX(), end.getY()));
+				}
+			}
+			else if(operation == REMOVE_EDGE)
+			{
+				Edge edge = readEdge(pReader, pEdges);
+				if(pGraph.contains(edge))
+				{
+					pGraph.removeEdge(edge);
+				}
+			}
+			else if(operation == NODE)
+			{
+				pReader.readState(pReader.readNode());
+			}
+			else if(operation == EDGE)
+			{
+				pReader.readProperties(readEdge(pReader, pEdges));
+			}
+			else
+			{
+				throw new IOException("Unknown operation: " + operation);
+			}
+		}
+	}
+
+	private static Edge readEdge(BinaryGraphReader pReader, List<Edge> pEdges) throws IOException
+	{
+		int number = pReader.readInt();
+		if(number == NEW)
+		{
+			Edge edge = pReader.readEdge();
+			pEdges.add(edge);
+			return edge;
+		}
+		if(number > pEdges.size())
+		{
+			throw new IOException("Undefined edge: " + number);
+		}
+		return pEdges.get(number - 1);
+	}
+
+	/*
+	 * Copies the contents of the complete entries of pIn to pOut,
+	 * and returns their number.
+	 */
+	private static int readEntries(DataInputStream pIn, OutputStream pOut, File pJournal) throws IOException
+	{
+		int count = 0;
+		try
+		{
+			while(true)
+			{
+				int length = pIn.readInt();
+				int checksum = pIn.readInt();
+				if(length < 0 || length > pJournal.length())
+				{
+					return count;
+				}
+				byte[] content = new byte[length];
+				pIn.readFully(content);
+				CRC32 actual = new CRC32();
+				actual.update(content, 0, length);
+				if((int) actual.getValue() != checksum)
+				{
+					return count;
+				}
+				pOut.write(content);
+				count++;
+			}
+		}
+		catch(EOFException exception)
+		{
+			return count; // The last entry was not completely written
+		}
+	}
+
+	private static int checkLength(int pLength, File pJournal) throws IOException
+	{
+		if(pLength < 0 || pLength > pJournal.length())
+		{
+			throw new IOException("Invalid length: " + pLength);
+		}
+		return pLength;
+	}
+
+	/*
+	 * Returns the nodes of pGraph and the nodes that they refer
+	 * to, in the order in which the journal numbers them.
+	 */
+	private static List<Node> getNodes(Graph pGraph)
+	{
+		Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		List<Node> nodes = new ArrayList<>();
+		for(Node node : pGraph.getNodes())
+		{
+			visit(node, visited, nodes);
+		}
+		return nodes;
+	}
+
+	private static void visit(Node pNode, Set<Node> pVisited, List<Node> pNodes)
+	{
+		if(pNode == null || !pVisited.add(pNode))
+		{
+			return;
+		}
+		pNodes.add(pNode);
+		for(Node child : pNode.getChildren())
+		{
+			visit(child, pVisited, pNodes);
+		}
+		visit(pNode.getParent(), pVisited, pNodes);
+		if(pNode instanceof CallNode)
+		{
+			visit(((CallNode) pNode).getImplicitParameter(), pVisited, pNodes);
+		}
+	}
+
+	private static ByteBuffer header(int pBase, int pSize)
+	{
+		return ByteBuffer.allocate(MAGIC.length + INT_SIZE + 1 + pSize).put(MAGIC).putInt(VERSION).put((byte) pBase);
+	}
+
+	/*
+	 * The methods below run on the thread of aExecutor. A failure stops the 
+	 * journal until it starts over: the file keeps the entries written so far.
+	 */
+
+	private void append(byte[] pHeader, byte[] pEntry)
+	{
+		try
+		{
+			if(aOut == null)
+			{
+				aOut = new FileOutputStream(aFile);
+				aOut.write(pHeader);
+			}
+			aOut.write(pEntry);
+			aOut.getFD().sync();
+		}
+		catch(IOException exception)
+		{
+			fail();
+		}
+	}
+
+	private void replace(byte[] pHeader)
+	{
+		close();
+		try
+		{
+			File temporary = File.createTempFile(aFile.getName(), ".tmp", aFile.getAbsoluteFile().getParentFile());
+			try
+			{
+				try( FileOutputStream out = new FileOutputStream(temporary) )
+				{
+					out.write(pHeader);
+					out.getFD().sync();
+				}
+				try
+				{
+					Files.move(temporary.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch(AtomicMoveNotSupportedException exception)
+				{
+					Files.move(temporary.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally
+			{
+				Files.deleteIfExists(temporary.toPath());
+			}
+			aOut = new FileOutputStream(aFile, true);
+		}
+		catch(IOException exception)
+		{
+			fail();
+		}
+	}
+
+	private void delete()
+	{
+		close();
+		try
+		{
+			Files.deleteIfExists(aFile.toPath());
+		}
+		catch(IOException exception)
+		{
+			fail();
+		}
+	}
+
+	private void fail()
+	{
+		close();
+		aFailed = true;
+	}
+
+	private void close()
+	{
+		if(aOut != null)
+		{
+			try
+			{
+				aOut.close();
+			}
+			catch(IOException exception)
+			{
+				// The entries that it holds are flushed already
+			}
+			aOut = null;
+		}
+	}
+}
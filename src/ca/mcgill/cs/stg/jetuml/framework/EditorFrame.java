@@ -40,15 +40,18 @@ import java.awt.image.BufferedImage;
 import java.beans.PropertyVetoException;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
 
 import javax.imageio.ImageIO;
@@ -74,10 +77,7 @@ import ca.mcgill.cs.stg.jetuml.diagrams.ClassDiagramGraph;
 import ca.mcgill.cs.stg.jetuml.diagrams.ObjectDiagramGraph;
 import ca.mcgill.cs.stg.jetuml.diagrams.StateDiagramGraph;
 import ca.mcgill.cs.stg.jetuml.diagrams.UseCaseDiagramGraph;
-import ca.mcgill.cs.stg.jetuml.graph.Edge;
 import ca.mcgill.cs.stg.jetuml.graph.Graph;
-import ca.mcgill.cs.stg.jetuml.graph.GraphElement;
-import ca.mcgill.cs.stg.jetuml.graph.Node;
 
 /**
  * This desktop frame contains panes that show graphs.
@@ -110,6 +110,10 @@ public class EditorFrame extends JFrame
 	private JMenu aRecentFilesMenu;
 	
 	private WelcomeTab aWelcomeTab;
+	private ExecutorService aSaves = Executors.newSingleThreadExecutor();
+	private ExecutorService aLoads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	private ExecutorService aJournals = Executors.newSingleThreadExecutor(); // Writes the journals of all the graphs, in order
+	private List<SaveWorker> aPendingSaves = new ArrayList<>(); // Started and not yet reported
 
 	/**
 	 * Constructs a blank frame with a desktop pane
@@ -205,7 +209,7 @@ public class EditorFrame extends JFrame
      	{
      		public void actionPerformed(ActionEvent pEvent)
             {
-               final GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               final GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -219,7 +223,7 @@ public class EditorFrame extends JFrame
      	{
      		public void actionPerformed(ActionEvent pEvent)
             {
-               final GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               final GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -233,7 +237,7 @@ public class EditorFrame extends JFrame
      	{
      		public void actionPerformed(ActionEvent pEvent)
             {
-               final GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               final GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -252,7 +256,7 @@ public class EditorFrame extends JFrame
      	{
             public void actionPerformed(ActionEvent pEvent)
             {
-               GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -274,7 +278,7 @@ public class EditorFrame extends JFrame
      	{
             public void actionPerformed(ActionEvent pEvent)
             {
-               GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -288,7 +292,7 @@ public class EditorFrame extends JFrame
      	{
             public void actionPerformed(ActionEvent pEvent)
             {
-               GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -302,7 +306,7 @@ public class EditorFrame extends JFrame
      	{
      		public void actionPerformed(ActionEvent pEvent)
      		{
-     			GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+     			GraphFrame frame = getSelectedGraphFrame();
      			if(frame == null)
 				{
 					return;
@@ -320,7 +324,7 @@ public class EditorFrame extends JFrame
      	{
      		public void actionPerformed(ActionEvent pEvent)
      		{
-     			GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+     			GraphFrame frame = getSelectedGraphFrame();
      			if(frame == null)
 				{
 					return;
@@ -336,7 +340,7 @@ public class EditorFrame extends JFrame
      	{
             public void actionPerformed(ActionEvent pEvent)
             {
-               GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+               GraphFrame frame = getSelectedGraphFrame();
                if(frame == null)
                {
             	   return;
@@ -356,7 +360,7 @@ public class EditorFrame extends JFrame
 	     		{
 	     			return;
 	     		}	
-     			GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+     			GraphFrame frame = getSelectedGraphFrame();
                 if(frame == null)
 				{
 					return;
@@ -487,21 +491,94 @@ public class EditorFrame extends JFrame
 					return;
 				}
 			}
+			else if(aTabbedPane.getComponentAt(i) instanceof LoadingTab)
+			{
+				LoadingTab tab = (LoadingTab)aTabbedPane.getComponentAt(i);
+				if(tab.getFile().getAbsoluteFile().equals(new File(pName).getAbsoluteFile()))
+				{
+					aTabbedPane.setSelectedIndex(i);
+					return;
+				}
+			}
 		}	      
-		try
-		{	              
-			Graph graph = PersistenceService.read(new FileInputStream(pName));
-			GraphFrame frame = new GraphFrame(graph, aTabbedPane);
-			frame.setFile(new File(pName).getAbsoluteFile());    
-			addRecentFile(new File(pName).getPath());
-			addTab(frame);
+		LoadingTab tab = new LoadingTab(this, new File(pName), getJournalFile(new File(pName)));
+		addTab(tab);
+		tab.start(aLoads);
+	}   
+
+	/**
+	 * Replaces pTab by a frame for pGraph, once pTab has read it.
+	 * Called on the Event Dispatch Thread.
+	 * @param pTab The tab that read the graph.
+	 * @param pGraph The graph in the file of pTab.
+	 */
+	void opened(LoadingTab pTab, Graph pGraph)
+	{
+		int index = aTabs.indexOf(pTab);
+		if(index < 0)
+		{
+			return;
 		}
-		catch(IOException exception)
+		File file = pTab.getFile().getAbsoluteFile();
+		EditJournal journal = new EditJournal(getJournalFile(file), aJournals);
+		Graph graph = recover(pTab, pGraph, journal);
+		GraphFrame frame = new GraphFrame(graph, aTabbedPane);
+		frame.setFile(file);
+		frame.setJournal(journal);
+		frame.getGraphPanel().setModified(graph != pGraph);
+		addRecentFile(pTab.getFile().getPath());
+		hideTitleBar(frame);
+		aTabs.set(index, frame);
+		aTabbedPane.setComponentAt(index, frame);
+		aTabbedPane.setTitleAt(index, setTitle(frame));
+		aTabbedPane.setTabComponentAt(index, new ButtonTabComponent(this, frame, aTabbedPane));
+		frame.setBounds(pTab.getBounds());
+		frame.show();
+	}
+
+	/*
+	 * Returns the graph that pTab recovered from the edits that pJournal
+	 * kept in a previous session, if the user restores them, and pGraph
+	 * otherwise. Starts pJournal over from the graph that is returned.
+	 */
+	private Graph recover(LoadingTab pTab, Graph pGraph, EditJournal pJournal)
+	{
+		if(pTab.getRecovered() != null && JOptionPane.showConfirmDialog(aTabbedPane, 
+				MessageFormat.format(aEditorResources.getString("dialog.recover.ok"), pTab.getFile().getName()), 
+				null, JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
 		{
-			JOptionPane.showMessageDialog(aTabbedPane, exception.getMessage(), 
-    			  aEditorResources.getString("file.open.text"), JOptionPane.ERROR_MESSAGE);
-		}      
-	}   
+			pJournal.startFrom(pTab.getRecovered(), pTab.getRecoveredSnapshot());
+			return pTab.getRecovered();
+		}
+		pJournal.startFrom(pGraph, pTab.getLength(), pTab.getLastModified());
+		return pGraph;
+	}
+
+	/*
+	 * The journal of pFile, which keeps the edits to
+	 * its graph until they are saved.
+	 */
+	private File getJournalFile(File pFile)
+	{
+		return new File(pFile.getAbsolutePath() + aAppResources.getString("files.journal.extension"));
+	}
+
+	/**
+	 * Removes pTab after it failed to read its file.
+	 * Called on the Event Dispatch Thread.
+	 * @param pTab The tab that could not read its file.
+	 * @param pError The reason.
+	 */
+	void openFailed(LoadingTab pTab, Throwable pError)
+	{
+		if(!aTabs.contains(pTab))
+		{
+			return;
+		}
+		removeTab(pTab);
+		JOptionPane.showMessageDialog(aTabbedPane, pError.getMessage(), 
+				aEditorResources.getString("file.open.text"), JOptionPane.ERROR_MESSAGE);
+	}
 
 	/*
      * Adds an InternalFrame to the list of Tabs.
@@ -511,11 +588,7 @@ public class EditorFrame extends JFrame
    private void addTab(final JInternalFrame pInternalFrame)
    {  
 	   int frameCount = aTabbedPane.getComponentCount();   
-	   BasicInternalFrameUI ui = (BasicInternalFrameUI)pInternalFrame.getUI();
-	   Container north = (Container)ui.getNorthPane();
-	   north.remove(0);
-	   north.validate();
-	   north.repaint();
+	   hideTitleBar(pInternalFrame);
 	   aTabbedPane.add(setTitle(pInternalFrame), pInternalFrame);
 	   int i = aTabs.size();
 	   aTabbedPane.setTabComponentAt(i,
@@ -537,6 +610,31 @@ public class EditorFrame extends JFrame
 
    	}
 
+   	/*
+   	 * The diagram of the selected tab, or null while the welcome 
+   	 * tab or a file that is still loading is selected.
+   	 */
+   	private GraphFrame getSelectedGraphFrame()
+   	{
+   		if(aTabbedPane.getSelectedComponent() instanceof GraphFrame)
+   		{
+   			return (GraphFrame) aTabbedPane.getSelectedComponent();
+   		}
+   		return null;
+   	}
+
+   	/*
+   	 * The tab shows the title instead.
+   	 */
+   	private static void hideTitleBar(JInternalFrame pInternalFrame)
+   	{
+	   BasicInternalFrameUI ui = (BasicInternalFrameUI)pInternalFrame.getUI();
+	   Container north = (Container)ui.getNorthPane();
+	   north.remove(0);
+	   north.validate();
+	   north.repaint();
+   	}
+
    	/**
    	 * @param pInternalFrame The current frame to give a Title in its tab.
    	 * @return The title of a given tab.
@@ -546,6 +644,10 @@ public class EditorFrame extends JFrame
    		String appName = aAppResources.getString("app.name");
    		String diagramName;
    		
+   		if(pInternalFrame instanceof LoadingTab)
+   		{
+   			return ((LoadingTab)pInternalFrame).getFile().getName();
+   		}
    		if(pInternalFrame == null || !(pInternalFrame instanceof GraphFrame ))
    		{
    			return appName;
@@ -623,6 +725,10 @@ public class EditorFrame extends JFrame
         int pos = aTabs.indexOf(pInternalFrame);
         tp.remove(pos);
         aTabs.remove(pInternalFrame);
+        if(pInternalFrame instanceof GraphFrame && ((GraphFrame) pInternalFrame).getJournal() != null)
+        {
+        	((GraphFrame) pInternalFrame).getJournal().discard();
+        }
         if(aTabs.size() == 0)
         {
         	aWelcomeTab = new WelcomeTab(aNewMenu, aRecentFilesMenu);
@@ -694,6 +800,8 @@ public class EditorFrame extends JFrame
 		{
 			fileChooser.addChoosableFileFilter(filter);
 		}
+		fileChooser.addChoosableFileFilter(new ExtensionFilter(aAppResources.getString("files.binary.name"), 
+				aAppResources.getString("files.binary.extension")));
 		if(fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) 
 		{
 			File file = fileChooser.getSelectedFile();
@@ -707,31 +815,17 @@ public class EditorFrame extends JFrame
    	 */
    	public void cut()
    	{
-   		GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null)
    		{
    			return;
    		}
    		GraphPanel panel = frame.getGraphPanel();
-   		Graph curGraph = frame.getGraph();
    		if(panel.getSelectionList().size()>0)
    		{
    			SelectionList currentSelection = panel.getSelectionList();
    			aClipboard.addSelection(currentSelection);	
-   			Iterator<GraphElement> iter = currentSelection.iterator();
-   			while(iter.hasNext())
-   			{
-   				GraphElement element = iter.next();
-   				if(element instanceof Edge)
-   				{
-   					curGraph.removeEdge((Edge)element);
-   				}
-   				else
-   				{
-   					curGraph.removeNode((Node)element);
-   				}
-   				iter.remove();
-   			}
+   			panel.removeSelected();
    		}	
    		panel.repaint();
    	}
@@ -742,7 +836,7 @@ public class EditorFrame extends JFrame
    	 */
    	public void copy()
    	{
-   		GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null)
    		{
    			return;
@@ -762,7 +856,7 @@ public class EditorFrame extends JFrame
    	 */
    	public void paste()
    	{
-   		GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null)
    		{
    			return;
@@ -786,7 +880,7 @@ public class EditorFrame extends JFrame
    	 */
    	public void copyToClipboard()
    	{
-   		GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if( frame == null )
    		{
    			return;
@@ -833,6 +927,11 @@ public class EditorFrame extends JFrame
    		{
    			return;
    		}
+   		if(aTabbedPane.getSelectedComponent() instanceof LoadingTab)
+   		{
+   			close((JInternalFrame)aTabbedPane.getSelectedComponent());
+   			return;
+   		}
         JInternalFrame curFrame = (JInternalFrame)aTabbedPane.getSelectedComponent();
         if (curFrame != null)
         {
@@ -862,6 +961,12 @@ public class EditorFrame extends JFrame
    	 */
    	public void close(JInternalFrame pJInternalFrame)
    	{
+   		if(pJInternalFrame instanceof LoadingTab)
+   		{
+   			((LoadingTab)pJInternalFrame).cancel();
+   			removeTab(pJInternalFrame);
+   			return;
+   		}
         JInternalFrame curFrame = pJInternalFrame;
         if (curFrame != null)
         {
@@ -885,7 +990,7 @@ public class EditorFrame extends JFrame
    	 */
    	public void save()
    	{
-   		GraphFrame frame = (GraphFrame) aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null)
    		{
    			return;
@@ -898,7 +1003,7 @@ public class EditorFrame extends JFrame
    		}
    		try
    		{
-   			PersistenceService.saveFile(frame.getGraph(), new FileOutputStream(file));
+   			saveFile(frame, file);
    			frame.getGraphPanel().setModified(false);
    		}        
    		catch(Exception exception)
@@ -912,7 +1017,7 @@ public class EditorFrame extends JFrame
    	 */
    	public void saveAs()
    	{
-   		GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null) 
    		{
    			return;
@@ -923,6 +1028,8 @@ public class EditorFrame extends JFrame
    			File result = null;
    			
    	   		JFileChooser fileChooser = new JFileChooser();
+   			fileChooser.addChoosableFileFilter(new ExtensionFilter(aAppResources.getString("files.binary.name"), 
+					graph.getFileExtension() + aAppResources.getString("files.binary.extension")));
    			fileChooser.setFileFilter(new ExtensionFilter(graph.getDescription(), 
 					graph.getFileExtension() + aAppResources.getString("files.extension")));
    			fileChooser.setCurrentDirectory(new File("."));
@@ -941,7 +1048,12 @@ public class EditorFrame extends JFrame
    				File f = fileChooser.getSelectedFile();
    				if( !fileChooser.getFileFilter().accept(f))
    				{
-   					f = new File(f.getPath() + graph.getFileExtension() + aAppResources.getString("files.extension"));
+   					String extension = graph.getFileExtension() + aAppResources.getString("files.extension");
+   					if(fileChooser.getFileFilter() instanceof ExtensionFilter)
+   					{
+   						extension = ((ExtensionFilter) fileChooser.getFileFilter()).getExtension();
+   					}
+   					f = new File(f.getPath() + extension);
    				}
 
    				if(!f.exists()) 
@@ -962,15 +1074,7 @@ public class EditorFrame extends JFrame
    			
    			if(result != null)
    			{
-   				OutputStream out = new FileOutputStream(result);
-   				try
-   				{
-   					PersistenceService.saveFile(graph, out);
-   				}
-   				finally
-   				{
-   					out.close();
-   				}
+   				saveFile(frame, result);
    				addRecentFile(result.getAbsolutePath());
    				frame.setFile(result);
    				aTabbedPane.setTitleAt(aTabbedPane.getSelectedIndex(), frame.getFileName().getName());
@@ -983,6 +1087,58 @@ public class EditorFrame extends JFrame
    		}
    	}
 
+	/*
+	 * Starts saving the graph of pFrame to pFile, in the binary format
+	 * if pFile has its extension and in XML otherwise. The saves run
+	 * one at a time, in order, so that the last one started wins.
+	 * The journal of pFrame moves to pFile.
+	 */
+	private void saveFile(GraphFrame pFrame, File pFile) throws IOException
+	{
+		File journalFile = getJournalFile(pFile);
+		if(pFrame.getJournal() == null || !pFrame.getJournal().getFile().equals(journalFile))
+		{
+			if(pFrame.getJournal() != null)
+			{
+				pFrame.getJournal().discard();
+			}
+			pFrame.setJournal(new EditJournal(journalFile, aJournals));
+		}
+		boolean binary = pFile.getName().toLowerCase().endsWith(aAppResources.getString("files.binary.extension"));
+		SaveWorker save = new SaveWorker(this, aAppResources.getString("app.name"), pFrame, pFile, binary);
+		aPendingSaves.add(save);
+		aSaves.execute(save);
+	}
+
+	/*
+	 * Called by pSave on the EDT once its outcome is reported.
+	 */
+	void saved(SaveWorker pSave)
+	{
+		aPendingSaves.remove(pSave);
+	}
+
+	/*
+	 * Waits for the saves that are not reported yet. Returns false
+	 * if one of them failed: its worker reports the error and marks
+	 * the graph as modified once the EDT is free again.
+	 */
+	private boolean completeSaves()
+	{
+		for(SaveWorker save : new ArrayList<>(aPendingSaves))
+		{
+			try
+			{
+				save.get();
+			}
+			catch(InterruptedException | ExecutionException exception)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
    	 * Edits the file path so that the pToBeRemoved extension, if found, is replaced 
    	 * with pDesired.
@@ -1010,7 +1166,7 @@ public class EditorFrame extends JFrame
    	 */	
    	public void exportImage()
    	{
-   		GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		if(frame == null) 
    		{
    			return;
@@ -1047,7 +1203,7 @@ public class EditorFrame extends JFrame
    	 */
    	private File chooseFileToExportTo()
    	{
-   		GraphFrame frame = (GraphFrame)aTabbedPane.getSelectedComponent();
+   		GraphFrame frame = getSelectedGraphFrame();
    		assert frame != null;
    		File file = null;
 	   	JFileChooser fileChooser = new JFileChooser();
@@ -1071,8 +1227,9 @@ public class EditorFrame extends JFrame
 		fileChooser.setCurrentDirectory(new File("."));
 		if(frame.getFileName() != null)
 		{
-			File f = new File(replaceExtension(frame.getFileName().getAbsolutePath(), 
-					aAppResources.getString("files.extension"), ""));                  
+			String path = replaceExtension(frame.getFileName().getAbsolutePath(), 
+					aAppResources.getString("files.binary.extension"), "");
+			File f = new File(replaceExtension(path, aAppResources.getString("files.extension"), ""));                  
 			fileChooser.setSelectedFile(f);
 		}
 		else    			
@@ -1150,9 +1307,15 @@ public class EditorFrame extends JFrame
    	/**
      * Exits the program if no graphs have been modified
      * or if the user agrees to abandon modified graphs.
+     * Waits for the saves in progress first, and does not
+     * exit if one of them fails.
    	 */
    	public void exit()
    	{
+   		if(!completeSaves())
+   		{
+   			return;
+   		}
    		int modcount = 0;
    		for(int i = 0; i < aTabs.size(); i++)
    		{
@@ -1178,6 +1341,24 @@ public class EditorFrame extends JFrame
    			}
    		}
    		Preferences.userNodeForPackage(UMLEditor.class).put("recent", aRecentFiles.serialize());
+   		for(JInternalFrame tab : aTabs)
+   		{
+   			if(tab instanceof GraphFrame && ((GraphFrame) tab).getJournal() != null)
+   			{
+   				((GraphFrame) tab).getJournal().discard();
+   			}
+   		}
+   		// Pending loads are of no use once the frame is gone
+   		aLoads.shutdownNow();
+   		aSaves.shutdown();
+   		aJournals.shutdown();
+   		try
+   		{
+   			aSaves.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+   			aJournals.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+   		}
+   		catch(InterruptedException exception)
+   		{}
    		System.exit(0);
    	}
 }
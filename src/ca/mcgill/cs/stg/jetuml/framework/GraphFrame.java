@@ -43,6 +43,7 @@ public class GraphFrame extends JInternalFrame
 	private GraphPanel aPanel;
 	private SideBar aSideBar;
 	private File aFile; // The file associated with this graph
+	private EditJournal aJournal; // The journal of the edits to the file, if any
 	
 	/**
      * Constructs a graph frame with an empty tool bar.
@@ -133,4 +134,22 @@ public class GraphFrame extends JInternalFrame
 		aFile = pFile;
 		setTitle(aFile.getName());
 	}
+
+	/**
+	 * @return The journal of the edits to the graph, or null if none is kept.
+	 */
+	EditJournal getJournal()
+	{
+		return aJournal;
+	}
+
+	/**
+	 * Keeps the edits to the graph in pJournal.
+	 * @param pJournal The journal, or null to stop keeping one.
+	 */
+	void setJournal(EditJournal pJournal)
+	{
+		aJournal = pJournal;
+		aPanel.setJournal(pJournal);
+	}
 }	        
@@ -27,19 +27,22 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.HashSet;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
-import java.util.Set;
-import java.util.Stack;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -61,6 +64,7 @@ public class GraphPanel extends JPanel
 	{ DRAG_NONE, DRAG_MOVE, DRAG_RUBBERBAND, DRAG_LASSO }
 	
 	private static final int CONNECT_THRESHOLD = 8;
+	private static final int DRAG_MARGIN = 5; // Covers shadows and grabbers
 	private static final Color GRABBER_COLOR = new Color(77, 115, 153);
 	private static final Color GRABBER_FILL_COLOR = new Color(173, 193, 214);
 	private static final Color GRABBER_FILL_COLOR_TRANSPARENT = new Color(173, 193, 214, 75);
@@ -76,9 +80,32 @@ public class GraphPanel extends JPanel
 	private SelectionList aSelectedElements = new SelectionList();
 	private Point2D aLastMousePoint;
 	private Point2D aMouseDownPoint;   
+	private Rectangle2D aLasso;
 	private DragMode aDragMode;
 	private UndoManager aUndo = new UndoManager();
-	private GraphModificationListener aModListener = new GraphModificationListener(aUndo);
+	private GraphModificationListener aModListener = new GraphModificationListener(aUndo)
+	{
+		// Elements removed from the graph, however it happens, can no longer be selected
+		@Override
+		public void nodeRemoved(Graph pGraph, Node pNode)
+		{
+			super.nodeRemoved(pGraph, pNode);
+			aSelectedElements.remove(pNode);
+		}
+		
+		@Override
+		public void edgeRemoved(Graph pGraph, Edge pEdge)
+		{
+			super.edgeRemoved(pGraph, pEdge);
+			aSelectedElements.remove(pEdge);
+		}
+	};
+	private BufferedImage aDiagramLayer;
+	private Rectangle aDiagramLayerBounds;
+	private AffineTransform aDiagramLayerScale = new AffineTransform(); // From panel to device pixels
+	private int aDiagramLayerModificationCount;
+	private boolean aDiagramLayerNeedsRefresh = true;
+	private Rectangle aDiagramLayerDirtyArea;
 	
 	/**
 	 * Constructs a graph.
@@ -100,7 +127,7 @@ public class GraphPanel extends JPanel
 	 */
 	public void editSelected()
 	{
-		Object edited = aSelectedElements.getLastSelected();
+		final GraphElement edited = aSelectedElements.getLastSelected();
 		if( edited == null )
 		{
 			return;
@@ -115,7 +142,7 @@ public class GraphPanel extends JPanel
 		{
 			public void stateChanged(ChangeEvent pEvent)
 			{
-				aGraph.layout();
+				aGraph.layout(edited);
 				repaint();
 			}
 		});
@@ -131,29 +158,14 @@ public class GraphPanel extends JPanel
 	 */
 	public void removeSelected()
 	{
-		aUndo.startTracking();
-		Stack<Node> nodes = new Stack<Node>();
+		// The selection shrinks as its elements are removed from the graph
+		List<GraphElement> selected = new ArrayList<>();
 		for( GraphElement element : aSelectedElements )
 		{
-			if (element instanceof Node)
-			{
-				for(Edge e : aGraph.getNodeEdges((Node) element))
-				{
-					aGraph.removeEdge(e);
-				}
-				nodes.add((Node) element);
-			}
-			else if(element instanceof Edge)
-			{
-				aGraph.removeEdge((Edge) element);
-			}
-		}
-		while(!nodes.empty())
-		{
-			aGraph.removeNode(nodes.pop());
+			selected.add(element);
 		}
-		aUndo.endTracking();
-		if(aSelectedElements.size() > 0)
+		aGraph.removeAll(selected);
+		if(selected.size() > 0)
 		{
 			setModified(true);
 		}
@@ -214,6 +226,15 @@ public class GraphPanel extends JPanel
 		repaint();
 	}
 
+	/**
+	 * Sets the journal that keeps the edits to the graph.
+	 * @param pJournal The journal, or null to stop keeping one.
+	 */
+	void setJournal(EditJournal pJournal)
+	{
+		aUndo.setJournal(pJournal);
+	}
+
 	/**
 	 * Set the graph in the panel.
 	 * @param pGraph the graph to be displayed and edited
@@ -222,6 +243,7 @@ public class GraphPanel extends JPanel
 	{
 		aGraph = pGraph;
 		aGraph.addModificationListener(aModListener);
+		aDiagramLayerNeedsRefresh = true;
 		setModified(false);
 		revalidate();
 		repaint();
@@ -233,24 +255,12 @@ public class GraphPanel extends JPanel
 	{
 		super.paintComponent(pGraphics);
 		Graphics2D g2 = (Graphics2D) pGraphics;
+		paintDiagramLayer(g2);
 		g2.scale(aZoom, aZoom);
-		Rectangle2D bounds = getBounds();
-		Rectangle2D graphBounds = aGraph.getBounds();
-		if(!aHideGrid) 
-		{
-			Grid.draw(g2, new Rectangle2D.Double(0, 0, Math.max(bounds.getMaxX() / aZoom, graphBounds.getMaxX()), 
-				   Math.max(bounds.getMaxY() / aZoom, graphBounds.getMaxY())));
-		}
-		aGraph.draw(g2, new Grid());
 
-		Set<GraphElement> toBeRemoved = new HashSet<>();
 		for(GraphElement selected : aSelectedElements)
 		{
-			if(!aGraph.contains(selected)) 
-			{
-				toBeRemoved.add(selected);
-			}
-			else if(selected instanceof Node)
+			if(selected instanceof Node)
 			{
 				Rectangle2D grabberBounds = ((Node) selected).getBounds();
 				drawGrabber(g2, grabberBounds.getMinX(), grabberBounds.getMinY());
@@ -266,11 +276,7 @@ public class GraphPanel extends JPanel
 			}
 		}
 
-		for( GraphElement element : toBeRemoved )
-		{
-			aSelectedElements.remove(element);
-		}                 
-      
+
 		if(aDragMode == DragMode.DRAG_RUBBERBAND)
 		{
 			Color oldColor = g2.getColor();
@@ -295,6 +301,163 @@ public class GraphPanel extends JPanel
 		}      
 	}
 
+	/*
+	 * Draws the grid and the graph, which are kept in an image of the
+	 * visible part of the panel so that the selection, the lasso and
+	 * the rubber band can be drawn over them without redrawing the 
+	 * graph. The image is only redrawn when the graph has changed 
+	 * or the view is different. It has the resolution of the screen,
+	 * which on HiDPI screens has more pixels than the panel.
+	 */
+	private void paintDiagramLayer(Graphics2D pGraphics2D)
+	{
+		Rectangle visible = getVisibleRect();
+		if(visible.isEmpty())
+		{
+			return;
+		}
+		GraphicsConfiguration configuration = getGraphicsConfiguration();
+		AffineTransform scale = new AffineTransform();
+		if(configuration != null)
+		{
+			AffineTransform device = configuration.getDefaultTransform();
+			scale.scale(device.getScaleX(), device.getScaleY());
+		}
+		if(!isDiagramLayerCurrent() || !visible.equals(aDiagramLayerBounds) || !scale.equals(aDiagramLayerScale))
+		{
+			int width = (int) Math.ceil(visible.width * scale.getScaleX());
+			int height = (int) Math.ceil(visible.height * scale.getScaleY());
+			if(aDiagramLayer == null || aDiagramLayer.getWidth() != width || aDiagramLayer.getHeight() != height)
+			{
+				if(configuration == null)
+				{
+					aDiagramLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				}
+				else
+				{
+					aDiagramLayer = configuration.createCompatibleImage(width, height);
+				}
+			}
+			aDiagramLayerBounds = visible;
+			aDiagramLayerScale = scale;
+			drawDiagramLayer(pGraphics2D, visible);
+			aDiagramLayerModificationCount = aGraph.getModificationCount();
+			aDiagramLayerNeedsRefresh = false;
+		}
+		else if(aDiagramLayerDirtyArea != null && aDiagramLayerDirtyArea.intersects(visible))
+		{
+			drawDiagramLayer(pGraphics2D, aDiagramLayerDirtyArea.intersection(visible));
+		}
+		aDiagramLayerDirtyArea = null;
+		// One pixel of the image per pixel of the screen
+		AffineTransform toPanel = AffineTransform.getTranslateInstance(visible.x, visible.y);
+		toPanel.scale(1 / aDiagramLayerScale.getScaleX(), 1 / aDiagramLayerScale.getScaleY());
+		pGraphics2D.drawImage(aDiagramLayer, toPanel, null);
+	}
+
+	/*
+	 * True if the diagram layer shows the graph as it is, except 
+	 * maybe for the dirty area.
+	 */
+	private boolean isDiagramLayerCurrent()
+	{
+		return !aDiagramLayerNeedsRefresh && aGraph.getModificationCount() == aDiagramLayerModificationCount;
+	}
+
+	/*
+	 * Redraws pArea, in panel coordinates, of the diagram layer.
+	 */
+	private void drawDiagramLayer(Graphics2D pGraphics2D, Rectangle pArea)
+	{
+		Graphics2D g2 = aDiagramLayer.createGraphics();
+		try
+		{
+			g2.setRenderingHints(pGraphics2D.getRenderingHints());
+			g2.transform(aDiagramLayerScale);
+			g2.translate(-aDiagramLayerBounds.x, -aDiagramLayerBounds.y);
+			g2.clip(pArea);
+			g2.setColor(getBackground());
+			g2.fill(pArea);
+			g2.setColor(pGraphics2D.getColor());
+			g2.setBackground(pGraphics2D.getBackground());
+			g2.setFont(pGraphics2D.getFont());
+			g2.scale(aZoom, aZoom);
+			Rectangle2D bounds = getBounds();
+			Rectangle2D graphBounds = aGraph.getBounds();
+			if(!aHideGrid) 
+			{
+				Grid.draw(g2, new Rectangle2D.Double(0, 0, Math.max(bounds.getMaxX() / aZoom, graphBounds.getMaxX()), 
+					   Math.max(bounds.getMaxY() / aZoom, graphBounds.getMaxY())));
+			}
+			aGraph.draw(g2, new Grid());
+		}
+		finally
+		{
+			g2.dispose();
+		}
+	}
+
+	/*
+	 * Computes the part of the drawing that can change when the
+	 * selected nodes are dragged, or null if it is all of it.
+	 */
+	private Rectangle2D getDraggedBounds()
+	{
+		Rectangle2D result = null;
+		for(GraphElement selected : aSelectedElements)
+		{
+			if(selected instanceof Node)
+			{
+				Rectangle2D affected = aGraph.getBoundsAffectedByMove((Node) selected);
+				if(affected == null)
+				{
+					return null;
+				}
+				if(result == null)
+				{
+					result = affected;
+				}
+				else
+				{
+					result.add(affected);
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Repaints the part of the panel where pBounds, in graph
+	 * coordinates, is drawn, and marks it as dirty in the diagram
+	 * layer if the layer was otherwise current before the graph 
+	 * was changed. Repaints everything if pBounds is null.
+	 */
+	private void repaintDragged(Rectangle2D pBounds, boolean pLayerWasCurrent)
+	{
+		if(pBounds == null)
+		{
+			repaint();
+			return;
+		}
+		Rectangle area = new Rectangle((int) Math.floor((pBounds.getX() - DRAG_MARGIN) * aZoom) - 1, 
+				(int) Math.floor((pBounds.getY() - DRAG_MARGIN) * aZoom) - 1, 
+				(int) Math.ceil((pBounds.getWidth() + 2 * DRAG_MARGIN) * aZoom) + 2, 
+				(int) Math.ceil((pBounds.getHeight() + 2 * DRAG_MARGIN) * aZoom) + 2);
+		if(pLayerWasCurrent)
+		{
+			aDiagramLayerModificationCount = aGraph.getModificationCount();
+			if(aDiagramLayerDirtyArea == null)
+			{
+				aDiagramLayerDirtyArea = area;
+			}
+			else
+			{
+				aDiagramLayerDirtyArea.add(area);
+			}
+		}
+		repaint(area);
+	}
+
 	/**
 	 * Draws a single "grabber", a filled square.
 	 * @param pGraphics2D the graphics context
@@ -336,6 +499,7 @@ public class GraphPanel extends JPanel
       {
     	  aZoom /= factor;
       }
+      aDiagramLayerNeedsRefresh = true;
       revalidate();
       repaint();
 	}
@@ -383,6 +547,7 @@ public class GraphPanel extends JPanel
 	public void setHideGrid(boolean pHideGrid)
 	{
 		aHideGrid = pHideGrid;
+		aDiagramLayerNeedsRefresh = true;
 		repaint();
 	}
 
@@ -404,13 +569,127 @@ public class GraphPanel extends JPanel
 	}
 	
 	/**
+	 * Sets the selected elements. Those that are not in the graph, 
+	 * such as pasted nodes that the graph did not accept, are left out.
 	 * @param pSelectionList the new SelectedElements for the GraphPanel.
 	 */
 	public void setSelectionList(SelectionList pSelectionList)
 	{
+		List<GraphElement> absent = new ArrayList<>();
+		for(GraphElement element : pSelectionList)
+		{
+			if(!aGraph.contains(element))
+			{
+				absent.add(element);
+			}
+		}
+		for(GraphElement element : absent)
+		{
+			pSelectionList.remove(element);
+		}
 		aSelectedElements = pSelectionList;
 	}
 	
+	/*
+	 * Selects the elements that enter the lasso as it moves to pLasso
+	 * and, unless pKeep is true, deselects those that leave it. Only 
+	 * the elements near the area swept between the previous and the 
+	 * new lasso can enter or leave it, so the others are not looked at.
+	 */
+	private void moveLasso(Rectangle2D pLasso, boolean pKeep)
+	{
+		List<Rectangle2D> swept = new ArrayList<>();
+		addDifference(pLasso, aLasso, swept);
+		addDifference(aLasso, pLasso, swept);
+		aLasso = pLasso;
+		if(swept.isEmpty())
+		{
+			return;
+		}
+		Rectangle2D[] areas = swept.toArray(new Rectangle2D[swept.size()]);
+		for(Node node : aGraph.getNodesNear(areas))
+		{
+			if(pLasso.contains(node.getBounds()))
+			{
+				if(!aSelectedElements.contains(node))
+				{
+					aSelectedElements.add(node);
+					// The edges of the node may now have both their ends selected
+					for(Edge edge : aGraph.getNodeEdges(node))
+					{
+						lassoEdge(edge);
+					}
+				}
+			}
+			else if(!pKeep)
+			{
+				aSelectedElements.remove(node);
+			}
+		}
+		for(Edge edge : aGraph.getEdgesNear(areas))
+		{
+			if(pLasso.contains(edge.getBounds()))
+			{
+				lassoEdge(edge);
+			}
+			else if(!pKeep)
+			{
+				aSelectedElements.remove(edge);
+			}
+		}
+	}
+	
+	/*
+	 * Edges are selected by the lasso when they are inside it, but 
+	 * only if both their end points are selected.
+	 */
+	private void lassoEdge(Edge pEdge)
+	{
+		if(!aSelectedElements.contains(pEdge) && aLasso.contains(pEdge.getBounds()) && 
+				aSelectedElements.contains(pEdge.getStart()) && aSelectedElements.contains(pEdge.getEnd()))
+		{
+			aSelectedElements.add(pEdge);
+		}
+	}
+	
+	/*
+	 * Adds to pResult rectangles that cover the part of pArea that is
+	 * outside of pHole. Nothing is inside an empty rectangle, so an 
+	 * empty pArea has no such part and an empty pHole leaves all of pArea.
+	 */
+	private static void addDifference(Rectangle2D pArea, Rectangle2D pHole, List<Rectangle2D> pResult)
+	{
+		if(pArea.isEmpty())
+		{
+			return;
+		}
+		if(pHole.isEmpty() || !pArea.intersects(pHole))
+		{
+			pResult.add(pArea);
+			return;
+		}
+		if(pHole.getMinY() > pArea.getMinY())
+		{
+			pResult.add(new Rectangle2D.Double(pArea.getMinX(), pArea.getMinY(), 
+					pArea.getWidth(), pHole.getMinY() - pArea.getMinY()));
+		}
+		if(pHole.getMaxY() < pArea.getMaxY())
+		{
+			pResult.add(new Rectangle2D.Double(pArea.getMinX(), pHole.getMaxY(), 
+					pArea.getWidth(), pArea.getMaxY() - pHole.getMaxY()));
+		}
+		double top = Math.max(pArea.getMinY(), pHole.getMinY());
+		double bottom = Math.min(pArea.getMaxY(), pHole.getMaxY());
+		if(pHole.getMinX() > pArea.getMinX())
+		{
+			pResult.add(new Rectangle2D.Double(pArea.getMinX(), top, pHole.getMinX() - pArea.getMinX(), bottom - top));
+		}
+		if(pHole.getMaxX() < pArea.getMaxX())
+		{
+			pResult.add(new Rectangle2D.Double(pHole.getMaxX(), top, pArea.getMaxX() - pHole.getMaxX(), bottom - top));
+		}
+	}
+	
 	private class GraphPanelMouseListener extends MouseAdapter
 	{	
 		@Override
@@ -521,6 +800,7 @@ public class GraphPanel extends JPanel
 						aSelectedElements.clearSelection();
 					}
 					aDragMode = DragMode.DRAG_LASSO;
+					aLasso = new Rectangle2D.Double(mousePoint.getX(), mousePoint.getY(), 0, 0);
 				}
 			}
 			else if(tool instanceof Node)
@@ -586,7 +866,10 @@ public class GraphPanel extends JPanel
 			}
 			else if(aDragMode == DragMode.DRAG_MOVE)
 			{
-				aGraph.layout();
+				for(GraphElement selected : aSelectedElements)
+				{
+					aGraph.layout(selected);
+				}
 				setModified(true);
 				aModListener.endTrackingMove(aGraph, aSelectedElements);
 			}
@@ -603,11 +886,12 @@ public class GraphPanel extends JPanel
 		{
 			Point2D mousePoint = new Point2D.Double(pEvent.getX() / aZoom, pEvent.getY() / aZoom);
 			boolean isCtrl = (pEvent.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0; 
-
+
 			if(aDragMode == DragMode.DRAG_MOVE && aSelectedElements.getLastNode()!=null)
 			{               
-				Node lastNode = (Node) aSelectedElements.getLastNode();
-				Rectangle2D bounds = lastNode.getBounds();
+				Node lastNode = (Node) aSelectedElements.getLastNode();
+				double minX = lastNode.getX();
+				double minY = lastNode.getY();
 				double dx = mousePoint.getX() - aLastMousePoint.getX();
 				double dy = mousePoint.getY() - aLastMousePoint.getY();
                    
@@ -619,11 +903,14 @@ public class GraphPanel extends JPanel
 					if(selected instanceof Node)
 					{
 						Node n = (Node) selected;
-						bounds.add(n.getBounds());
+						minX = Math.min(minX, n.getX());
+						minY = Math.min(minY, n.getY());
 					}
 				}
-				dx = Math.max(dx, -bounds.getX());
-				dy = Math.max(dy, -bounds.getY());
+				dx = Math.max(dx, -minX);
+				dy = Math.max(dy, -minY);
+				boolean layerWasCurrent = isDiagramLayerCurrent();
+				Rectangle2D dragged = getDraggedBounds();
             
 				for( GraphElement selected : aSelectedElements )
 				{
@@ -632,12 +919,22 @@ public class GraphPanel extends JPanel
 						Node n = (Node) selected;
 						if (!aSelectedElements.contains(n.getParent())) // parents are responsible for translating their children
 						{
-							n.translate(dx, dy); 
+							aGraph.translate(n, dx, dy); 
 						}	
 					}
 				}
 				// we don't want continuous layout any more because of multiple selection
 				// graph.layout();
+				Rectangle2D moved = getDraggedBounds();
+				if(dragged != null && moved != null)
+				{
+					dragged.add(moved);
+				}
+				else
+				{
+					dragged = null;
+				}
+				repaintDragged(dragged, layerWasCurrent);
 			}
 			else if(aDragMode == DragMode.DRAG_LASSO)
 			{
@@ -646,35 +943,13 @@ public class GraphPanel extends JPanel
 				double x2 = mousePoint.getX();
 				double y2 = mousePoint.getY();
 				Rectangle2D.Double lasso = new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x1 - x2) , Math.abs(y1 - y2));
-				for( Node node : aGraph.getNodes() )
-				{
-					if(!isCtrl && !lasso.contains(node.getBounds())) 
-					{
-						aSelectedElements.remove(node);
-					}
-					else if(lasso.contains(node.getBounds())) 
-					{
-						aSelectedElements.add(node);
-					}
-				}
-				//Edges need to be added too when highlighted, but only if both their endpoints have been highlighted.
-				for (Edge edge: aGraph.getEdges())
-				{
-					if(!isCtrl && !lasso.contains(edge.getBounds()))
-					{
-						aSelectedElements.remove(edge);
-					}
-					else if(lasso.contains(edge.getBounds()))
-					{
-						if(aSelectedElements.contains(edge.getStart()) && aSelectedElements.contains(edge.getEnd()))
-						{
-							aSelectedElements.add(edge);
-						}
-					}
-				}
+				moveLasso(lasso, isCtrl);
 			}
 			aLastMousePoint = mousePoint;
-			repaint();
+			if(aDragMode != DragMode.DRAG_MOVE)
+			{
+				repaint();
+			}
 		}
 	}
 }
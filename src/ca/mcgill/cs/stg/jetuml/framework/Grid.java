@@ -22,11 +22,17 @@
 
 package ca.mcgill.cs.stg.jetuml.framework;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.Stroke;
+import java.awt.TexturePaint;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 
 /**
  * A grid to which points and rectangles can be "snapped". The
@@ -36,28 +42,131 @@ public class Grid
 {
 	private static final Color GRID_COLOR = new Color(220, 220, 220); 
 	private static final double GRID_SIZE = 10.0;
+	private static final double MIN_SPACING = 4; // In pixels, below which the grid is hidden
+	private static final double OPAQUE_SPACING = 8; // In pixels, below which the grid fades out
+	private static final double TOLERANCE = 1e-6; // In pixels, for a position to count as a whole pixel
+	private static final Stroke LINE_STROKE = new BasicStroke(0); // The thinnest line, as in the tile
+	
+	private static double aTileSpacing;
+	private static BufferedImage aTile;
 	
 	/**
-     * Draws this grid inside a rectangle.
+     * Draws this grid inside a rectangle. Only the part of the
+     * rectangle that is inside the clip of the graphics context is 
+     * drawn, and the grid fades out when the zoom factor of the
+     * graphics context packs its lines too densely.
      * @param pGraphics2D the graphics context
      * @param pBounds the bounding rectangle
      */
 	public static void draw(Graphics2D pGraphics2D, Rectangle2D pBounds)
+	{
+		AffineTransform transform = pGraphics2D.getTransform();
+		double spacing = GRID_SIZE * Math.min(Math.abs(transform.getScaleX()), Math.abs(transform.getScaleY()));
+		if(spacing < MIN_SPACING)
+		{
+			return;
+		}
+		Rectangle2D area = pBounds;
+		Rectangle2D clip = pGraphics2D.getClipBounds();
+		if(clip != null)
+		{
+			area = pBounds.createIntersection(clip);
+			if(area.isEmpty())
+			{
+				return;
+			}
+		}
+		if(!isTileAligned(transform, pBounds, spacing))
+		{
+			drawLines(pGraphics2D, pBounds, area, getColor(spacing));
+			return;
+		}
+		Paint oldPaint = pGraphics2D.getPaint();
+		pGraphics2D.setPaint(new TexturePaint(getTile(spacing), 
+				new Rectangle2D.Double(pBounds.getX(), pBounds.getY(), GRID_SIZE, GRID_SIZE)));
+		pGraphics2D.fill(area);
+		pGraphics2D.setPaint(oldPaint);
+	}
+	
+	/*
+	 * True if the tile, copied pixel for pixel, lands its lines exactly
+	 * on the grid: the cells must span a whole number of pixels and start
+	 * on a pixel, without rotation. Otherwise, the tile would be 
+	 * resampled, which drops or doubles lines across the cells.
+	 */
+	private static boolean isTileAligned(AffineTransform pTransform, Rectangle2D pBounds, double pSpacing)
+	{
+		if(pTransform.getShearX() != 0 || pTransform.getShearY() != 0 || 
+				Math.abs(pTransform.getScaleX()) != Math.abs(pTransform.getScaleY()) ||
+				Math.abs(pSpacing - Math.rint(pSpacing)) > TOLERANCE)
+		{
+			return false;
+		}
+		Point2D origin = pTransform.transform(new Point2D.Double(pBounds.getX(), pBounds.getY()), null);
+		return Math.abs(origin.getX() - Math.rint(origin.getX())) <= TOLERANCE && 
+				Math.abs(origin.getY() - Math.rint(origin.getY())) <= TOLERANCE;
+	}
+	
+	/*
+	 * Draws the lines of the grid that cross pArea one by one. 
+	 */
+	private static void drawLines(Graphics2D pGraphics2D, Rectangle2D pBounds, Rectangle2D pArea, Color pColor)
 	{
 		Color oldColor = pGraphics2D.getColor();
-		pGraphics2D.setColor(GRID_COLOR);
 		Stroke oldStroke = pGraphics2D.getStroke();
-		for(double x = pBounds.getX(); x < pBounds.getMaxX(); x += GRID_SIZE)
+		pGraphics2D.setColor(pColor);
+		pGraphics2D.setStroke(LINE_STROKE);
+		Line2D line = new Line2D.Double();
+		double firstX = pBounds.getX() + Math.ceil((pArea.getX() - pBounds.getX()) / GRID_SIZE) * GRID_SIZE;
+		for(double x = firstX; x < pArea.getMaxX(); x += GRID_SIZE)
 		{
-			pGraphics2D.draw(new Line2D.Double(x, pBounds.getY(), x, pBounds.getMaxY()));
+			line.setLine(x, pArea.getY(), x, pArea.getMaxY());
+			pGraphics2D.draw(line);
 		}
-		for(double y = pBounds.getY(); y < pBounds.getMaxY(); y += GRID_SIZE)
+		double firstY = pBounds.getY() + Math.ceil((pArea.getY() - pBounds.getY()) / GRID_SIZE) * GRID_SIZE;
+		for(double y = firstY; y < pArea.getMaxY(); y += GRID_SIZE)
 		{
-			pGraphics2D.draw(new Line2D.Double(pBounds.getX(), y, pBounds.getMaxX(), y));
+			line.setLine(pArea.getX(), y, pArea.getMaxX(), y);
+			pGraphics2D.draw(line);
 		}
 		pGraphics2D.setStroke(oldStroke);
 		pGraphics2D.setColor(oldColor);
 	}
+	
+	/*
+	 * The color of the lines for cells that are pSpacing pixels 
+	 * wide, which fades out as the cells get smaller.
+	 */
+	private static Color getColor(double pSpacing)
+	{
+		double opacity = Math.min(1, (pSpacing - MIN_SPACING) / (OPAQUE_SPACING - MIN_SPACING));
+		return new Color(GRID_COLOR.getRed(), GRID_COLOR.getGreen(), GRID_COLOR.getBlue(), 
+				(int) Math.round(GRID_COLOR.getAlpha() * opacity));
+	}
+	
+	/*
+	 * Returns an image of one cell of the grid, with its lines
+	 * along the top and left sides, drawn for a cell that is 
+	 * pSpacing pixels wide. The last tile is kept because the 
+	 * spacing only changes with the zoom factor.
+	 */
+	private static BufferedImage getTile(double pSpacing)
+	{
+		if(aTile == null || aTileSpacing != pSpacing)
+		{
+			int size = (int) Math.max(1, Math.round(pSpacing));
+			Color color = getColor(pSpacing);
+			BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+			for(int i = 0; i < size; i++)
+			{
+				tile.setRGB(i, 0, color.getRGB());
+				tile.setRGB(0, i, color.getRGB());
+			}
+			aTile = tile;
+			aTileSpacing = pSpacing;
+		}
+		return aTile;
+	}
 
 	/**
      * Snaps a rectangle to the nearest grid points.
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JLabel;
+
+/**
+ * Measures and draws the one-line labels of edges and packages,
+ * which are shown as the HTML text of a label. The parsed text
+ * and size of the most recently used labels are kept, so that
+ * drawing an element and querying its bounds repeatedly does
+ * not parse the HTML every time. The text is always measured
+ * with the font render context of labels, so a label is
+ * identified by its text and font.
+ */
+public final class LabelCache
+{
+	private static final int CAPACITY = 512;
+
+	private static final JLabel LABEL = new JLabel();
+	private static final Font DEFAULT_FONT = LABEL.getFont();
+
+	private static final Map<Key, Entry> ENTRIES = new LinkedHashMap<Key, Entry>(CAPACITY, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> pEldest)
+		{
+			return size() > CAPACITY;
+		}
+	};
+
+	private LabelCache() {}
+
+	/**
+	 * @return The font of labels that are not given one.
+	 */
+	public static Font getDefaultFont()
+	{
+		return DEFAULT_FONT;
+	}
+
+	/**
+	 * @param pText The text of the label, in which HTML markup is allowed.
+	 * @param pFont The font of the label.
+	 * @return The preferred size of the label.
+	 */
+	public static Dimension getSize(String pText, Font pFont)
+	{
+		return new Dimension(getEntry(pText, pFont).aSize);
+	}
+
+	/**
+	 * Draws a label at its preferred size.
+	 * @param pGraphics2D The graphics context.
+	 * @param pText The text of the label, in which HTML markup is allowed.
+	 * @param pFont The font of the label.
+	 * @param pX The x coordinate of the top left corner of the label.
+	 * @param pY The y coordinate of the top left corner of the label.
+	 */
+	public static void draw(Graphics2D pGraphics2D, String pText, Font pFont, double pX, double pY)
+	{
+		Entry entry = getEntry(pText, pFont);
+		Graphics2D g2 = (Graphics2D) pGraphics2D.create();
+		try
+		{
+			g2.translate(pX, pY);
+			if(entry.aText != null)
+			{
+				g2.setFont(pFont);
+				if(g2.getClip() == null)
+				{
+					// A label only clips its text when nothing else does
+					g2.clipRect(0, 0, entry.aSize.width, entry.aSize.height);
+				}
+				entry.aText.draw(g2, 0, 0);
+			}
+			else
+			{
+				synchronized(LabelCache.class)
+				{
+					LABEL.setText(getHtml(pText));
+					LABEL.setFont(pFont);
+					LABEL.setBounds(0, 0, entry.aSize.width, entry.aSize.height);
+					LABEL.paint(g2);
+				}
+			}
+		}
+		finally
+		{
+			g2.dispose();
+		}
+	}
+
+	/*
+	 * Synchronized because graphs are also read, and thus
+	 * measured, on background threads.
+	 */
+	private static synchronized Entry getEntry(String pText, Font pFont)
+	{
+		Key key = new Key(pText, pFont);
+		Entry entry = ENTRIES.get(key);
+		if(entry == null)
+		{
+			String html = getHtml(pText);
+			StyledText text = StyledText.parse(html);
+			Dimension size;
+			if(text != null)
+			{
+				size = text.getSize(pFont);
+			}
+			else
+			{
+				LABEL.setText(html);
+				LABEL.setFont(pFont);
+				size = LABEL.getPreferredSize();
+			}
+			entry = new Entry(text, size);
+			ENTRIES.put(key, entry);
+		}
+		return entry;
+	}
+
+	private static String getHtml(String pText)
+	{
+		return "<html>" + pText + "</html>";
+	}
+
+	/**
+	 * Identifies a label.
+	 */
+	private static final class Key
+	{
+		private final String aText;
+		private final Font aFont;
+
+		Key(String pText, Font pFont)
+		{
+			aText = pText;
+			aFont = pFont;
+		}
+
+		@Override
+		public boolean equals(Object pObject)
+		{
+			if(!(pObject instanceof Key))
+			{
+				return false;
+			}
+			Key key = (Key) pObject;
+			return aText.equals(key.aText) && aFont.equals(key.aFont);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return aText.hashCode() * 31 + aFont.hashCode();
+		}
+	}
+
+	/**
+	 * What is known about a label: its parsed text, or null if
+	 * only a JLabel can draw it, and its size.
+	 */
+	private static final class Entry
+	{
+		private final StyledText aText;
+		private final Dimension aSize;
+
+		Entry(StyledText pText, Dimension pSize)
+		{
+			aText = pText;
+			aSize = pSize;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+/**
+ * How much of a diagram is worth drawing, given how large its text
+ * ends up on the screen. When a diagram is zoomed out, text that
+ * is too small to be read is not drawn, which also saves the cost
+ * of laying out its HTML.
+ */
+public enum LevelOfDetail
+{
+	/**
+	 * Everything is drawn.
+	 */
+	FULL,
+
+	/**
+	 * The nodes are drawn with their name only, and the edges
+	 * without their labels.
+	 */
+	NAMES,
+
+	/**
+	 * The nodes and edges are drawn as plain shapes, without
+	 * text or shadows, and with simplified arrowheads.
+	 */
+	SHAPES;
+
+	private static final double MIN_FULL_TEXT_SIZE = 7; // In pixels
+	private static final double MIN_NAME_TEXT_SIZE = 4; // In pixels
+
+	/**
+	 * @param pGraphics2D The graphics context in which to draw.
+	 * @return The level of detail for the on-screen size of the
+	 * font of pGraphics2D.
+	 */
+	public static LevelOfDetail of(Graphics2D pGraphics2D)
+	{
+		AffineTransform transform = pGraphics2D.getTransform();
+		double scale = Math.min(Math.hypot(transform.getScaleX(), transform.getShearY()),
+				Math.hypot(transform.getShearX(), transform.getScaleY()));
+		double textSize = pGraphics2D.getFont().getSize2D() * scale;
+		if(textSize >= MIN_FULL_TEXT_SIZE)
+		{
+			return FULL;
+		}
+		else if(textSize >= MIN_NAME_TEXT_SIZE)
+		{
+			return NAMES;
+		}
+		else
+		{
+			return SHAPES;
+		}
+	}
+}
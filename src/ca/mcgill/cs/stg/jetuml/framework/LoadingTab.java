@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.GridBagLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JInternalFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+
+/**
+ * The tab of a diagram that is being read. The file is read on a
+ * background thread while the tab shows the progress, along with the
+ * edits that its journal kept, and the editor replaces the tab by a 
+ * GraphFrame once the graph is ready. Closing the tab cancels the reading.
+ */
+@SuppressWarnings("serial")
+public class LoadingTab extends JInternalFrame
+{
+	private static final int PERCENT = 100;
+
+	private final EditorFrame aEditor;
+	private final File aFile;
+	private final File aJournal;
+	private final JProgressBar aProgressBar = new JProgressBar(0, PERCENT);
+	private final Loader aLoader = new Loader();
+	private long aLength; // Of the file when the reading started
+	private long aLastModified;
+	private Graph aRecovered; // With the edits in aJournal, if any
+	private byte[] aRecoveredSnapshot;
+
+	/**
+	 * @param pEditor The editor that shows this tab.
+	 * @param pFile The file to read.
+	 * @param pJournal The journal of pFile, which may not exist.
+	 */
+	public LoadingTab(EditorFrame pEditor, File pFile, File pJournal)
+	{
+		aEditor = pEditor;
+		aFile = pFile;
+		aJournal = pJournal;
+		ResourceBundle resources = ResourceBundle.getBundle("ca.mcgill.cs.stg.jetuml.framework.EditorStrings");
+
+		JPanel panel = new JPanel();
+		panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+		panel.add(new JLabel(MessageFormat.format(resources.getString("file.open.progress"), pFile.getName())));
+		aProgressBar.setStringPainted(true);
+		panel.add(aProgressBar);
+		JButton cancel = new JButton(resources.getString("file.open.cancel"));
+		cancel.addActionListener(new ActionListener()
+		{
+			public void actionPerformed(ActionEvent pEvent)
+			{
+				aEditor.close(LoadingTab.this);
+			}
+		});
+		panel.add(cancel);
+		getContentPane().setLayout(new GridBagLayout());
+		getContentPane().add(panel);
+
+		aLoader.addPropertyChangeListener(new PropertyChangeListener()
+		{
+			public void propertyChange(PropertyChangeEvent pEvent)
+			{
+				if("progress".equals(pEvent.getPropertyName()))
+				{
+					aProgressBar.setValue((Integer) pEvent.getNewValue());
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return The file that this tab reads.
+	 */
+	public File getFile()
+	{
+		return aFile;
+	}
+
+	/**
+	 * @return The length of the file when it was read.
+	 */
+	public long getLength()
+	{
+		return aLength;
+	}
+
+	/**
+	 * @return The modification time of the file when it was read.
+	 */
+	public long getLastModified()
+	{
+		return aLastModified;
+	}
+
+	/**
+	 * @return The graph in the file with the edits that its journal
+	 * kept in a previous session, or null if there are none.
+	 */
+	public Graph getRecovered()
+	{
+		return aRecovered;
+	}
+
+	/**
+	 * @return The copy of getRecovered() taken by PersistenceService.snapshot,
+	 * or null if there are no edits to recover.
+	 */
+	public byte[] getRecoveredSnapshot()
+	{
+		return aRecoveredSnapshot;
+	}
+
+	/**
+	 * Starts reading the file.
+	 * @param pExecutor The executor that runs the reading.
+	 */
+	public void start(Executor pExecutor)
+	{
+		pExecutor.execute(aLoader);
+	}
+
+	/**
+	 * Stops reading the file. The editor is not notified.
+	 */
+	public void cancel()
+	{
+		aLoader.cancel(true);
+	}
+
+	/*
+	 * Reads the graph and replays its journal, then hands 
+	 * the graph to the editor on the Event Dispatch Thread.
+	 */
+	private class Loader extends SwingWorker<Graph, Void>
+	{
+		@Override
+		protected Graph doInBackground() throws IOException
+		{
+			// Before the reading, so that a later change of the file does not go unnoticed
+			aLastModified = aFile.lastModified();
+			aLength = aFile.length();
+			Graph graph = PersistenceService.read(new ProgressStream(new FileInputStream(aFile), aLength));
+			if(aJournal.exists())
+			{
+				try
+				{
+					aRecovered = EditJournal.recover(aJournal, graph, aLength, aLastModified);
+					if(aRecovered != null)
+					{
+						aRecoveredSnapshot = PersistenceService.snapshot(aRecovered);
+					}
+				}
+				catch(IOException exception)
+				{
+					// A journal that cannot be read has nothing to restore
+					aRecovered = null;
+				}
+			}
+			return graph;
+		}
+
+		@Override
+		protected void done()
+		{
+			if(isCancelled())
+			{
+				return;
+			}
+			try
+			{
+				aEditor.opened(LoadingTab.this, get());
+			}
+			catch(InterruptedException | ExecutionException exception)
+			{
+				Throwable cause = exception.getCause() == null ? exception : exception.getCause();
+				aEditor.openFailed(LoadingTab.this, cause);
+			}
+		}
+
+		/*
+		 * Reports the progress of the reading, and ends it once the
+		 * reading is cancelled: the readers do not check for it.
+		 */
+		private class ProgressStream extends FilterInputStream
+		{
+			private final long aLength;
+			private long aRead;
+
+			ProgressStream(InputStream pIn, long pLength)
+			{
+				super(pIn);
+				aLength = pLength;
+			}
+
+			@Override
+			public int read() throws IOException
+			{
+				checkCancelled();
+				int next = in.read();
+				if(next >= 0)
+				{
+					count(1);
+				}
+				return next;
+			}
+
+			@Override
+			public int read(byte[] pBytes, int pOffset, int pLength) throws IOException
+			{
+				checkCancelled();
+				int read = in.read(pBytes, pOffset, pLength);
+				if(read > 0)
+				{
+					count(read);
+				}
+				return read;
+			}
+
+			private void checkCancelled() throws InterruptedIOException
+			{
+				if(isCancelled())
+				{
+					throw new InterruptedIOException("Cancelled: " + aFile);
+				}
+			}
+
+			private void count(int pLength)
+			{
+				aRead += pLength;
+				if(aLength > 0)
+				{
+					setProgress((int) Math.min(PERCENT, aRead * PERCENT / aLength));
+				}
+			}
+		}
+	}
+}
@@ -46,7 +46,8 @@ public class MultiLineString implements Cloneable
 	private int aJustification;
 	private boolean aBold = false;
 	private boolean aUnderlined;
-	private JLabel aLabel = new JLabel();
+	private StyledText aStyledText;
+	private JLabel aLabel;
 	
 	/**
      * Constructs an empty, centered, normal size multiline
@@ -57,6 +58,7 @@ public class MultiLineString implements Cloneable
 		aText = ""; 
 		aJustification = CENTER;
 		aUnderlined = false;    
+		setLabelText();
 	}
 	
 	/**
@@ -135,7 +137,42 @@ public class MultiLineString implements Cloneable
 		return aText.replace('\n', '|');
 	}
 
+	/*
+	 * Parses the text for drawing. The label is only created if the
+	 * text cannot be drawn without it.
+	 */
 	private void setLabelText()
+	{
+		aStyledText = StyledText.parse(getHtmlText());
+		aLabel = null;
+	}
+	
+	/*
+	 * Returns a label that renders the text, for the text that 
+	 * StyledText cannot draw by itself.
+	 */
+	private JLabel getLabel()
+	{
+		if(aLabel == null)
+		{
+			aLabel = new JLabel(getHtmlText());
+			if(aJustification == LEFT)
+			{
+				aLabel.setHorizontalAlignment(JLabel.LEFT);
+			}
+			else if(aJustification == CENTER)
+			{
+				aLabel.setHorizontalAlignment(JLabel.CENTER);
+			}
+			else if(aJustification == RIGHT) 
+			{
+				aLabel.setHorizontalAlignment(JLabel.RIGHT);
+			}
+		}
+		return aLabel;
+	}
+	
+	private String getHtmlText()
 	{
 		StringBuffer prefix = new StringBuffer();
 		StringBuffer suffix = new StringBuffer();
@@ -164,19 +201,7 @@ public class MultiLineString implements Cloneable
 			}
 		}
             
-		aLabel.setText(htmlText.toString());
-		if(aJustification == LEFT)
-		{
-			aLabel.setHorizontalAlignment(JLabel.LEFT);
-		}
-		else if(aJustification == CENTER)
-		{
-			aLabel.setHorizontalAlignment(JLabel.CENTER);
-		}
-		else if(aJustification == RIGHT) 
-		{
-			aLabel.setHorizontalAlignment(JLabel.RIGHT);
-		}
+		return htmlText.toString();
 	}
 	
 	/**
@@ -230,26 +255,84 @@ public class MultiLineString implements Cloneable
 		{
 			return new Rectangle2D.Double();
 		}
-		// setLabelText();
-		Dimension dim = aLabel.getPreferredSize();       
+		Dimension dim;
+		if(aStyledText != null)
+		{
+			dim = aStyledText.getSize(pGraphics2D.getFont());
+		}
+		else
+		{
+			dim = getLabel().getPreferredSize();
+		}
 		return new Rectangle2D.Double(0, 0, dim.getWidth(), dim.getHeight());
 	}
 
 	/**
-     * Draws this multiline string inside a given rectangle.
+     * Draws this multiline string inside a given rectangle, unless
+     * it would be too small to be read.
      * @param pGraphics2D the graphics context
      * @param pRectangle the rectangle into which to place this multiline string
 	 */
 	public void draw(Graphics2D pGraphics2D, Rectangle2D pRectangle)
 	{
-		// setLabelText();
-		aLabel.setFont(pGraphics2D.getFont());
-		aLabel.setBounds(0, 0, (int) pRectangle.getWidth(), (int) pRectangle.getHeight());
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.SHAPES)
+		{
+			return;
+		}
+		int width = (int) pRectangle.getWidth();
+		int height = (int) pRectangle.getHeight();
+		if(aStyledText != null)
+		{
+			Dimension size = aStyledText.getSize(pGraphics2D.getFont());
+			// A label would wrap lines that are too long, so let it draw them
+			if(size.width <= width)
+			{
+				drawStyledText(pGraphics2D, pRectangle, size);
+				return;
+			}
+		}
+		JLabel label = getLabel();
+		label.setFont(pGraphics2D.getFont());
+		label.setBounds(0, 0, width, height);
 		pGraphics2D.translate(pRectangle.getX(), pRectangle.getY());
-		aLabel.paint(pGraphics2D);
+		label.paint(pGraphics2D);
 		pGraphics2D.translate(-pRectangle.getX(), -pRectangle.getY());        
 	}
 	
+	/*
+	 * Draws the styled text where a label with the bounds of 
+	 * pRectangle would.
+	 */
+	private void drawStyledText(Graphics2D pGraphics2D, Rectangle2D pRectangle, Dimension pSize)
+	{
+		int width = (int) pRectangle.getWidth();
+		int height = (int) pRectangle.getHeight();
+		int x = 0;
+		if(aJustification == CENTER)
+		{
+			x = width / 2 - pSize.width / 2;
+		}
+		else if(aJustification == RIGHT)
+		{
+			x = width - pSize.width;
+		}
+		Graphics2D g2 = (Graphics2D) pGraphics2D.create();
+		try
+		{
+			g2.translate(pRectangle.getX(), pRectangle.getY());
+			if(g2.getClip() == null)
+			{
+				// A label only clips its text when nothing else does
+				g2.clipRect(0, 0, width, height);
+			}
+			aStyledText.draw(g2, x, height / 2 - pSize.height / 2);
+		}
+		finally
+		{
+			g2.dispose();
+		}
+	}
+	
 	/**
 	 * Returns true if the two have the same properties.
 	 * Returns false otherwise
@@ -283,7 +366,6 @@ public class MultiLineString implements Cloneable
 		try
 		{
 			MultiLineString cloned = (MultiLineString) super.clone();
-			cloned.aLabel = new JLabel();
 			cloned.setLabelText();
 			return cloned;
 		}
@@ -4,8 +4,10 @@ import java.beans.DefaultPersistenceDelegate;
 import java.beans.Encoder;
 import java.beans.Expression;
 import java.beans.PersistenceDelegate;
-import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -17,7 +19,10 @@ import ca.mcgill.cs.stg.jetuml.graph.Graph;
 
 /**
  * Services for saving and loading Graph objects (i.e., UML diagrams).
- * We use long-term bean persistence to save the graph data. 
+ * We use the XML format of long-term bean persistence to save the graph 
+ * data, read and written by XmlGraphReader and XmlGraphWriter. Graphs that
+ * XmlGraphWriter does not reproduce are saved with XMLEncoder. Graphs
+ * can also be saved in the binary format of BinaryGraphWriter.
  * 
  * @author Martin P. Robillard
  */
@@ -57,7 +62,8 @@ public final class PersistenceService
 	private PersistenceService() {}
 	
 	/**
-	 * Reads a graph file from pIn then close pIn.
+	 * Reads a graph file from pIn then close pIn. The format,
+	 * XML or binary, is recognized from the start of the file.
 	 * @param pIn the input stream to read. Cannot be null.
 	 * @return the graph that is read in
 	 * @throws IOException if the graph cannot be read.
@@ -65,10 +71,14 @@ public final class PersistenceService
 	public static Graph read(InputStream pIn) throws IOException
 	{
 		assert pIn != null;
-		try( XMLDecoder reader = new XMLDecoder(pIn) )
+		try
 		{
-			Graph graph = (Graph) reader.readObject();
-			return graph;
+			InputStream in = pIn.markSupported() ? pIn : new BufferedInputStream(pIn);
+			if(BinaryGraphReader.accepts(in))
+			{
+				return BinaryGraphReader.read(in);
+			}
+			return XmlGraphReader.read(in);
 		}
 		finally
 		{
@@ -81,8 +91,110 @@ public final class PersistenceService
      * 
      * @param pGraph The graph to save
      * @param pOut the stream for saving
+     * @throws IOException if the graph cannot be written.
      */
-	public static void saveFile(Graph pGraph, OutputStream pOut)
+	public static void saveFile(Graph pGraph, OutputStream pOut) throws IOException
+	{
+		if(!XmlGraphWriter.write(pGraph, pOut))
+		{
+			encode(pGraph, pOut);
+		}
+	}
+	
+	/**
+	 * Saves the current graph in the binary format, which is
+	 * smaller and faster to read than XML. Closes pOut.
+	 * 
+	 * @param pGraph The graph to save
+	 * @param pOut the stream for saving
+	 * @throws IOException if the graph cannot be written.
+	 */
+	public static void saveBinaryFile(Graph pGraph, OutputStream pOut) throws IOException
+	{
+		BinaryGraphWriter.write(pGraph, pOut);
+	}
+	
+	/**
+	 * Takes a copy of pGraph that saveSnapshot can write
+	 * on another thread while pGraph keeps changing. The nodes and
+	 * edges removed since the last layout of pGraph are dropped first.
+	 * @param pGraph The graph to copy.
+	 * @return The copy, in the binary format.
+	 * @throws IOException if the graph cannot be copied.
+	 */
+	static byte[] snapshot(Graph pGraph) throws IOException
+	{
+		pGraph.completeRemovals();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryGraphWriter.write(pGraph, out);
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Takes a copy of pGraph to save with saveSnapshot. A graph 
+	 * that the binary format cannot hold, but that can be saved
+	 * in XML, is saved into the copy right away, on the calling 
+	 * thread, as saveFile would.
+	 * @param pGraph The graph to copy.
+	 * @param pBinary True to save in the binary format, false for XML.
+	 * @return The copy, in the binary format or in XML.
+	 * @throws IOException if the graph cannot be copied.
+	 */
+	static byte[] snapshot(Graph pGraph, boolean pBinary) throws IOException
+	{
+		try
+		{
+			return snapshot(pGraph);
+		}
+		catch(IOException exception)
+		{
+			if(pBinary)
+			{
+				throw exception;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			saveFile(pGraph, out);
+			return out.toByteArray();
+		}
+	}
+	
+	/**
+	 * @param pSnapshot A copy taken by snapshot.
+	 * @return True if pSnapshot is in the binary format.
+	 * @throws IOException if pSnapshot cannot be read.
+	 */
+	static boolean isBinary(byte[] pSnapshot) throws IOException
+	{
+		return BinaryGraphReader.accepts(new ByteArrayInputStream(pSnapshot));
+	}
+	
+	/**
+	 * Saves a graph copied by snapshot. Closes pOut. A copy
+	 * in XML is written as it is.
+	 * @param pSnapshot The copy of the graph.
+	 * @param pBinary True to save in the binary format, false for XML.
+	 * @param pOut the stream for saving
+	 * @throws IOException if the graph cannot be written.
+	 */
+	static void saveSnapshot(byte[] pSnapshot, boolean pBinary, OutputStream pOut) throws IOException
+	{
+		if(pBinary || !isBinary(pSnapshot))
+		{
+			try( OutputStream out = pOut )
+			{
+				out.write(pSnapshot);
+			}
+		}
+		else
+		{
+			saveFile(BinaryGraphReader.read(new ByteArrayInputStream(pSnapshot)), pOut);
+		}
+	}
+	
+	/*
+	 * Saves pGraph with XMLEncoder, whose output XmlGraphWriter reproduces.
+	 */
+	static void encode(Graph pGraph, OutputStream pOut)
 	{
 		XMLEncoder encoder = new XMLEncoder(pOut);
 		encoder.setPersistenceDelegate(BentStyle.class, staticFieldDelegate);
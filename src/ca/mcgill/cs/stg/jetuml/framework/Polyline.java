@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Point2D;
+
+/**
+ * An immutable sequence of points joined by line segments, such 
+ * as the corner points of a bent edge. The coordinates are kept 
+ * in a single array rather than in one object per point.
+ */
+public final class Polyline
+{
+	private final double[] aCoordinates;
+
+	/**
+	 * Creates a polyline from the coordinates of its points.
+	 * @param pCoordinates The x and y coordinates of each point, 
+	 * in order: x0, y0, x1, y1, and so on.
+	 */
+	public Polyline(double... pCoordinates)
+	{
+		assert pCoordinates.length % 2 == 0;
+		aCoordinates = pCoordinates;
+	}
+
+	/**
+	 * @return The number of points.
+	 */
+	public int size()
+	{
+		return aCoordinates.length / 2;
+	}
+
+	/**
+	 * @param pIndex The index of a point.
+	 * @return The x coordinate of the point.
+	 */
+	public double getX(int pIndex)
+	{
+		return aCoordinates[2 * pIndex];
+	}
+
+	/**
+	 * @param pIndex The index of a point.
+	 * @return The y coordinate of the point.
+	 */
+	public double getY(int pIndex)
+	{
+		return aCoordinates[2 * pIndex + 1];
+	}
+
+	/**
+	 * @param pIndex The index of a point.
+	 * @return A new point with the coordinates of the point.
+	 */
+	public Point2D getPoint(int pIndex)
+	{
+		return new Point2D.Double(getX(pIndex), getY(pIndex));
+	}
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+/**
+ * Saves a graph without blocking the Event Dispatch Thread.
+ * The constructor takes a snapshot of the graph, and must be
+ * called on the Event Dispatch Thread like any other access to
+ * the graph. The snapshot is then written on a background thread
+ * to a temporary file, which replaces the file of the graph once
+ * it is complete. A failed save thus leaves the previous version
+ * of the file in place. Progress and errors are shown in the title
+ * of the editor. The journal of the graph, if any, starts over
+ * from the snapshot, and is removed once the save completes unless
+ * the graph was edited in the meantime.
+ */
+class SaveWorker extends SwingWorker<Void, Long>
+{
+	private static final int PROGRESS_STEP = 1 << 16; // Bytes written between updates of the title
+	private static final int KILOBYTE = 1024;
+
+	private final EditorFrame aEditor;
+	private final String aTitle;
+	private final GraphFrame aFrame;
+	private final File aFile;
+	private final boolean aBinary;
+	private final byte[] aSnapshot;
+	private final EditJournal aJournal;
+	private final int aJournalVersion;
+	private final ResourceBundle aResources = ResourceBundle.getBundle("ca.mcgill.cs.stg.jetuml.framework.EditorStrings");
+
+	/**
+	 * Takes a snapshot of the graph in pFrame.
+	 * @param pEditor The editor, whose title shows the progress.
+	 * @param pTitle The title of pEditor when no save is in progress.
+	 * @param pFrame The frame of the graph to save.
+	 * @param pFile The file to save to.
+	 * @param pBinary True to save in the binary format, false for XML.
+	 * @throws IOException If the graph cannot be copied.
+	 */
+	SaveWorker(EditorFrame pEditor, String pTitle, GraphFrame pFrame, File pFile, boolean pBinary) throws IOException
+	{
+		aEditor = pEditor;
+		aTitle = pTitle;
+		aFrame = pFrame;
+		aFile = pFile.getAbsoluteFile();
+		aBinary = pBinary;
+		aSnapshot = PersistenceService.snapshot(pFrame.getGraph(), pBinary);
+		if(pFrame.getJournal() != null && PersistenceService.isBinary(aSnapshot))
+		{
+			aJournal = pFrame.getJournal();
+			aJournal.startFrom(pFrame.getGraph(), aSnapshot);
+			aJournalVersion = aJournal.getVersion();
+		}
+		else
+		{
+			if(pFrame.getJournal() != null)
+			{
+				// The journal, like the copy, needs the binary format
+				pFrame.getJournal().discard();
+			}
+			aJournal = null;
+			aJournalVersion = 0;
+		}
+	}
+
+	@Override
+	protected Void doInBackground() throws IOException
+	{
+		publish(0L);
+		File temporary = File.createTempFile(aFile.getName(), ".tmp", aFile.getParentFile());
+		try
+		{
+			try( FileOutputStream file = new FileOutputStream(temporary) )
+			{
+				PersistenceService.saveSnapshot(aSnapshot, aBinary, new BufferedOutputStream(new ProgressStream(file)));
+			}
+			try
+			{
+				Files.move(temporary.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException exception)
+			{
+				Files.move(temporary.toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary.toPath());
+		}
+		return null;
+	}
+
+	@Override
+	protected void process(List<Long> pWritten)
+	{
+		long written = pWritten.get(pWritten.size() - 1);
+		aEditor.setTitle(MessageFormat.format(aResources.getString("file.save.progress"),
+				aTitle, aFile.getName(), written / KILOBYTE));
+	}
+
+	@Override
+	protected void done()
+	{
+		aEditor.saved(this);
+		try
+		{
+			get();
+			aEditor.setTitle(aTitle);
+			if(aJournal != null)
+			{
+				aJournal.saved(aJournalVersion);
+			}
+		}
+		catch(InterruptedException | ExecutionException exception)
+		{
+			aEditor.setTitle(MessageFormat.format(aResources.getString("file.save.error"), aTitle, aFile.getName()));
+			aFrame.getGraphPanel().setModified(true);
+			Throwable cause = exception.getCause() == null ? exception : exception.getCause();
+			JOptionPane.showInternalMessageDialog(aFrame.getJTabbedPane(), cause);
+		}
+	}
+
+	/*
+	 * Counts the bytes written to the file, and makes
+	 * sure that they are on the disk when it is closed.
+	 */
+	private class ProgressStream extends FilterOutputStream
+	{
+		private final FileOutputStream aFileStream;
+		private long aWritten;
+		private boolean aClosed;
+
+		ProgressStream(FileOutputStream pOut)
+		{
+			super(pOut);
+			aFileStream = pOut;
+		}
+
+		@Override
+		public void write(int pByte) throws IOException
+		{
+			out.write(pByte);
+			count(1);
+		}
+
+		@Override
+		public void write(byte[] pBytes, int pOffset, int pLength) throws IOException
+		{
+			out.write(pBytes, pOffset, pLength);
+			count(pLength);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if(!aClosed)
+			{
+				aClosed = true;
+				flush();
+				aFileStream.getFD().sync();
+				super.close();
+			}
+		}
+
+		private void count(int pLength)
+		{
+			if(aWritten / PROGRESS_STEP != (aWritten + pLength) / PROGRESS_STEP)
+			{
+				publish(aWritten + pLength);
+			}
+			aWritten += pLength;
+		}
+	}
+}
@@ -1,7 +1,11 @@
 package ca.mcgill.cs.stg.jetuml.framework;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import ca.mcgill.cs.stg.jetuml.graph.Edge;
 import ca.mcgill.cs.stg.jetuml.graph.GraphElement;
@@ -9,14 +13,19 @@ import ca.mcgill.cs.stg.jetuml.graph.Node;
 
 /**
  * Manages a set of graph element selections. The list does
- * not accept duplicate graph elements.
+ * not accept duplicate graph elements. Elements are kept in
+ * the order in which they were last selected.
  * 
  * @author Martin P. Robillard
  *
  */
 public class SelectionList implements Iterable<GraphElement>
 {
-	private Stack<GraphElement> aSelected = new Stack<>();
+	private final Set<GraphElement> aSelected = new LinkedHashSet<>();
+	// The selected edges that are connected to each node
+	private final Map<Node, Set<Edge>> aSelectedEdges = new HashMap<>();
+	// The last element of aSelected, or null if it needs to be found again
+	private GraphElement aLast;
 	
 	/**
 	 * Adds an element to the selection set and sets
@@ -29,7 +38,14 @@ public class SelectionList implements Iterable<GraphElement>
 	{
 		assert pElement != null;
 		aSelected.remove(pElement);
-		aSelected.push(pElement);
+		aSelected.add(pElement);
+		aLast = pElement;
+		if(pElement instanceof Edge)
+		{
+			Edge edge = (Edge) pElement;
+			addSelectedEdge(edge.getStart(), edge);
+			addSelectedEdge(edge.getEnd(), edge);
+		}
 	}
 	
 	/**
@@ -38,6 +54,8 @@ public class SelectionList implements Iterable<GraphElement>
 	public void clearSelection()
 	{
 		aSelected.clear();
+		aSelectedEdges.clear();
+		aLast = null;
 	}
 	
 	/**
@@ -46,14 +64,14 @@ public class SelectionList implements Iterable<GraphElement>
 	 */
 	public GraphElement getLastSelected()
 	{
-		if( aSelected.size() > 0 )
+		if( aLast == null )
 		{
-			return aSelected.peek();
-		}
-		else
-		{
-			return null;
+			for( GraphElement element : aSelected )
+			{
+				aLast = element;
+			}
 		}
+		return aLast;
 	}
 	
 	/**
@@ -91,26 +109,31 @@ public class SelectionList implements Iterable<GraphElement>
 	 * or does nothing if pElement is not selected.
 	 * @param pElement The element to remove. Cannot be null.
 	 */
-	@SuppressWarnings("unchecked")
 	public void remove(GraphElement pElement)
 	{
 		assert pElement != null;
 		
-		if(pElement instanceof Node) //TODO : Fix when fixing whether edges are visible from nodes
+		if(pElement instanceof Node)
 		{
-			Stack<GraphElement> copy = (Stack<GraphElement>) aSelected.clone();
-			for(GraphElement e : copy)
+			Set<Edge> edges = aSelectedEdges.get(pElement);
+			if(edges != null)
 			{
-				if(e instanceof Edge)
+				for(Edge edge : edges.toArray(new Edge[edges.size()]))
 				{
-					if(((Edge) e).getEnd() == pElement || ((Edge) e).getStart() == pElement)
-					{
-						aSelected.remove(e);
-					}
+					remove(edge);
 				}
 			}
 		}
-		aSelected.remove(pElement);
+		else if(pElement instanceof Edge)
+		{
+			Edge edge = (Edge) pElement;
+			removeSelectedEdge(edge.getStart(), edge);
+			removeSelectedEdge(edge.getEnd(), edge);
+		}
+		if(aSelected.remove(pElement) && pElement == aLast)
+		{
+			aLast = null;
+		}
 	}
 	
 	/**
@@ -121,14 +144,14 @@ public class SelectionList implements Iterable<GraphElement>
 	public void set(GraphElement pElement)
 	{
 		assert pElement != null;
-		aSelected.clear();
-		aSelected.add(pElement);
+		clearSelection();
+		add(pElement);
 	}
 
 	@Override
 	public Iterator<GraphElement> iterator()
 	{
-		return aSelected.iterator();
+		return Collections.unmodifiableSet(aSelected).iterator();
 	}
 	
 	/**
@@ -138,4 +161,32 @@ public class SelectionList implements Iterable<GraphElement>
 	{
 		return aSelected.size();
 	}
+	
+	private void addSelectedEdge(Node pNode, Edge pEdge)
+	{
+		if(pNode == null)
+		{
+			return;
+		}
+		Set<Edge> edges = aSelectedEdges.get(pNode);
+		if(edges == null)
+		{
+			edges = new LinkedHashSet<>();
+			aSelectedEdges.put(pNode, edges);
+		}
+		edges.add(pEdge);
+	}
+	
+	private void removeSelectedEdge(Node pNode, Edge pEdge)
+	{
+		Set<Edge> edges = aSelectedEdges.get(pNode);
+		if(edges != null)
+		{
+			edges.remove(pEdge);
+			if(edges.isEmpty())
+			{
+				aSelectedEdges.remove(pNode);
+			}
+		}
+	}
 }
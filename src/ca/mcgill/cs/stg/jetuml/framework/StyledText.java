@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JLabel;
+
+/**
+ * A piece of text in the small subset of HTML that diagrams use,
+ * parsed once into lines of styled runs. It is measured and drawn
+ * the way a JLabel lays out and paints the same HTML, without
+ * going through the HTML views of Swing.
+ *
+ * The supported markup is the b, i, u and tt elements, the br
+ * element, and the &amp;nbsp; and &amp;lt; entities. Text that
+ * uses any other markup cannot be parsed.
+ */
+public final class StyledText
+{
+	private static final int BOLD = 1;
+	private static final int ITALIC = 2;
+	private static final int UNDERLINED = 4;
+	private static final int MONOSPACED = 8;
+	private static final int STYLES = 16;
+
+	private static final char NBSP = '\u00a0';
+
+	// Gives the font metrics and text color that a JLabel would use
+	private static final JLabel LABEL = new JLabel();
+	private static final Map<Font, Font[]> FONTS = new HashMap<>();
+
+	private final List<List<Run>> aLines;
+	private Font aFont;
+	private Metrics aMetrics;
+
+	private StyledText(List<List<Run>> pLines)
+	{
+		aLines = pLines;
+	}
+
+	/**
+	 * Parses HTML text.
+	 * @param pHtml Text in the form &lt;html&gt;...&lt;/html&gt;.
+	 * @return The parsed text, or null if pHtml uses markup that
+	 * is not supported.
+	 */
+	public static StyledText parse(String pHtml)
+	{
+		final String start = "<html>";
+		final String end = "</html>";
+		if(!pHtml.startsWith(start) || !pHtml.endsWith(end))
+		{
+			return null;
+		}
+		Parser parser = new Parser();
+		if(!parser.parse(pHtml.substring(start.length(), pHtml.length() - end.length())))
+		{
+			return null;
+		}
+		return new StyledText(parser.aLines);
+	}
+
+	/**
+	 * @param pFont The font of the text outside of any element.
+	 * @return The size of the text when it is drawn in pFont.
+	 */
+	public Dimension getSize(Font pFont)
+	{
+		Metrics metrics = getMetrics(pFont);
+		return new Dimension(metrics.aWidth, metrics.aHeight);
+	}
+
+	/**
+	 * Draws the text in the foreground color of labels. Each line
+	 * is drawn from the left side of the text.
+	 * @param pGraphics2D The graphics context.
+	 * @param pX The x coordinate of the left side of the text.
+	 * @param pY The y coordinate of the top of the text.
+	 */
+	public void draw(Graphics2D pGraphics2D, int pX, int pY)
+	{
+		Font oldFont = pGraphics2D.getFont();
+		Color oldColor = pGraphics2D.getColor();
+		pGraphics2D.setColor(LABEL.getForeground());
+		Metrics metrics = getMetrics(oldFont);
+		Font[] fonts = getFonts(oldFont);
+		int y = pY;
+		for(int i = 0; i < aLines.size(); i++)
+		{
+			int baseline = y + metrics.aAscents[i];
+			int x = pX;
+			for(Run run : aLines.get(i))
+			{
+				Font font = fonts[run.aStyle];
+				int width = LABEL.getFontMetrics(font).stringWidth(run.aText);
+				pGraphics2D.setFont(font);
+				pGraphics2D.drawString(run.aText, x, baseline);
+				if((run.aStyle & UNDERLINED) != 0)
+				{
+					pGraphics2D.drawLine(x, baseline + 1, x + width, baseline + 1);
+				}
+				x += width;
+			}
+			y += metrics.aHeights[i];
+		}
+		pGraphics2D.setFont(oldFont);
+		pGraphics2D.setColor(oldColor);
+	}
+
+	/*
+	 * Returns the line metrics for pFont, reusing them if
+	 * they were last computed for the same font.
+	 */
+	private Metrics getMetrics(Font pFont)
+	{
+		if(aMetrics == null || !pFont.equals(aFont))
+		{
+			aMetrics = new Metrics(aLines, getFonts(pFont));
+			aFont = pFont;
+		}
+		return aMetrics;
+	}
+
+	/*
+	 * Returns pFont in every style, indexed by the style flags.
+	 * Synchronized for the graphs that are read on background threads.
+	 */
+	private static synchronized Font[] getFonts(Font pFont)
+	{
+		Font[] fonts = FONTS.get(pFont);
+		if(fonts == null)
+		{
+			fonts = new Font[STYLES];
+			Font monospaced = new Font(Font.MONOSPACED, pFont.getStyle(), pFont.getSize());
+			for(int style = 0; style < STYLES; style++)
+			{
+				Font base = pFont;
+				if((style & MONOSPACED) != 0)
+				{
+					base = monospaced;
+				}
+				int awtStyle = base.getStyle();
+				if((style & BOLD) != 0)
+				{
+					awtStyle |= Font.BOLD;
+				}
+				if((style & ITALIC) != 0)
+				{
+					awtStyle |= Font.ITALIC;
+				}
+				fonts[style] = base.deriveFont(awtStyle);
+			}
+			FONTS.put(pFont, fonts);
+		}
+		return fonts;
+	}
+
+	/**
+	 * A sequence of characters drawn in the same style.
+	 */
+	private static final class Run
+	{
+		private final String aText;
+		private final int aStyle;
+
+		Run(String pText, int pStyle)
+		{
+			aText = pText;
+			aStyle = pStyle;
+		}
+	}
+
+	/**
+	 * The size of each line of the text in one font.
+	 */
+	private static final class Metrics
+	{
+		private final int[] aAscents;
+		private final int[] aHeights;
+		private final int aWidth;
+		private final int aHeight;
+
+		Metrics(List<List<Run>> pLines, Font[] pFonts)
+		{
+			aAscents = new int[pLines.size()];
+			aHeights = new int[pLines.size()];
+			int width = 0;
+			int height = 0;
+			for(int i = 0; i < pLines.size(); i++)
+			{
+				int lineWidth = 0;
+				int above = 0;
+				int below = 0;
+				if(pLines.get(i).isEmpty())
+				{
+					// An empty line is as high as a line of plain text
+					FontMetrics metrics = LABEL.getFontMetrics(pFonts[0]);
+					above = metrics.getHeight() - metrics.getDescent();
+					below = metrics.getDescent();
+				}
+				for(Run run : pLines.get(i))
+				{
+					FontMetrics metrics = LABEL.getFontMetrics(pFonts[run.aStyle]);
+					lineWidth += metrics.stringWidth(run.aText);
+					above = Math.max(above, metrics.getHeight() - metrics.getDescent());
+					below = Math.max(below, metrics.getDescent());
+				}
+				aAscents[i] = above;
+				aHeights[i] = above + below;
+				width = Math.max(width, lineWidth);
+				height += aHeights[i];
+			}
+			aWidth = width;
+			aHeight = height;
+		}
+	}
+
+	/**
+	 * Splits HTML text into lines of runs, collapsing white space
+	 * the way an HTML document does.
+	 */
+	private static final class Parser
+	{
+		private final List<List<Run>> aLines = new ArrayList<>();
+		private final int[] aDepths = new int[STYLES];
+		private List<Run> aLine = new ArrayList<>();
+		private final StringBuilder aText = new StringBuilder();
+		private boolean aAfterSpace;
+
+		boolean parse(String pHtml)
+		{
+			int i = 0;
+			while(i < pHtml.length())
+			{
+				char character = pHtml.charAt(i);
+				if(character == '<')
+				{
+					int close = pHtml.indexOf('>', i);
+					if(close < 0 || !tag(pHtml.substring(i + 1, close)))
+					{
+						return false;
+					}
+					i = close + 1;
+				}
+				else if(character == '&')
+				{
+					int close = pHtml.indexOf(';', i);
+					if(close < 0 || !entity(pHtml.substring(i + 1, close)))
+					{
+						return false;
+					}
+					i = close + 1;
+				}
+				else
+				{
+					if(Character.isWhitespace(character))
+					{
+						if(!aAfterSpace)
+						{
+							aText.append(' ');
+							aAfterSpace = true;
+						}
+					}
+					else
+					{
+						aText.append(character);
+						aAfterSpace = false;
+					}
+					i++;
+				}
+			}
+			endRun();
+			if(!aLine.isEmpty() || aLines.isEmpty())
+			{
+				aLines.add(aLine);
+			}
+			return true;
+		}
+
+		private boolean entity(String pName)
+		{
+			if(pName.equals("nbsp"))
+			{
+				aText.append(NBSP);
+			}
+			else if(pName.equals("lt"))
+			{
+				aText.append('<');
+			}
+			else
+			{
+				return false;
+			}
+			aAfterSpace = false;
+			return true;
+		}
+
+		private boolean tag(String pTag)
+		{
+			if(pTag.equals("br"))
+			{
+				endRun();
+				aLines.add(aLine);
+				aLine = new ArrayList<>();
+				aAfterSpace = true;
+				return true;
+			}
+			boolean closing = pTag.startsWith("/");
+			int style = styleOf(closing ? pTag.substring(1) : pTag);
+			if(style == 0 || closing && aDepths[style] == 0)
+			{
+				return false;
+			}
+			endRun();
+			aDepths[style] += closing ? -1 : 1;
+			return true;
+		}
+
+		private static int styleOf(String pElement)
+		{
+			if(pElement.equals("b"))
+			{
+				return BOLD;
+			}
+			else if(pElement.equals("i"))
+			{
+				return ITALIC;
+			}
+			else if(pElement.equals("u"))
+			{
+				return UNDERLINED;
+			}
+			else if(pElement.equals("tt"))
+			{
+				return MONOSPACED;
+			}
+			else
+			{
+				return 0;
+			}
+		}
+
+		private void endRun()
+		{
+			if(aText.length() == 0)
+			{
+				return;
+			}
+			int style = 0;
+			for(int flag = 1; flag < STYLES; flag <<= 1)
+			{
+				if(aDepths[flag] > 0)
+				{
+					style |= flag;
+				}
+			}
+			aLine.add(new Run(aText.toString(), style));
+			aText.setLength(0);
+		}
+	}
+}
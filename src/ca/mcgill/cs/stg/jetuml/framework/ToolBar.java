@@ -166,8 +166,8 @@ public class ToolBar extends JPanel
             
             public void paintIcon(Component pComponent, Graphics pGraphic, int pX, int pY)
             {
-            	double width = pNode.getBounds().getWidth();
-            	double height = pNode.getBounds().getHeight();
+            	double width = pNode.getWidth();
+            	double height = pNode.getHeight();
                	Graphics2D g2 = (Graphics2D)pGraphic;
                	double scaleX = (BUTTON_SIZE - OFFSET)/ width;
                	double scaleY = (BUTTON_SIZE - OFFSET)/ height;
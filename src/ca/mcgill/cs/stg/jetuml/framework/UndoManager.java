@@ -17,6 +17,7 @@ public class UndoManager
 	private Stack<CompoundCommand> aTrackingCommands; //used for many commands coming at once
 	private boolean aTracking; //turned on to allow many things to be changed in one command
 	private boolean aHoldChanges = false; //turned on while undoing or redoing to prevent duplication
+	private EditJournal aJournal; //keeps the commands performed on the graph, if any
 	
 	/**
 	 * Creates a new UndoManager with the GraphPanel.
@@ -52,6 +53,7 @@ public class UndoManager
 			else
 			{
 				aPastCommands.push(pCommand);
+				journal(pCommand);
 			}
 		}
 	}
@@ -70,6 +72,7 @@ public class UndoManager
 		aHoldChanges = true;
 		Command toUndo = aPastCommands.pop();
 		toUndo.undo();
+		journal(toUndo);
 		aUndoneCommands.push(toUndo);
 		aHoldChanges = false;
 	}
@@ -81,13 +84,14 @@ public class UndoManager
 	 */
 	void redoCommand()
 	{
-		aHoldChanges = true;
 		if (aUndoneCommands.empty())
 		{
 			return;
 		}
+		aHoldChanges = true;
 		Command toRedo = aUndoneCommands.pop();
 		toRedo.execute();
+		journal(toRedo);
 		aPastCommands.push(toRedo);
 		aHoldChanges = false;
 	}
@@ -116,4 +120,22 @@ public class UndoManager
 		}
 	}
 
+	/**
+	 * Sets the journal to which the commands are added once they are 
+	 * performed, undone or redone.
+	 * @param pJournal The journal, or null to stop keeping one.
+	 */
+	void setJournal(EditJournal pJournal)
+	{
+		aJournal = pJournal;
+	}
+
+	private void journal(Command pCommand)
+	{
+		if(aJournal != null)
+		{
+			aJournal.add(pCommand);
+		}
+	}
+
 }
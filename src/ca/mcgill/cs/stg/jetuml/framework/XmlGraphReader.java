@@ -0,0 +1,803 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import ca.mcgill.cs.stg.jetuml.diagrams.ClassDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.ObjectDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.SequenceDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.StateDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.UseCaseDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.graph.AbstractNode;
+import ca.mcgill.cs.stg.jetuml.graph.ActorNode;
+import ca.mcgill.cs.stg.jetuml.graph.CallEdge;
+import ca.mcgill.cs.stg.jetuml.graph.CallNode;
+import ca.mcgill.cs.stg.jetuml.graph.CircularStateNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassRelationshipEdge;
+import ca.mcgill.cs.stg.jetuml.graph.Edge;
+import ca.mcgill.cs.stg.jetuml.graph.FieldNode;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.ImplicitParameterNode;
+import ca.mcgill.cs.stg.jetuml.graph.InterfaceNode;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+import ca.mcgill.cs.stg.jetuml.graph.NoteEdge;
+import ca.mcgill.cs.stg.jetuml.graph.NoteNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectReferenceEdge;
+import ca.mcgill.cs.stg.jetuml.graph.PackageNode;
+import ca.mcgill.cs.stg.jetuml.graph.PointNode;
+import ca.mcgill.cs.stg.jetuml.graph.RectangularNode;
+import ca.mcgill.cs.stg.jetuml.graph.ReturnEdge;
+import ca.mcgill.cs.stg.jetuml.graph.SegmentedLineEdge;
+import ca.mcgill.cs.stg.jetuml.graph.StateNode;
+import ca.mcgill.cs.stg.jetuml.graph.StateTransitionEdge;
+import ca.mcgill.cs.stg.jetuml.graph.UseCaseNode;
+
+/**
+ * Reads a graph written in the XML dialect of java.beans.XMLEncoder,
+ * with a StAX parser and without reflection. The elements are
+ * evaluated in the same order as by XMLDecoder: the value of an element
+ * is computed when a nested statement or a reference to its identifier
+ * needs it, and at the latest when the element ends. Only the classes,
+ * properties and methods that JetUML writes are recognized; anything
+ * else makes the file unreadable rather than being executed.
+ */
+final class XmlGraphReader
+{
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+	private static final Map<String, Object> CONSTANTS = new HashMap<>();
+	private static final Object VOID = new Object();
+
+	static
+	{
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+		for(Map.Entry<Object, String> constant : XmlGraphWriter.CONSTANTS.entrySet())
+		{
+			CONSTANTS.put(constant.getKey().getClass().getName() + "." + constant.getValue(), constant.getKey());
+		}
+	}
+
+	private final Deque<Element> aElements = new ArrayDeque<>();
+	private final Map<String, Object> aVariables = new HashMap<>();
+	private Object aResult;
+
+	private XmlGraphReader() {}
+
+	/**
+	 * Reads a graph from pIn. Does not close pIn.
+	 * @param pIn The stream to read.
+	 * @return The first graph in the stream.
+	 * @throws IOException If the stream does not contain a graph
+	 * in a form that this reader recognizes.
+	 */
+	static Graph read(InputStream pIn) throws IOException
+	{
+		XmlGraphReader reader = new XmlGraphReader();
+		try
+		{
+			XMLStreamReader parser;
+			synchronized(FACTORY)
+			{
+				parser = FACTORY.createXMLStreamReader(pIn);
+			}
+			try
+			{
+				reader.parse(parser);
+			}
+			finally
+			{
+				parser.close();
+			}
+		}
+		catch(XMLStreamException | RuntimeException exception)
+		{
+			throw new IOException(exception);
+		}
+		if(!(reader.aResult instanceof Graph))
+		{
+			throw new IOException("The file does not contain a graph");
+		}
+		return (Graph) reader.aResult;
+	}
+
+	private void parse(XMLStreamReader pParser) throws XMLStreamException, IOException
+	{
+		while(pParser.hasNext())
+		{
+			switch(pParser.next())
+			{
+			case XMLStreamConstants.START_ELEMENT:
+				startElement(pParser);
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				addText(pParser.getText());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				endElement();
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private void startElement(XMLStreamReader pParser) throws IOException
+	{
+		Element element = new Element(pParser.getLocalName());
+		for(int i = 0; i < pParser.getAttributeCount(); i++)
+		{
+			element.setAttribute(pParser.getAttributeLocalName(i), pParser.getAttributeValue(i));
+		}
+		if(element.aTag.equals("char"))
+		{
+			if(element.aCode == null)
+			{
+				throw new IOException("Missing character code");
+			}
+			for(char character : Character.toChars(Integer.decode(element.aCode)))
+			{
+				element.aText.append(character);
+			}
+		}
+		aElements.push(element);
+		if(element.aIdref != null || element.aField != null)
+		{
+			evaluate(element);
+		}
+	}
+
+	private void addText(String pText) throws IOException
+	{
+		Element element = aElements.peek();
+		if(element != null && element.aText != null)
+		{
+			element.aText.append(pText);
+		}
+		else if(!pText.trim().isEmpty())
+		{
+			throw new IOException("Unexpected text: " + pText);
+		}
+	}
+
+	private void endElement() throws IOException
+	{
+		Element element = aElements.peek();
+		Object value = evaluate(element);
+		aElements.pop();
+		if(value == VOID)
+		{
+			return;
+		}
+		if(element.aId != null)
+		{
+			aVariables.put(element.aId, value);
+		}
+		if(!element.isArgument())
+		{
+			return;
+		}
+		Element parent = aElements.peek();
+		if(parent == null)
+		{
+			return;
+		}
+		if(parent.aTag.equals("java"))
+		{
+			if(aResult == null)
+			{
+				aResult = value;
+			}
+		}
+		else if(parent.aTag.equals("string") && !parent.aEvaluated)
+		{
+			parent.aText.append(value);
+		}
+		else if(parent.aArguments != null && !parent.aEvaluated)
+		{
+			parent.aArguments.add(value);
+		}
+		else
+		{
+			throw new IOException("Unexpected argument in " + parent.aTag);
+		}
+	}
+
+	/*
+	 * Computes the value of an element once, with the arguments
+	 * read so far.
+	 */
+	private Object evaluate(Element pElement) throws IOException
+	{
+		if(!pElement.aEvaluated)
+		{
+			pElement.aEvaluated = true;
+			try
+			{
+				pElement.aValue = compute(pElement);
+			}
+			catch(RuntimeException exception)
+			{
+				// Like XMLDecoder, skip a statement that the graph or its arguments reject
+				pElement.aValue = VOID;
+			}
+		}
+		return pElement.aValue;
+	}
+
+	private Object compute(Element pElement) throws IOException
+	{
+		String text = pElement.aText == null ? null : pElement.aText.toString();
+		switch(pElement.aTag)
+		{
+		case "java":
+			return VOID;
+		case "null":
+			return null;
+		case "string":
+			return text;
+		case "char":
+			if(text.length() != 1)
+			{
+				throw new IOException("Wrong characters count");
+			}
+			return text.charAt(0);
+		case "int":
+			return Integer.decode(text);
+		case "double":
+			return Double.valueOf(text);
+		case "boolean":
+			if(!text.equals("true") && !text.equals("false"))
+			{
+				throw new IOException("Not a boolean: " + text);
+			}
+			return Boolean.valueOf(text);
+		case "object":
+		case "void":
+			return computeObject(pElement);
+		default:
+			throw new IOException("Unsupported element: " + pElement.aTag);
+		}
+	}
+
+	private Object computeObject(Element pElement) throws IOException
+	{
+		if(pElement.aIdref != null)
+		{
+			return lookUp(pElement.aIdref);
+		}
+		if(pElement.aField != null)
+		{
+			String key = pElement.aClass + "." + pElement.aField;
+			if(!CONSTANTS.containsKey(key))
+			{
+				throw new IOException("Unsupported constant: " + key);
+			}
+			return CONSTANTS.get(key);
+		}
+		Object[] arguments = pElement.aArguments.toArray();
+		if(pElement.aClass != null)
+		{
+			if(pElement.aMethod == null && pElement.aProperty == null)
+			{
+				return create(pElement.aClass, arguments);
+			}
+			return invokeStatic(pElement.aClass, pElement.aMethod, arguments);
+		}
+		Object target = contextOf(pElement);
+		if(pElement.aProperty != null)
+		{
+			if(arguments.length == 0)
+			{
+				return get(target, pElement.aProperty);
+			}
+			if(arguments.length == 1)
+			{
+				set(target, pElement.aProperty, arguments[0]);
+				return VOID;
+			}
+			throw new IOException("Wrong number of arguments for property " + pElement.aProperty);
+		}
+		if(pElement.aMethod == null)
+		{
+			throw new IOException("Unsupported element without class, method or property");
+		}
+		return invoke(target, pElement.aMethod, arguments);
+	}
+
+	/*
+	 * The object on which a statement without a class operates:
+	 * the value of the enclosing element.
+	 */
+	private Object contextOf(Element pElement) throws IOException
+	{
+		boolean found = false;
+		for(Element element : aElements)
+		{
+			if(found)
+			{
+				Object value = evaluate(element);
+				if(value == VOID)
+				{
+					throw new IOException("The outer element does not return value");
+				}
+				return value;
+			}
+			found = element == pElement;
+		}
+		throw new IOException("The topmost element does not have context");
+	}
+
+	/*
+	 * An identifier refers to an enclosing element, which is evaluated
+	 * if necessary, or to an element that has already ended.
+	 */
+	private Object lookUp(String pId) throws IOException
+	{
+		for(Element element : aElements)
+		{
+			if(pId.equals(element.aId))
+			{
+				Object value = evaluate(element);
+				if(value == VOID)
+				{
+					throw new IOException("The element does not return value");
+				}
+				return value;
+			}
+		}
+		if(!aVariables.containsKey(pId))
+		{
+			throw new IOException("Unbound variable: " + pId);
+		}
+		return aVariables.get(pId);
+	}
+
+	static Object create(String pClass, Object[] pArguments) throws IOException
+	{
+		if(pArguments.length > 0)
+		{
+			throw new IOException("Unsupported constructor arguments for " + pClass);
+		}
+		switch(pClass)
+		{
+		case "ca.mcgill.cs.stg.jetuml.diagrams.ClassDiagramGraph": return new ClassDiagramGraph();
+		case "ca.mcgill.cs.stg.jetuml.diagrams.ObjectDiagramGraph": return new ObjectDiagramGraph();
+		case "ca.mcgill.cs.stg.jetuml.diagrams.SequenceDiagramGraph": return new SequenceDiagramGraph();
+		case "ca.mcgill.cs.stg.jetuml.diagrams.StateDiagramGraph": return new StateDiagramGraph();
+		case "ca.mcgill.cs.stg.jetuml.diagrams.UseCaseDiagramGraph": return new UseCaseDiagramGraph();
+		case "ca.mcgill.cs.stg.jetuml.graph.ActorNode": return new ActorNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.CallNode": return new CallNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.CircularStateNode": return new CircularStateNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.ClassNode": return new ClassNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.FieldNode": return new FieldNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.ImplicitParameterNode": return new ImplicitParameterNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.InterfaceNode": return new InterfaceNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.NoteNode": return new NoteNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.ObjectNode": return new ObjectNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.PackageNode": return new PackageNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.PointNode": return new PointNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.StateNode": return new StateNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.UseCaseNode": return new UseCaseNode();
+		case "ca.mcgill.cs.stg.jetuml.graph.CallEdge": return new CallEdge();
+		case "ca.mcgill.cs.stg.jetuml.graph.ClassRelationshipEdge": return new ClassRelationshipEdge();
+		case "ca.mcgill.cs.stg.jetuml.graph.NoteEdge": return new NoteEdge();
+		case "ca.mcgill.cs.stg.jetuml.graph.ObjectReferenceEdge": return new ObjectReferenceEdge();
+		case "ca.mcgill.cs.stg.jetuml.graph.ReturnEdge": return new ReturnEdge();
+		case "ca.mcgill.cs.stg.jetuml.graph.StateTransitionEdge": return new StateTransitionEdge();
+		case "ca.mcgill.cs.stg.jetuml.framework.MultiLineString": return new MultiLineString();
+		case "java.awt.geom.Point2D$Double": return new Point2D.Double();
+		case "java.awt.geom.Rectangle2D$Double": return new Rectangle2D.Double();
+		default: throw new IOException("Unsupported class: " + pClass);
+		}
+	}
+
+	/*
+	 * XMLEncoder sets the public fields of points and rectangles
+	 * with Class.getField(name) followed by Field.set(object, value).
+	 */
+	private static Object invokeStatic(String pClass, String pMethod, Object[] pArguments) throws IOException
+	{
+		if(!"getField".equals(pMethod) || pArguments.length != 1 || !(pArguments[0] instanceof String))
+		{
+			throw new IOException("Unsupported static method: " + pClass + "." + pMethod);
+		}
+		if(!pClass.equals("java.awt.geom.Point2D$Double") && !pClass.equals("java.awt.geom.Rectangle2D$Double"))
+		{
+			throw new IOException("Unsupported class: " + pClass);
+		}
+		return new FieldReference((String) pArguments[0]);
+	}
+
+	private static Object invoke(Object pTarget, String pMethod, Object[] pArguments) throws IOException
+	{
+		if(pTarget instanceof FieldReference && pMethod.equals("set"))
+		{
+			checkCount(pArguments, 2);
+			((FieldReference) pTarget).set(pArguments[0], pArguments[1]);
+			return VOID;
+		}
+		if(pTarget instanceof Point2D && pMethod.equals("setLocation"))
+		{
+			checkCount(pArguments, 2);
+			((Point2D) pTarget).setLocation((Double) pArguments[0], (Double) pArguments[1]);
+			return VOID;
+		}
+		if(pTarget instanceof Graph && pMethod.equals("addNode"))
+		{
+			checkCount(pArguments, 2);
+			((Graph) pTarget).addNode((Node) pArguments[0], (Point2D) pArguments[1]);
+			return VOID;
+		}
+		if(pTarget instanceof Graph && pMethod.equals("connect"))
+		{
+			checkCount(pArguments, 3);
+			if(pArguments[1] instanceof Point2D)
+			{
+				return ((Graph) pTarget).connect((Edge) pArguments[0], (Point2D) pArguments[1], (Point2D) pArguments[2]);
+			}
+			((Graph) pTarget).connect((Edge) pArguments[0], (Node) pArguments[1], (Node) pArguments[2]);
+			return VOID;
+		}
+		if(pTarget instanceof AbstractNode && pMethod.equals("addChild"))
+		{
+			if(pArguments.length == 2)
+			{
+				((AbstractNode) pTarget).addChild((Integer) pArguments[0], (Node) pArguments[1]);
+				return VOID;
+			}
+			checkCount(pArguments, 1);
+			((AbstractNode) pTarget).addChild((Node) pArguments[0]);
+			return VOID;
+		}
+		if(pArguments.length == 0)
+		{
+			// XMLEncoder writes the getters of boolean properties as methods
+			for(String prefix : new String[] {"is", "get"})
+			{
+				if(pMethod.startsWith(prefix) && pMethod.length() > prefix.length())
+				{
+					String property = pMethod.substring(prefix.length());
+					return get(pTarget, Character.toLowerCase(property.charAt(0)) + property.substring(1));
+				}
+			}
+		}
+		throw new IOException("Unsupported method: " + pMethod);
+	}
+
+	/*
+	 * A known method called with the wrong arguments is skipped, 
+	 * as are arguments of the wrong type.
+	 */
+	private static void checkCount(Object[] pArguments, int pCount)
+	{
+		if(pArguments.length != pCount)
+		{
+			throw new IllegalArgumentException("Expected " + pCount + " arguments");
+		}
+	}
+
+	private static Object get(Object pTarget, String pProperty) throws IOException
+	{
+		if(pTarget instanceof MultiLineString)
+		{
+			MultiLineString text = (MultiLineString) pTarget;
+			switch(pProperty)
+			{
+			case "text": return text.getText();
+			case "justification": return text.getJustification();
+			case "underlined": return text.isUnderlined();
+			default: break;
+			}
+		}
+		else if(pTarget instanceof Graph && pProperty.equals("minBounds"))
+		{
+			return ((Graph) pTarget).getMinBounds();
+		}
+		else if(pTarget instanceof Node)
+		{
+			switch(pProperty)
+			{
+			case "parent": return ((Node) pTarget).getParent();
+			case "bounds": return ((Node) pTarget).getBounds();
+			case "implicitParameter": return ((CallNode) pTarget).getImplicitParameter();
+			case "openBottom": return ((CallNode) pTarget).isOpenBottom();
+			case "final": return ((CircularStateNode) pTarget).isFinal();
+			case "boxedValue": return ((FieldNode) pTarget).isBoxedValue();
+			default: return getText((Node) pTarget, pProperty);
+			}
+		}
+		else if(pTarget instanceof SegmentedLineEdge)
+		{
+			SegmentedLineEdge edge = (SegmentedLineEdge) pTarget;
+			switch(pProperty)
+			{
+			case "startArrowHead": return edge.getStartArrowHead();
+			case "endArrowHead": return edge.getEndArrowHead();
+			case "lineStyle": return edge.getLineStyle();
+			case "bentStyle": return ((ClassRelationshipEdge) edge).getBentStyle();
+			case "signal": return ((CallEdge) edge).isSignal();
+			default: break;
+			}
+		}
+		throw new IOException("Unsupported property: " + pProperty);
+	}
+
+	private static MultiLineString getText(Node pNode, String pProperty) throws IOException
+	{
+		switch(pProperty)
+		{
+		case "name":
+			if(pNode instanceof ActorNode) { return ((ActorNode) pNode).getName(); }
+			if(pNode instanceof ClassNode) { return ((ClassNode) pNode).getName(); }
+			if(pNode instanceof FieldNode) { return ((FieldNode) pNode).getName(); }
+			if(pNode instanceof ImplicitParameterNode) { return ((ImplicitParameterNode) pNode).getName(); }
+			if(pNode instanceof InterfaceNode) { return ((InterfaceNode) pNode).getName(); }
+			if(pNode instanceof ObjectNode) { return ((ObjectNode) pNode).getName(); }
+			if(pNode instanceof StateNode) { return ((StateNode) pNode).getName(); }
+			if(pNode instanceof UseCaseNode) { return ((UseCaseNode) pNode).getName(); }
+			break;
+		case "attributes": return ((ClassNode) pNode).getAttributes();
+		case "methods":
+			if(pNode instanceof ClassNode) { return ((ClassNode) pNode).getMethods(); }
+			return ((InterfaceNode) pNode).getMethods();
+		case "value": return ((FieldNode) pNode).getValue();
+		case "text": return ((NoteNode) pNode).getText();
+		case "contents": return ((PackageNode) pNode).getContents();
+		default: break;
+		}
+		throw new IOException("Unsupported property: " + pProperty);
+	}
+
+	private static void set(Object pTarget, String pProperty, Object pValue) throws IOException
+	{
+		if(pTarget instanceof MultiLineString)
+		{
+			MultiLineString text = (MultiLineString) pTarget;
+			switch(pProperty)
+			{
+			case "text": text.setText((String) pValue); return;
+			case "justification": text.setJustification((Integer) pValue); return;
+			case "underlined": text.setUnderlined((Boolean) pValue); return;
+			default: break;
+			}
+		}
+		else if(pTarget instanceof Graph && pProperty.equals("minBounds"))
+		{
+			((Graph) pTarget).setMinBounds((Rectangle2D) pValue);
+			return;
+		}
+		else if(pTarget instanceof Node)
+		{
+			setNodeProperty((Node) pTarget, pProperty, pValue);
+			return;
+		}
+		else if(pTarget instanceof Edge)
+		{
+			setEdgeProperty((Edge) pTarget, pProperty, pValue);
+			return;
+		}
+		throw new IOException("Unsupported property: " + pProperty);
+	}
+
+	private static void setNodeProperty(Node pNode, String pProperty, Object pValue) throws IOException
+	{
+		switch(pProperty)
+		{
+		case "parent": pNode.setParent((Node) pValue); return;
+		case "bounds": ((RectangularNode) pNode).setBounds((Rectangle2D) pValue); return;
+		case "implicitParameter": ((CallNode) pNode).setImplicitParameter((ImplicitParameterNode) pValue); return;
+		case "openBottom": ((CallNode) pNode).setOpenBottom((Boolean) pValue); return;
+		case "final": ((CircularStateNode) pNode).setFinal((Boolean) pValue); return;
+		case "boxedValue": ((FieldNode) pNode).setBoxedValue((Boolean) pValue); return;
+		case "attributes": ((ClassNode) pNode).setAttributes((MultiLineString) pValue); return;
+		case "value": ((FieldNode) pNode).setValue((MultiLineString) pValue); return;
+		case "text": ((NoteNode) pNode).setText((MultiLineString) pValue); return;
+		case "contents": ((PackageNode) pNode).setContents((MultiLineString) pValue); return;
+		case "methods":
+			if(pNode instanceof ClassNode)
+			{
+				((ClassNode) pNode).setMethods((MultiLineString) pValue);
+			}
+			else
+			{
+				((InterfaceNode) pNode).setMethods((MultiLineString) pValue);
+			}
+			return;
+		case "name":
+			setName(pNode, pValue);
+			return;
+		default:
+			throw new IOException("Unsupported property: " + pProperty);
+		}
+	}
+
+	private static void setName(Node pNode, Object pValue) throws IOException
+	{
+		if(pNode instanceof PackageNode) { ((PackageNode) pNode).setName((String) pValue); }
+		else if(pNode instanceof ActorNode) { ((ActorNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof ClassNode) { ((ClassNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof FieldNode) { ((FieldNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof ImplicitParameterNode) { ((ImplicitParameterNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof InterfaceNode) { ((InterfaceNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof ObjectNode) { ((ObjectNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof StateNode) { ((StateNode) pNode).setName((MultiLineString) pValue); }
+		else if(pNode instanceof UseCaseNode) { ((UseCaseNode) pNode).setName((MultiLineString) pValue); }
+		else
+		{
+			throw new IOException("Unsupported property: name");
+		}
+	}
+
+	private static void setEdgeProperty(Edge pEdge, String pProperty, Object pValue) throws IOException
+	{
+		if(pEdge instanceof StateTransitionEdge && pProperty.equals("label"))
+		{
+			((StateTransitionEdge) pEdge).setLabel((String) pValue);
+			return;
+		}
+		if(pEdge instanceof CallEdge && pProperty.equals("signal"))
+		{
+			((CallEdge) pEdge).setSignal((Boolean) pValue);
+			return;
+		}
+		if(pEdge instanceof SegmentedLineEdge)
+		{
+			SegmentedLineEdge edge = (SegmentedLineEdge) pEdge;
+			switch(pProperty)
+			{
+			case "startLabel": edge.setStartLabel((String) pValue); return;
+			case "middleLabel": edge.setMiddleLabel((String) pValue); return;
+			case "endLabel": edge.setEndLabel((String) pValue); return;
+			case "startArrowHead": edge.setStartArrowHead((ArrowHead) pValue); return;
+			case "endArrowHead": edge.setEndArrowHead((ArrowHead) pValue); return;
+			case "lineStyle": edge.setLineStyle((LineStyle) pValue); return;
+			case "bentStyle": ((ClassRelationshipEdge) edge).setBentStyle((BentStyle) pValue); return;
+			default: break;
+			}
+		}
+		throw new IOException("Unsupported property: " + pProperty);
+	}
+
+	/*
+	 * A public field of Point2D.Double or Rectangle2D.Double.
+	 */
+	private static final class FieldReference
+	{
+		private final String aName;
+
+		FieldReference(String pName)
+		{
+			aName = pName;
+		}
+
+		void set(Object pTarget, Object pValue) throws IOException
+		{
+			double value = (Double) pValue;
+			if(pTarget instanceof Point2D.Double)
+			{
+				Point2D.Double point = (Point2D.Double) pTarget;
+				switch(aName)
+				{
+				case "x": point.x = value; return;
+				case "y": point.y = value; return;
+				default: break;
+				}
+			}
+			else if(pTarget instanceof Rectangle2D.Double)
+			{
+				Rectangle2D.Double rectangle = (Rectangle2D.Double) pTarget;
+				switch(aName)
+				{
+				case "x": rectangle.x = value; return;
+				case "y": rectangle.y = value; return;
+				case "width": rectangle.width = value; return;
+				case "height": rectangle.height = value; return;
+				default: break;
+				}
+			}
+			throw new IOException("Unsupported field: " + aName);
+		}
+	}
+
+	/*
+	 * An element being read, with the attributes that XMLDecoder
+	 * recognizes for it.
+	 */
+	private static final class Element
+	{
+		private final String aTag;
+		private String aId;
+		private String aIdref;
+		private String aClass;
+		private String aField;
+		private String aProperty;
+		private String aMethod;
+		private String aCode;
+		private List<Object> aArguments;
+		private StringBuilder aText;
+		private boolean aEvaluated;
+		private Object aValue;
+
+		Element(String pTag)
+		{
+			aTag = pTag;
+			if(pTag.equals("object") || pTag.equals("void"))
+			{
+				aArguments = new ArrayList<>();
+			}
+			else if(!pTag.equals("java") && !pTag.equals("null"))
+			{
+				aText = new StringBuilder();
+			}
+		}
+
+		void setAttribute(String pName, String pValue) throws IOException
+		{
+			switch(pName)
+			{
+			case "id": aId = pValue; break;
+			case "idref": aIdref = pValue; break;
+			case "class": aClass = pValue; break;
+			case "field": aField = pValue; break;
+			case "property": aProperty = pValue; break;
+			case "method": aMethod = pValue; break;
+			case "code": aCode = pValue; break;
+			case "version": break;
+			default: throw new IOException("Unsupported attribute: " + pName);
+			}
+		}
+
+		/*
+		 * Statements are not arguments, and neither are other
+		 * elements that are only given an identifier.
+		 */
+		boolean isArgument()
+		{
+			if(aTag.equals("object"))
+			{
+				return true;
+			}
+			return !aTag.equals("void") && aId == null;
+		}
+	}
+}
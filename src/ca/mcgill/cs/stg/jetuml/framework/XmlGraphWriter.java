@@ -0,0 +1,783 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.mcgill.cs.stg.jetuml.diagrams.ClassDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.ObjectDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.SequenceDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.StateDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.diagrams.UseCaseDiagramGraph;
+import ca.mcgill.cs.stg.jetuml.graph.AbstractNode;
+import ca.mcgill.cs.stg.jetuml.graph.ActorNode;
+import ca.mcgill.cs.stg.jetuml.graph.CallEdge;
+import ca.mcgill.cs.stg.jetuml.graph.CallNode;
+import ca.mcgill.cs.stg.jetuml.graph.CircularStateNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassNode;
+import ca.mcgill.cs.stg.jetuml.graph.ClassRelationshipEdge;
+import ca.mcgill.cs.stg.jetuml.graph.Edge;
+import ca.mcgill.cs.stg.jetuml.graph.FieldNode;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.ImplicitParameterNode;
+import ca.mcgill.cs.stg.jetuml.graph.InterfaceNode;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+import ca.mcgill.cs.stg.jetuml.graph.NoteEdge;
+import ca.mcgill.cs.stg.jetuml.graph.NoteNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectNode;
+import ca.mcgill.cs.stg.jetuml.graph.ObjectReferenceEdge;
+import ca.mcgill.cs.stg.jetuml.graph.PackageNode;
+import ca.mcgill.cs.stg.jetuml.graph.PointNode;
+import ca.mcgill.cs.stg.jetuml.graph.ReturnEdge;
+import ca.mcgill.cs.stg.jetuml.graph.SegmentedLineEdge;
+import ca.mcgill.cs.stg.jetuml.graph.StateNode;
+import ca.mcgill.cs.stg.jetuml.graph.StateTransitionEdge;
+import ca.mcgill.cs.stg.jetuml.graph.UseCaseNode;
+
+/**
+ * Writes a graph in the XML dialect of java.beans.XMLEncoder, one
+ * line at a time, without introspection. The output is the same as
+ * that of the encoder configured in PersistenceService: a property is
+ * written when it differs from its value in a newly constructed object,
+ * and an object gets an identifier when it is referred to more than once.
+ *
+ * The graph is traversed twice: once to count the references to each
+ * node and edge, and once to write. Graphs that this class cannot
+ * reproduce exactly (e.g., a graph with minimum bounds, or a text
+ * shared by two nodes) are reported as unsupported so that the caller
+ * can use XMLEncoder.
+ * 
+ * The output is that of XMLEncoder when the getters it calls box
+ * primitive values into new objects, which is the case in a new virtual
+ * machine. After many calls, reflection starts to return the cached
+ * Boolean and Integer objects, and XMLEncoder then writes references
+ * between unrelated properties that happen to have the same value.
+ * Both forms decode to the same graph.
+ */
+final class XmlGraphWriter
+{
+	private static final String RECTANGLE = "java.awt.geom.Rectangle2D$Double";
+	private static final String POINT = "java.awt.geom.Point2D$Double";
+	private static final String NEWLINE = "\n";
+
+	private static final Map<Class<?>, Object> PROTOTYPES = new HashMap<>();
+	static final Map<Object, String> CONSTANTS = new IdentityHashMap<>();
+
+	static
+	{
+		PROTOTYPES.put(ClassDiagramGraph.class, new ClassDiagramGraph());
+		PROTOTYPES.put(ObjectDiagramGraph.class, new ObjectDiagramGraph());
+		PROTOTYPES.put(SequenceDiagramGraph.class, new SequenceDiagramGraph());
+		PROTOTYPES.put(StateDiagramGraph.class, new StateDiagramGraph());
+		PROTOTYPES.put(UseCaseDiagramGraph.class, new UseCaseDiagramGraph());
+		PROTOTYPES.put(ActorNode.class, new ActorNode());
+		PROTOTYPES.put(CallNode.class, new CallNode());
+		PROTOTYPES.put(CircularStateNode.class, new CircularStateNode());
+		PROTOTYPES.put(ClassNode.class, new ClassNode());
+		PROTOTYPES.put(FieldNode.class, new FieldNode());
+		PROTOTYPES.put(ImplicitParameterNode.class, new ImplicitParameterNode());
+		PROTOTYPES.put(InterfaceNode.class, new InterfaceNode());
+		PROTOTYPES.put(NoteNode.class, new NoteNode());
+		PROTOTYPES.put(ObjectNode.class, new ObjectNode());
+		PROTOTYPES.put(PackageNode.class, new PackageNode());
+		PROTOTYPES.put(PointNode.class, new PointNode());
+		PROTOTYPES.put(StateNode.class, new StateNode());
+		PROTOTYPES.put(UseCaseNode.class, new UseCaseNode());
+		PROTOTYPES.put(CallEdge.class, new CallEdge());
+		PROTOTYPES.put(ClassRelationshipEdge.class, new ClassRelationshipEdge());
+		PROTOTYPES.put(NoteEdge.class, new NoteEdge());
+		PROTOTYPES.put(ObjectReferenceEdge.class, new ObjectReferenceEdge());
+		PROTOTYPES.put(ReturnEdge.class, new ReturnEdge());
+		PROTOTYPES.put(StateTransitionEdge.class, new StateTransitionEdge());
+
+		CONSTANTS.put(ArrowHead.NONE, "NONE");
+		CONSTANTS.put(ArrowHead.TRIANGLE, "TRIANGLE");
+		CONSTANTS.put(ArrowHead.BLACK_TRIANGLE, "BLACK_TRIANGLE");
+		CONSTANTS.put(ArrowHead.V, "V");
+		CONSTANTS.put(ArrowHead.HALF_V, "HALF_V");
+		CONSTANTS.put(ArrowHead.DIAMOND, "DIAMOND");
+		CONSTANTS.put(ArrowHead.BLACK_DIAMOND, "BLACK_DIAMOND");
+		CONSTANTS.put(BentStyle.STRAIGHT, "STRAIGHT");
+		CONSTANTS.put(BentStyle.HV, "HV");
+		CONSTANTS.put(BentStyle.VH, "VH");
+		CONSTANTS.put(BentStyle.HVH, "HVH");
+		CONSTANTS.put(BentStyle.VHV, "VHV");
+		CONSTANTS.put(LineStyle.SOLID, "SOLID");
+		CONSTANTS.put(LineStyle.DOTTED, "DOTTED");
+	}
+
+	private Writer aOut;
+	private boolean aCounting = true;
+	private boolean aSupported = true;
+	private int aIndentation;
+	private String aPending;
+	private final Map<Object, Integer> aReferences = new IdentityHashMap<>();
+	private final Map<Object, Boolean> aStarted = new IdentityHashMap<>();
+	private final Map<Object, String> aNames = new IdentityHashMap<>();
+	private final Map<Object, Boolean> aTexts = new IdentityHashMap<>();
+	private final Map<String, Integer> aInstanceCounts = new HashMap<>();
+	private final Map<Object, ConstantBinding> aBindings = new IdentityHashMap<>();
+	private final Map<Edge, List<Object>> aLateGetters = new IdentityHashMap<>();
+
+	private XmlGraphWriter() {}
+
+	/**
+	 * Writes pGraph to pOut and closes pOut, unless the graph uses
+	 * a construct that this writer does not reproduce. In that case
+	 * nothing is written.
+	 * @param pGraph The graph to write.
+	 * @param pOut The stream to write to.
+	 * @return True if the graph was written.
+	 * @throws IOException If the graph cannot be written.
+	 */
+	static boolean write(Graph pGraph, OutputStream pOut) throws IOException
+	{
+		XmlGraphWriter writer = new XmlGraphWriter();
+		writer.writeGraph(pGraph);
+		if(!writer.aSupported)
+		{
+			return false;
+		}
+		writer.aCounting = false;
+		writer.aStarted.clear();
+		writer.aTexts.clear();
+		writer.aBindings.clear();
+		try( Writer out = new BufferedWriter(new OutputStreamWriter(pOut, "UTF-8")) )
+		{
+			writer.aOut = out;
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + NEWLINE);
+			writer.open("java version=\"" + System.getProperty("java.version") + "\" class=\"java.beans.XMLDecoder\"");
+			writer.writeGraph(pGraph);
+			writer.close("java");
+		}
+		return true;
+	}
+
+	private void writeGraph(Graph pGraph) throws IOException
+	{
+		if(!PROTOTYPES.containsKey(pGraph.getClass()) || pGraph.getMinBounds() != null)
+		{
+			aSupported = false;
+			return;
+		}
+		open("object class=\"" + pGraph.getClass().getName() + "\"");
+		for(Node node : pGraph.getNodes())
+		{
+			open("void method=\"addNode\"");
+			writeNode(node);
+			writePoint(node.getX(), node.getY());
+			close("void");
+		}
+		for(Edge edge : pGraph.getEdges())
+		{
+			open("void method=\"connect\"");
+			writeEdge(edge);
+			writeNode(edge.getStart());
+			writeNode(edge.getEnd());
+			close("void");
+		}
+		close("object");
+	}
+
+	/*
+	 * Writes a node as an argument: in full the first time,
+	 * and as a reference to its identifier afterwards.
+	 */
+	private void writeNode(Node pNode) throws IOException
+	{
+		Object prototype = pNode == null ? null : PROTOTYPES.get(pNode.getClass());
+		if(!(prototype instanceof Node))
+		{
+			aSupported = false;
+			return;
+		}
+		if(!start(pNode))
+		{
+			return;
+		}
+		for(Node child : pNode.getChildren())
+		{
+			open("void method=\"addChild\"");
+			writeNode(child);
+			close("void");
+		}
+		if(!pNode.getChildren().isEmpty() && prototype instanceof AbstractNode)
+		{
+			// XMLEncoder compares with a new node to which the children were added,
+			// and adding a child can change the node (e.g., the bounds of an ObjectNode).
+			AbstractNode initial = ((AbstractNode) prototype).clone();
+			for(int i = 0; i < pNode.getChildren().size(); i++)
+			{
+				initial.addChild(new PointNode());
+			}
+			prototype = initial;
+		}
+		Class<?> type = pNode.getClass();
+		if(type == ActorNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "name", ((ActorNode) pNode).getName(), ((ActorNode) prototype).getName());
+			writeParent(pNode);
+		}
+		else if(type == CallNode.class)
+		{
+			ImplicitParameterNode implicitParameter = ((CallNode) pNode).getImplicitParameter();
+			if(implicitParameter != null)
+			{
+				writeReference("implicitParameter", implicitParameter);
+			}
+			writeBoolean("openBottom", ((CallNode) pNode).isOpenBottom(), ((CallNode) prototype).isOpenBottom());
+		}
+		else if(type == CircularStateNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeBoolean("final", ((CircularStateNode) pNode).isFinal(), ((CircularStateNode) prototype).isFinal());
+			writeParent(pNode);
+		}
+		else if(type == ClassNode.class)
+		{
+			ClassNode node = (ClassNode) pNode;
+			writeText(pNode, "attributes", node.getAttributes(), ((ClassNode) prototype).getAttributes());
+			writeText(pNode, "methods", node.getMethods(), ((ClassNode) prototype).getMethods());
+			writeText(pNode, "name", node.getName(), ((ClassNode) prototype).getName());
+		}
+		else if(type == FieldNode.class)
+		{
+			FieldNode node = (FieldNode) pNode;
+			writeBounds(pNode, (Node) prototype);
+			writeBoolean("boxedValue", node.isBoxedValue(), ((FieldNode) prototype).isBoxedValue());
+			writeText(pNode, "name", node.getName(), ((FieldNode) prototype).getName());
+			writeParent(pNode);
+			writeText(pNode, "value", node.getValue(), ((FieldNode) prototype).getValue());
+		}
+		else if(type == ImplicitParameterNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "name", ((ImplicitParameterNode) pNode).getName(), ((ImplicitParameterNode) prototype).getName());
+			writeParent(pNode);
+		}
+		else if(type == InterfaceNode.class)
+		{
+			InterfaceNode node = (InterfaceNode) pNode;
+			writeText(pNode, "methods", node.getMethods(), ((InterfaceNode) prototype).getMethods());
+			writeText(pNode, "name", node.getName(), ((InterfaceNode) prototype).getName());
+		}
+		else if(type == NoteNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeParent(pNode);
+			writeText(pNode, "text", ((NoteNode) pNode).getText(), ((NoteNode) prototype).getText());
+		}
+		else if(type == ObjectNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "name", ((ObjectNode) pNode).getName(), ((ObjectNode) prototype).getName());
+			writeParent(pNode);
+		}
+		else if(type == PackageNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "contents", ((PackageNode) pNode).getContents(), ((PackageNode) prototype).getContents());
+			writeString("name", ((PackageNode) pNode).getName(), ((PackageNode) prototype).getName());
+			writeParent(pNode);
+		}
+		else if(type == PointNode.class)
+		{
+			writeParent(pNode);
+		}
+		else if(type == StateNode.class)
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "name", ((StateNode) pNode).getName(), ((StateNode) prototype).getName());
+			writeParent(pNode);
+		}
+		else
+		{
+			writeBounds(pNode, (Node) prototype);
+			writeText(pNode, "name", ((UseCaseNode) pNode).getName(), ((UseCaseNode) prototype).getName());
+			writeParent(pNode);
+		}
+		close("object");
+	}
+
+	private void writeEdge(Edge pEdge) throws IOException
+	{
+		Object prototype = pEdge == null ? null : PROTOTYPES.get(pEdge.getClass());
+		if(!(prototype instanceof Edge))
+		{
+			aSupported = false;
+			return;
+		}
+		if(!start(pEdge))
+		{
+			return;
+		}
+		Class<?> type = pEdge.getClass();
+		if(type == CallEdge.class)
+		{
+			writeString("middleLabel", ((CallEdge) pEdge).getMiddleLabel(), ((CallEdge) prototype).getMiddleLabel());
+			writeBoolean("signal", ((CallEdge) pEdge).isSignal(), ((CallEdge) prototype).isSignal());
+		}
+		else if(type == ClassRelationshipEdge.class || type == ReturnEdge.class)
+		{
+			SegmentedLineEdge edge = (SegmentedLineEdge) pEdge;
+			SegmentedLineEdge initial = (SegmentedLineEdge) prototype;
+			if(type == ClassRelationshipEdge.class)
+			{
+				writeConstant(edge, "bentStyle", ((ClassRelationshipEdge) edge).getBentStyle(), ((ClassRelationshipEdge) initial).getBentStyle());
+			}
+			writeConstant(edge, "endArrowHead", edge.getEndArrowHead(), initial.getEndArrowHead());
+			writeString("endLabel", edge.getEndLabel(), initial.getEndLabel());
+			writeConstant(edge, "lineStyle", edge.getLineStyle(), initial.getLineStyle());
+			writeString("middleLabel", edge.getMiddleLabel(), initial.getMiddleLabel());
+			writeConstant(edge, "startArrowHead", edge.getStartArrowHead(), initial.getStartArrowHead());
+			writeString("startLabel", edge.getStartLabel(), initial.getStartLabel());
+		}
+		else if(type == StateTransitionEdge.class)
+		{
+			writeString("label", ((StateTransitionEdge) pEdge).getLabel(), ((StateTransitionEdge) prototype).getLabel());
+		}
+		if(!aCounting && aLateGetters.containsKey(pEdge))
+		{
+			for(Object constant : aLateGetters.get(pEdge))
+			{
+				writeGetter(aBindings.get(constant));
+			}
+		}
+		close("object");
+	}
+
+	/*
+	 * Counts a reference to pElement and writes either a reference to its
+	 * identifier or the start of its element. Returns true in the latter case.
+	 */
+	private boolean start(Object pElement) throws IOException
+	{
+		if(aCounting)
+		{
+			Integer references = aReferences.get(pElement);
+			aReferences.put(pElement, references == null ? 1 : references + 1);
+		}
+		if(aStarted.containsKey(pElement))
+		{
+			writeln("<object idref=\"" + aNames.get(pElement) + "\"/>");
+			return false;
+		}
+		aStarted.put(pElement, Boolean.TRUE);
+		String element = "object class=\"" + pElement.getClass().getName() + "\"";
+		if(!aCounting && aReferences.get(pElement) > 1)
+		{
+			String name = name(pElement.getClass().getSimpleName());
+			aNames.put(pElement, name);
+			element += " id=\"" + name + "\"";
+		}
+		open(element);
+		return true;
+	}
+
+	/*
+	 * An element whose properties are read through a getter in the output
+	 * is referred to by that getter as well.
+	 */
+	private void addGetterReference(Object pElement)
+	{
+		if(aCounting)
+		{
+			aReferences.put(pElement, aReferences.get(pElement) + 1);
+		}
+	}
+
+	private void writeParent(Node pNode) throws IOException
+	{
+		if(pNode.getParent() != null)
+		{
+			writeReference("parent", pNode.getParent());
+		}
+	}
+
+	/*
+	 * Writes a property whose value is a node that must already have been written.
+	 */
+	private void writeReference(String pProperty, Node pNode) throws IOException
+	{
+		open("void property=\"" + pProperty + "\"");
+		writeNode(pNode);
+		close("void");
+	}
+
+	private void writeBounds(Node pNode, Node pPrototype) throws IOException
+	{
+		Rectangle2D bounds = pNode.getBounds();
+		Rectangle2D initial = pPrototype.getBounds();
+		boolean x = differ(bounds.getX(), initial.getX());
+		boolean y = differ(bounds.getY(), initial.getY());
+		boolean width = differ(bounds.getWidth(), initial.getWidth());
+		boolean height = differ(bounds.getHeight(), initial.getHeight());
+		boolean changed = x || y || width || height;
+		if(changed == bounds.equals(initial))
+		{
+			// Only for -0.0 and NaN, which XMLEncoder writes in an irregular way
+			aSupported = false;
+			return;
+		}
+		if(!changed)
+		{
+			return;
+		}
+		addGetterReference(pNode);
+		String name = aCounting ? null : name("Rectangle2D$Double");
+		open("void id=\"" + name + "\" property=\"bounds\"");
+		if(x)
+		{
+			writeField(RECTANGLE, "x", name, bounds.getX());
+		}
+		if(y)
+		{
+			writeField(RECTANGLE, "y", name, bounds.getY());
+		}
+		if(width)
+		{
+			writeField(RECTANGLE, "width", name, bounds.getWidth());
+		}
+		if(height)
+		{
+			writeField(RECTANGLE, "height", name, bounds.getHeight());
+		}
+		close("void");
+		open("void property=\"bounds\"");
+		writeln("<object idref=\"" + name + "\"/>");
+		close("void");
+	}
+
+	private void writePoint(double pX, double pY) throws IOException
+	{
+		boolean x = differ(pX, 0);
+		boolean y = differ(pY, 0);
+		if(!x && !y)
+		{
+			writeln("<object class=\"" + POINT + "\"/>");
+			return;
+		}
+		String name = aCounting ? null : name("Point2D$Double");
+		open("object class=\"" + POINT + "\" id=\"" + name + "\"");
+		if(x)
+		{
+			writeField(POINT, "x", name, pX);
+		}
+		if(y)
+		{
+			writeField(POINT, "y", name, pY);
+		}
+		close("object");
+	}
+
+	private void writeField(String pClass, String pField, String pTarget, double pValue) throws IOException
+	{
+		open("void class=\"" + pClass + "\" method=\"getField\"");
+		writeln("<string>" + pField + "</string>");
+		open("void method=\"set\"");
+		writeln("<object idref=\"" + pTarget + "\"/>");
+		writeln("<double>" + pValue + "</double>");
+		close("void");
+		close("void");
+	}
+
+	/*
+	 * Writes the properties of a MultiLineString that differ from those
+	 * of the corresponding string in a new node, through the getter of pNode.
+	 */
+	private void writeText(Node pNode, String pProperty, MultiLineString pText, MultiLineString pInitial) throws IOException
+	{
+		if(pText == null || aTexts.put(pText, Boolean.TRUE) != null)
+		{
+			aSupported = false;
+			return;
+		}
+		boolean justification = pText.getJustification() != pInitial.getJustification();
+		boolean text = !pText.getText().equals(pInitial.getText());
+		boolean underlined = pText.isUnderlined() != pInitial.isUnderlined();
+		if(!justification && !text && !underlined)
+		{
+			return;
+		}
+		addGetterReference(pNode);
+		open("void property=\"" + pProperty + "\"");
+		if(justification)
+		{
+			writeProperty("justification", "<int>" + pText.getJustification() + "</int>");
+		}
+		if(text)
+		{
+			writeProperty("text", string(pText.getText()));
+		}
+		if(underlined)
+		{
+			writeProperty("underlined", "<boolean>" + pText.isUnderlined() + "</boolean>");
+		}
+		close("void");
+	}
+
+	private void writeString(String pProperty, String pValue, String pInitial) throws IOException
+	{
+		if(pValue == null)
+		{
+			aSupported = false;
+		}
+		else if(!pValue.equals(pInitial))
+		{
+			writeProperty(pProperty, string(pValue));
+		}
+	}
+
+	private void writeBoolean(String pProperty, boolean pValue, boolean pInitial) throws IOException
+	{
+		if(pValue != pInitial)
+		{
+			writeProperty(pProperty, "<boolean>" + pValue + "</boolean>");
+		}
+	}
+
+	/*
+	 * XMLEncoder binds a constant to the first expression that produced it.
+	 * When an edge property has its initial value, that is the getter of
+	 * the property. If the constant is later written as the value of another
+	 * property, the output refers to that getter instead of the static field.
+	 */
+	private void writeConstant(Edge pEdge, String pProperty, Object pValue, Object pInitial) throws IOException
+	{
+		String field = CONSTANTS.get(pValue);
+		if(field == null)
+		{
+			aSupported = false;
+			return;
+		}
+		ConstantBinding binding = aBindings.get(pValue);
+		if(binding == null)
+		{
+			binding = new ConstantBinding(pValue == pInitial ? pEdge : null, pProperty, pValue);
+			aBindings.put(pValue, binding);
+		}
+		if(pValue == pInitial)
+		{
+			return;
+		}
+		if(binding.aEdge != null && !binding.aReferenced)
+		{
+			binding.aReferenced = true;
+			addGetterReference(binding.aEdge);
+			if(binding.aEdge == pEdge)
+			{
+				writeGetter(binding);
+			}
+			else if(aCounting)
+			{
+				if(!aLateGetters.containsKey(binding.aEdge))
+				{
+					aLateGetters.put(binding.aEdge, new ArrayList<>());
+				}
+				aLateGetters.get(binding.aEdge).add(pValue);
+			}
+		}
+		if(binding.aEdge == null)
+		{
+			writeProperty(pProperty, "<object class=\"" + pValue.getClass().getName() + "\" field=\"" + field + "\"/>");
+		}
+		else
+		{
+			writeProperty(pProperty, "<object idref=\"" + binding.aName + "\"/>");
+		}
+	}
+
+	private void writeGetter(ConstantBinding pBinding) throws IOException
+	{
+		pBinding.aReferenced = true;
+		if(!aCounting)
+		{
+			pBinding.aName = name(pBinding.aConstant.getClass().getSimpleName());
+		}
+		writeln("<void id=\"" + pBinding.aName + "\" property=\"" + pBinding.aProperty + "\"/>");
+	}
+
+	private void writeProperty(String pProperty, String pValue) throws IOException
+	{
+		open("void property=\"" + pProperty + "\"");
+		writeln(pValue);
+		close("void");
+	}
+
+	/*
+	 * Doubles are compared as objects, so -0.0 differs from 0.0.
+	 */
+	private static boolean differ(double pValue1, double pValue2)
+	{
+		return Double.doubleToLongBits(pValue1) != Double.doubleToLongBits(pValue2);
+	}
+
+	private String name(String pClassName)
+	{
+		Integer count = aInstanceCounts.get(pClassName);
+		int number = count == null ? 0 : count + 1;
+		aInstanceCounts.put(pClassName, number);
+		return pClassName + number;
+	}
+
+	/*
+	 * Escapes a string the way XMLEncoder does: the markup characters
+	 * as entities and the characters that XML cannot contain as char elements.
+	 */
+	private static String string(String pString)
+	{
+		StringBuilder result = new StringBuilder(pString.length() + 2 * "<string>".length() + 1);
+		result.append("<string>");
+		int index = 0;
+		while(index < pString.length())
+		{
+			int point = pString.codePointAt(index);
+			int count = Character.charCount(point);
+			if(!isValidCharacter(point))
+			{
+				result.append("<char code=\"#").append(Integer.toString(point, 16)).append("\"/>");
+			}
+			else if(point == '<')
+			{
+				result.append("&lt;");
+			}
+			else if(point == '>')
+			{
+				result.append("&gt;");
+			}
+			else if(point == '&')
+			{
+				result.append("&amp;");
+			}
+			else if(point == '\'')
+			{
+				result.append("&apos;");
+			}
+			else if(point == '"')
+			{
+				result.append("&quot;");
+			}
+			else if(point == '\r')
+			{
+				result.append("&#13;");
+			}
+			else
+			{
+				result.append(pString, index, index + count);
+			}
+			index += count;
+		}
+		result.append("</string>");
+		return result.toString();
+	}
+
+	private static boolean isValidCharacter(int pCode)
+	{
+		return 0x0020 <= pCode && pCode <= 0xD7FF || pCode == 0x000A || pCode == 0x0009 || pCode == 0x000D
+				|| 0xE000 <= pCode && pCode <= 0xFFFD || 0x10000 <= pCode && pCode <= 0x10FFFF;
+	}
+
+	/*
+	 * Elements are opened lazily so that one without content
+	 * can be closed as an empty element.
+	 */
+	private void open(String pElement) throws IOException
+	{
+		flushPending();
+		aPending = pElement;
+		aIndentation++;
+	}
+
+	private void close(String pElement) throws IOException
+	{
+		aIndentation--;
+		if(aPending != null)
+		{
+			String element = aPending;
+			aPending = null;
+			writeln("<" + element + "/>");
+		}
+		else
+		{
+			writeln("</" + pElement + ">");
+		}
+	}
+
+	private void flushPending() throws IOException
+	{
+		if(aPending != null)
+		{
+			String element = aPending;
+			aPending = null;
+			aIndentation--;
+			writeln("<" + element + ">");
+			aIndentation++;
+		}
+	}
+
+	private void writeln(String pLine) throws IOException
+	{
+		flushPending();
+		if(aCounting)
+		{
+			return;
+		}
+		for(int i = 0; i < aIndentation; i++)
+		{
+			aOut.write(' ');
+		}
+		aOut.write(pLine);
+		aOut.write(NEWLINE);
+	}
+
+	/*
+	 * The expression to which a constant is bound: the getter of a property 
+	 * of aEdge, or the static field if aEdge is null.
+	 */
+	private static final class ConstantBinding
+	{
+		private final Edge aEdge;
+		private final String aProperty;
+		private final Object aConstant;
+		private boolean aReferenced;
+		private String aName;
+
+		ConstantBinding(Edge pEdge, String pProperty, Object pConstant)
+		{
+			aEdge = pEdge;
+			aProperty = pProperty;
+			aConstant = pConstant;
+		}
+	}
+}
@@ -23,7 +23,6 @@
 package ca.mcgill.cs.stg.jetuml.graph;
 
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
@@ -38,6 +37,12 @@ abstract class AbstractEdge implements Edge
 	private Node aStart;
 	private Node aEnd;
 	
+	// The end points and their geometry versions when the geometry was last checked
+	private transient Node aCheckedStart;
+	private transient Node aCheckedEnd;
+	private transient int aCheckedStartVersion;
+	private transient int aCheckedEndVersion;
+	
 	@Override
 	public Object clone()
 	{
@@ -69,6 +74,45 @@ abstract class AbstractEdge implements Edge
 	{
 		return aEnd;
 	}
+	
+	/**
+	 * Calls geometryChanged if this edge was connected to other 
+	 * nodes, or if the geometry of one of its nodes changed, since 
+	 * the last time this method was called. Subclasses that keep 
+	 * geometry computed from the nodes call this method before 
+	 * using it.
+	 */
+	protected void checkGeometry()
+	{
+		int startVersion = getGeometryVersion(aStart);
+		int endVersion = getGeometryVersion(aEnd);
+		if(aStart != aCheckedStart || aEnd != aCheckedEnd || 
+				startVersion != aCheckedStartVersion || endVersion != aCheckedEndVersion)
+		{
+			aCheckedStart = aStart;
+			aCheckedEnd = aEnd;
+			aCheckedStartVersion = startVersion;
+			aCheckedEndVersion = endVersion;
+			geometryChanged();
+		}
+	}
+	
+	/**
+	 * Discards any geometry computed for this edge. Called when 
+	 * the nodes of this edge move or change size, and by subclasses 
+	 * when a property that changes the shape of the edge is set.
+	 */
+	protected void geometryChanged()
+	{}
+	
+	private static int getGeometryVersion(Node pNode)
+	{
+		if(pNode == null)
+		{
+			return 0;
+		}
+		return pNode.getGeometryVersion();
+	}
 
 	@Override
 	public Rectangle2D getBounds()
@@ -82,11 +126,11 @@ abstract class AbstractEdge implements Edge
 	@Override
 	public Line2D getConnectionPoints()
 	{
-		Rectangle2D startBounds = aStart.getBounds();
-		Rectangle2D endBounds = aEnd.getBounds();
-		Point2D startCenter = new Point2D.Double(startBounds.getCenterX(), startBounds.getCenterY());
-		Point2D endCenter = new Point2D.Double(endBounds.getCenterX(), endBounds.getCenterY());
-		Direction toEnd = new Direction(startCenter, endCenter);
+		double startCenterX = aStart.getX() + aStart.getWidth() / 2;
+		double startCenterY = aStart.getY() + aStart.getHeight() / 2;
+		double endCenterX = aEnd.getX() + aEnd.getWidth() / 2;
+		double endCenterY = aEnd.getY() + aEnd.getHeight() / 2;
+		Direction toEnd = new Direction(endCenterX - startCenterX, endCenterY - startCenterY);
 		return new Line2D.Double(aStart.getConnectionPoint(toEnd), aEnd.getConnectionPoint(toEnd.turn(DEGREES_180)));
    }
 }
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 
 
 /**
@@ -47,6 +48,7 @@ public abstract class AbstractNode implements Node
 	
 	private ArrayList<Node> aChildren;
 	private Node aParent;
+	private transient int aGeometryVersion;
 	
 	/**
      * Constructs a node with no parents or children.
@@ -77,6 +79,50 @@ public abstract class AbstractNode implements Node
 	{
 	}
 
+	/*
+	 * The bounds accessors below copy the bounds. Subclasses 
+	 * that keep their bounds override them to read the bounds
+	 * directly.
+	 */
+	@Override
+	public double getX()
+	{
+		return getBounds().getX();
+	}
+
+	@Override
+	public double getY()
+	{
+		return getBounds().getY();
+	}
+
+	@Override
+	public double getWidth()
+	{
+		return getBounds().getWidth();
+	}
+
+	@Override
+	public double getHeight()
+	{
+		return getBounds().getHeight();
+	}
+
+	@Override
+	public int getGeometryVersion()
+	{
+		return aGeometryVersion;
+	}
+
+	/**
+	 * Records that the bounds or connection points of this 
+	 * node may have changed. 
+	 */
+	protected void geometryChanged()
+	{
+		aGeometryVersion++;
+	}
+
 	@Override
 	public boolean addEdge(Edge pEdge, Point2D pPoint1, Point2D pPoint2)
 	{
@@ -168,10 +214,13 @@ public abstract class AbstractNode implements Node
       	shadow.subtract(new Area(shape));
 		 */
 		Color oldColor = pGraphics2D.getColor();
-		pGraphics2D.translate(SHADOW_GAP, SHADOW_GAP);      
-		pGraphics2D.setColor(SHADOW_COLOR);
-		pGraphics2D.fill(shape);
-		pGraphics2D.translate(-SHADOW_GAP, -SHADOW_GAP);
+		if(LevelOfDetail.of(pGraphics2D) != LevelOfDetail.SHAPES)
+		{
+			pGraphics2D.translate(SHADOW_GAP, SHADOW_GAP);      
+			pGraphics2D.setColor(SHADOW_COLOR);
+			pGraphics2D.fill(shape);
+			pGraphics2D.translate(-SHADOW_GAP, -SHADOW_GAP);
+		}
 		pGraphics2D.setColor(pGraphics2D.getBackground());
 		pGraphics2D.fill(shape);      
 		pGraphics2D.setColor(oldColor);
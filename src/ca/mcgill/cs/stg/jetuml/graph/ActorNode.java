@@ -65,7 +65,7 @@ public class ActorNode extends RectangularNode
 	{
 		Rectangle2D top = new Rectangle2D.Double(0, 0, DEFAULT_WIDTH, DEFAULT_HEIGHT);
 		Rectangle2D bot = aName.getBounds(pGraphics2D);
-		Rectangle2D b = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(),
+		Rectangle2D b = new Rectangle2D.Double(getX(), getY(),
             Math.max(top.getWidth(), bot.getWidth()), top.getHeight() + bot.getHeight());
 		pGrid.snap(b);
 		setBounds(b);
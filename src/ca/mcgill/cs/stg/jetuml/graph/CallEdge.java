@@ -24,10 +24,10 @@ package ca.mcgill.cs.stg.jetuml.graph;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
 
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
+import ca.mcgill.cs.stg.jetuml.framework.Polyline;
 
 /**
  *   An edge that joins two call nodes.
@@ -69,28 +69,21 @@ public class CallEdge extends SegmentedLineEdge
 	}
 
 	@Override
-	protected ArrayList<Point2D> getPoints()
+	protected Polyline getPoints()
 	{
-		ArrayList<Point2D> a = new ArrayList<>();
 		Node endNode = getEnd();
 		Rectangle2D start = getStart().getBounds();
 		Rectangle2D end = endNode.getBounds();
       
 		if(endNode instanceof CallNode && ((CallNode)endNode).getImplicitParameter() == ((CallNode)getStart()).getImplicitParameter())
 		{
-			Point2D p = new Point2D.Double(start.getMaxX(), end.getY() - CallNode.CALL_YGAP / 2);
-			Point2D q = new Point2D.Double(end.getMaxX(), end.getY());
-			Point2D s = new Point2D.Double(q.getX() + end.getWidth(), q.getY());
-			Point2D r = new Point2D.Double(s.getX(), p.getY());
-			a.add(p);
-			a.add(r);
-			a.add(s);
-			a.add(q);
+			double y = end.getY() - CallNode.CALL_YGAP / 2;
+			return new Polyline(start.getMaxX(), y, end.getMaxX() + end.getWidth(), y, 
+					end.getMaxX() + end.getWidth(), end.getY(), end.getMaxX(), end.getY());
 		}
 		else if(endNode instanceof PointNode) // show nicely in tool bar
 		{
-			a.add(new Point2D.Double(start.getMaxX(), start.getY()));
-			a.add(new Point2D.Double(end.getX(), start.getY()));
+			return new Polyline(start.getMaxX(), start.getY(), end.getX(), start.getY());
 		}
 		else     
 		{
@@ -99,15 +92,13 @@ public class CallEdge extends SegmentedLineEdge
          
 			if(start.getCenterX() < endPoint.getX())
 			{
-				a.add(new Point2D.Double(start.getMaxX(), endPoint.getY()));
+				return new Polyline(start.getMaxX(), endPoint.getY(), endPoint.getX(), endPoint.getY());
 			}
 			else
 			{
-				a.add(new Point2D.Double(start.getX(), endPoint.getY()));
+				return new Polyline(start.getX(), endPoint.getY(), endPoint.getX(), endPoint.getY());
 			}
-			a.add(endPoint);
 		}
-		return a;
 	}
 }
 
@@ -29,8 +29,6 @@ import java.awt.Stroke;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
@@ -107,6 +105,7 @@ public class CallNode extends RectangularNode
 	public void setImplicitParameter(ImplicitParameterNode pNewValue)
 	{
 		aImplicitParameter = pNewValue;
+		geometryChanged(); // Changes the path of the calls to this node
 	}
 
 	@Override
@@ -114,11 +113,11 @@ public class CallNode extends RectangularNode
 	{
 		if(pDirection.getX() > 0)
 		{
-			return new Point2D.Double(getBounds().getMaxX(), getBounds().getMinY());
+			return new Point2D.Double(getX() + getWidth(), getY());
 		}
 		else
 		{
-			return new Point2D.Double(getBounds().getX(), getBounds().getMinY());
+			return new Point2D.Double(getX(), getY());
 		}
 	}
 
@@ -185,7 +184,7 @@ public class CallNode extends RectangularNode
 
 		int i = 0;
 		List<Node> calls = getChildren();
-		while(i < calls.size() && calls.get(i).getBounds().getY() <= pPoint1.getY())
+		while(i < calls.size() && calls.get(i).getY() <= pPoint1.getY())
 		{
 			i++;
 		}
@@ -213,11 +212,8 @@ public class CallNode extends RectangularNode
    
 	private static Edge findEdge(Graph pGraph, Node pStart, Node pEnd)
 	{
-		Collection<Edge> edges = pGraph.getEdges();
-		Iterator<Edge> iter = edges.iterator(); 
-		while(iter.hasNext())
+		for(Edge e : pGraph.getNodeEdges(pStart))
 		{
-			Edge e = iter.next();
 			if(e.getStart() == pStart && e.getEnd() == pEnd)
 			{
 				return e;
@@ -233,18 +229,18 @@ public class CallNode extends RectangularNode
 		{
 			return;
 		}
-		double xmid = aImplicitParameter.getBounds().getCenterX();
+		double xmid = aImplicitParameter.getX() + aImplicitParameter.getWidth() / 2;
 
 		for(CallNode c = (CallNode)getParent(); c != null; c = (CallNode)c.getParent())
 		{
 			if (c.aImplicitParameter == aImplicitParameter)
 			{
-				xmid += getBounds().getWidth() / 2;
+				xmid += getWidth() / 2;
 			}
 		}
 
-		translate(xmid - getBounds().getCenterX(), 0);
-		double ytop = getBounds().getY() + CALL_YGAP;
+		translate(xmid - (getX() + getWidth() / 2), 0);
+		double ytop = getY() + CALL_YGAP;
 
 		List<Node> calls = getChildren();
 		for(int i = 0; i < calls.size(); i++)
@@ -265,7 +261,7 @@ public class CallNode extends RectangularNode
 					ytop += edgeBounds.getHeight() - CALL_YGAP;
 				}
             
-				n.translate(0, ytop - n.getBounds().getY());
+				n.translate(0, ytop - n.getY());
 				n.layout(pGraph, pGraphics2D, pGrid);
 				if(((CallNode) n).aSignaled)
 				{
@@ -273,7 +269,7 @@ public class CallNode extends RectangularNode
 				}
 				else
 				{
-					ytop += n.getBounds().getHeight() + CALL_YGAP;
+					ytop += n.getHeight() + CALL_YGAP;
 				}
 			}
 		}
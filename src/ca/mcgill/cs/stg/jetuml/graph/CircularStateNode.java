@@ -105,7 +105,7 @@ public class CircularStateNode extends RectangularNode
 	public void draw(Graphics2D pGraphics2D)
 	{
 		super.draw(pGraphics2D);
-		Ellipse2D circle = new Ellipse2D.Double(getBounds().getX(), getBounds().getY(), getBounds().getWidth(), getBounds().getHeight());
+		Ellipse2D circle = new Ellipse2D.Double(getX(), getY(), getWidth(), getHeight());
       
       	if(aFinalState)
       	{
@@ -124,7 +124,7 @@ public class CircularStateNode extends RectangularNode
 	@Override
 	public Shape getShape()
 	{
-		return new Ellipse2D.Double(getBounds().getX(), getBounds().getY(), getBounds().getWidth() - 1, getBounds().getHeight() - 1);
+		return new Ellipse2D.Double(getX(), getY(), getWidth() - 1, getHeight() - 1);
 	}
 }
 
@@ -27,6 +27,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.MultiLineString;
 
 /**
@@ -63,16 +64,19 @@ public class ClassNode extends RectangularNode
 	public void draw(Graphics2D pGraphics2D)
 	{
 		super.draw(pGraphics2D);
-		Rectangle2D top = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), 
-				getBounds().getWidth(), getBounds().getHeight() - aMidHeight - aBottomHeight);
+		Rectangle2D top = new Rectangle2D.Double(getX(), getY(), 
+				getWidth(), getHeight() - aMidHeight - aBottomHeight);
 		pGraphics2D.draw(top);
 		aName.draw(pGraphics2D, top);
 		Rectangle2D mid = new Rectangle2D.Double(top.getX(), top.getMaxY(), top.getWidth(), aMidHeight);
 		pGraphics2D.draw(mid);
-		aAttributes.draw(pGraphics2D, mid);
 		Rectangle2D bot = new Rectangle2D.Double(top.getX(), mid.getMaxY(), top.getWidth(), aBottomHeight);
 		pGraphics2D.draw(bot);
-		aMethods.draw(pGraphics2D, bot);
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.FULL)
+		{
+			aAttributes.draw(pGraphics2D, mid);
+			aMethods.draw(pGraphics2D, bot);
+		}
    }
 
 	@Override
@@ -98,7 +102,7 @@ public class ClassNode extends RectangularNode
 			aBottomHeight = bot.getHeight();
 		}
 
-		Rectangle2D b = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), 
+		Rectangle2D b = new Rectangle2D.Double(getX(), getY(), 
 				Math.max(top.getWidth(), Math.max(mid.getWidth(), bot.getWidth())), 
 				top.getHeight() + aMidHeight + aBottomHeight);
 		pGrid.snap(b);
@@ -22,12 +22,10 @@
 
 package ca.mcgill.cs.stg.jetuml.graph;
 
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
 import ca.mcgill.cs.stg.jetuml.framework.BentStyle;
 import ca.mcgill.cs.stg.jetuml.framework.LineStyle;
+import ca.mcgill.cs.stg.jetuml.framework.Polyline;
 
 /**
  *  An edge that is shaped like a line with up to 
@@ -178,7 +176,10 @@ public class ClassRelationshipEdge extends SegmentedLineEdge
      * @param pNewValue the bent style
      */
 	public void setBentStyle(BentStyle pNewValue)
-	{ aBentStyle = pNewValue; }
+	{ 
+		aBentStyle = pNewValue; 
+		geometryChanged();
+	}
    
 	/**
      * Gets the bentStyle property.
@@ -188,7 +189,7 @@ public class ClassRelationshipEdge extends SegmentedLineEdge
 	{ return aBentStyle; }
    
 	@Override
-	public ArrayList<Point2D> getPoints()
+	public Polyline getPoints()
 	{
 		return aBentStyle.getPath(getStart().getBounds(), getEnd().getBounds());
    }
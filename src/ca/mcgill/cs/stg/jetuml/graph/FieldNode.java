@@ -29,6 +29,7 @@ import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.MultiLineString;
 
 /**
@@ -61,7 +62,6 @@ public class FieldNode extends RectangularNode
 	@Override
 	public void draw(Graphics2D pGraphics2D)
 	{
-		super.draw(pGraphics2D);
 		Rectangle2D b = getBounds();
 		double leftWidth = aName.getBounds(pGraphics2D).getWidth();
 		MultiLineString equal = new MultiLineString();
@@ -75,11 +75,6 @@ public class FieldNode extends RectangularNode
 		}
 		rightWidth = Math.max(rightWidth, aBoxWidth - midWidth / 2);
 
-		aNameBounds = new Rectangle2D.Double(b.getX(), b.getY(), leftWidth, b.getHeight());
-		aName.draw(pGraphics2D, aNameBounds);
-		Rectangle2D mid = new Rectangle2D.Double(b.getX() + leftWidth, b.getY(), midWidth, b.getHeight());
-		equal.draw(pGraphics2D, mid);
-		aValueBounds = new Rectangle2D.Double(b.getMaxX() - rightWidth, b.getY(), rightWidth, b.getHeight());
 		if(aBoxedValue)
 		{
 			aValue.setJustification(MultiLineString.CENTER);
@@ -88,7 +83,16 @@ public class FieldNode extends RectangularNode
 		{
 			aName.setJustification(MultiLineString.LEFT);
 		}
-		aValue.draw(pGraphics2D, aValueBounds);
+		aNameBounds = new Rectangle2D.Double(b.getX(), b.getY(), leftWidth, b.getHeight());
+		Rectangle2D mid = new Rectangle2D.Double(b.getX() + leftWidth, b.getY(), midWidth, b.getHeight());
+		aValueBounds = new Rectangle2D.Double(b.getMaxX() - rightWidth, b.getY(), rightWidth, b.getHeight());
+		super.draw(pGraphics2D);
+		aName.draw(pGraphics2D, aNameBounds);
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.FULL)
+		{
+			equal.draw(pGraphics2D, mid);
+			aValue.draw(pGraphics2D, aValueBounds);
+		}
 		if(aBoxedValue)
 		{
 			pGraphics2D.draw(aValueBounds);
@@ -115,8 +119,7 @@ public class FieldNode extends RectangularNode
 	@Override
 	public Point2D getConnectionPoint(Direction pDirection)
 	{
-		Rectangle2D b = getBounds();
-		return new Point2D.Double((b.getMaxX() + b.getX() + aAxisX) / 2, b.getCenterY());
+		return new Point2D.Double((getX() + getWidth() + getX() + aAxisX) / 2, getY() + getHeight() / 2);
 	}
 
 	@Override
@@ -23,6 +23,7 @@
 package ca.mcgill.cs.stg.jetuml.graph;
 
 import java.awt.Graphics2D;
+import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.beans.DefaultPersistenceDelegate;
@@ -30,6 +31,9 @@ import java.beans.Encoder;
 import java.beans.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import ca.mcgill.cs.stg.jetuml.framework.GraphModificationListener;
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
@@ -39,13 +43,32 @@ import ca.mcgill.cs.stg.jetuml.framework.Grid;
  */
 public abstract class Graph
 {
+	/* Extra space around the bounds of an element in which it can still
+	 * be hit or drawn: covers the tolerance of PointNode and ShapeEdge, 
+	 * and the shadow of the nodes. */
+	private static final double HIT_MARGIN = 5;
+	
+	/* Extra space around the bounds of an edge: the hit margin, and 
+	 * the arrow head of ObjectReferenceEdge, which is drawn outside of 
+	 * its shape and reaches up to half its width past it. */
+	private static final double EDGE_MARGIN = HIT_MARGIN + 5;
+	
 	protected GraphModificationListener aModListener;
 	private ArrayList<Node> aNodes;
 	private ArrayList<Edge> aEdges;
-	private transient ArrayList<Node> aNodesToBeRemoved;
-	private transient ArrayList<Edge> aEdgesToBeRemoved;
+	private transient LinkedHashSet<Node> aNodesToBeRemoved;
+	private transient LinkedHashSet<Edge> aEdgesToBeRemoved;
+	private transient IdentityHashMap<Node, List<Edge>> aIncidentEdges;
 	private transient boolean aNeedsLayout;
+	private transient boolean aNeedsFullLayout;
+	private transient LinkedHashSet<Node> aNodesToLayout;
 	private transient Rectangle2D aMinBounds;
+	private transient Rectangle2D aContentBounds;
+	private transient boolean aBoundsNeedRefresh;
+	private transient int aModificationCount;
+	private transient SpatialIndex<Node> aNodeIndex;
+	private transient SpatialIndex<Edge> aEdgeIndex;
+	private transient boolean aIndexNeedsRefresh;
 
 	/**
 	 * Constructs a graph with no nodes or edges.
@@ -54,10 +77,16 @@ public abstract class Graph
 	{
 		aNodes = new ArrayList<>();
 		aEdges = new ArrayList<>();
-		aNodesToBeRemoved = new ArrayList<>();
-		aEdgesToBeRemoved = new ArrayList<>();
+		aNodesToBeRemoved = new LinkedHashSet<>();
+		aEdgesToBeRemoved = new LinkedHashSet<>();
+		aIncidentEdges = new IdentityHashMap<>();
+		aNodesToLayout = new LinkedHashSet<>();
+		aNodeIndex = new SpatialIndex<>();
+		aEdgeIndex = new SpatialIndex<>();
 		aModListener = new GraphModificationListener();
 		aNeedsLayout = true;
+		aNeedsFullLayout = true;
+		aBoundsNeedRefresh = true;
 	}
 
 	/**
@@ -116,12 +145,17 @@ public abstract class Graph
 			if(edgeAdded && pEdge.getEnd() != null)
 			{
 				aEdges.add(pEdge);
+				aEdgeIndex.add(pEdge, getShapeIndexBounds(pEdge));
+				aIndexNeedsRefresh = true;
+				addIncidence(pEdge);
 				aModListener.edgeAdded(this, pEdge);
-				if(!aNodes.contains(pEdge.getEnd()))
+				if(!aNodeIndex.contains(pEdge.getEnd()))
 				{
 					aNodes.add(pEdge.getEnd());
+					aNodeIndex.add(pEdge.getEnd(), getIndexBounds(pEdge.getEnd()));
 				}
-				aNeedsLayout = true;
+				layout(n1);
+				layout(pEdge);
 				if (n1 instanceof FieldNode)
 				{
 					aModListener.endCompoundListening();
@@ -145,8 +179,7 @@ public abstract class Graph
 	 */
 	public boolean add(Node pNode, Point2D pPoint)
 	{
-		Rectangle2D bounds = pNode.getBounds();
-		pNode.translate(pPoint.getX() - bounds.getX(), pPoint.getY() - bounds.getY()); 
+		pNode.translate(pPoint.getX() - pNode.getX(), pPoint.getY() - pNode.getY()); 
 
 		boolean accepted = false;
 		/* A variable commented out during testing. @JoelChev */
@@ -169,20 +202,23 @@ public abstract class Graph
 		//		}
 		aModListener.nodeAdded(this, pNode);
 		aNodes.add(pNode);
-		aNeedsLayout = true;
+		aNodeIndex.add(pNode, getIndexBounds(pNode));
+		layout(pNode);
 		return true;
 	}
 
 	/**
-      Finds a node containing the given point.
+      Finds a node containing the given point. If several nodes
+      contain the point, the one that was added last (the one
+      drawn on top) is returned.
       @param pPoint a point
       @return a node containing p or null if no nodes contain p
 	 */
 	public Node findNode(Point2D pPoint)
 	{
-		for(int i = aNodes.size() - 1; i >= 0; i--)
+		refreshIndex();
+		for(Node n : aNodeIndex.getCandidates(pPoint))
 		{
-			Node n = aNodes.get(i);
 			if(n.contains(pPoint))
 			{
 				return n;
@@ -192,15 +228,16 @@ public abstract class Graph
 	}
 
 	/**
-	 * Finds an edge containing the given point.
+	 * Finds an edge containing the given point. If several edges
+	 * contain the point, the one that was added last is returned.
 	 * @param pPoint a point
 	 * @return an edge containing p or null if no edges contain p
 	 */
 	public Edge findEdge(Point2D pPoint)
 	{
-		for (int i = aEdges.size() - 1; i >= 0; i--)
+		refreshIndex();
+		for(Edge e : aEdgeIndex.getCandidates(pPoint))
 		{
-			Edge e = aEdges.get(i);
 			if(e.contains(pPoint))
 			{
 				return e;
@@ -209,25 +246,172 @@ public abstract class Graph
 		return null;
 	}
 
+	/*
+	 * Brings the spatial index up to date with the current
+	 * geometry of the nodes and edges, if it may have changed
+	 * since the last refresh.
+	 */
+	private void refreshIndex()
+	{
+		if(!aIndexNeedsRefresh)
+		{
+			return;
+		}
+		for(Node node : aNodes)
+		{
+			aNodeIndex.update(node, getIndexBounds(node));
+		}
+		for(Edge edge : aEdges)
+		{
+			aEdgeIndex.update(edge, getIndexBounds(edge));
+		}
+		aIndexNeedsRefresh = false;
+	}
+
+	/*
+	 * Brings the spatial index up to date after pNode was moved 
+	 * without a layout: only pNode, the nodes it carries along and 
+	 * the edges attached to any of them can have changed.
+	 */
+	private void updateIndex(Node pNode)
+	{
+		aNodeIndex.update(pNode, getIndexBounds(pNode));
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident != null)
+		{
+			for(Edge edge : incident)
+			{
+				aEdgeIndex.update(edge, getIndexBounds(edge));
+			}
+		}
+		for(Node child : pNode.getChildren())
+		{
+			updateIndex(child);
+		}
+	}
+
+	/*
+	 * Computes the area outside of which pNode can neither be hit nor drawn.
+	 */
+	private static Rectangle2D getIndexBounds(Node pNode)
+	{
+		double y = pNode.getY();
+		double height = pNode.getHeight();
+		if(pNode instanceof ImplicitParameterNode)
+		{
+			// The life line of an object can be hit anywhere along its x-range
+			y = -Double.MAX_VALUE / 2;
+			height = Double.MAX_VALUE;
+		}
+		return new Rectangle2D.Double(pNode.getX() - HIT_MARGIN, y - HIT_MARGIN, 
+				pNode.getWidth() + 2 * HIT_MARGIN, height + 2 * HIT_MARGIN);
+	}
+
+	/*
+	 * Computes the area outside of which pEdge can neither be hit nor drawn.
+	 * This measures the labels of pEdge, so it is only used once the graph 
+	 * is laid out, on the Event Dispatch Thread.
+	 */
+	private static Rectangle2D getIndexBounds(Edge pEdge)
+	{
+		return pad(pEdge.getBounds(), EDGE_MARGIN);
+	}
+
+	/*
+	 * Computes the area covered by the lines of pEdge, without its labels,
+	 * for the edges that are connected before the graph is laid out, such 
+	 * as while it is read on a background thread. Connecting an edge 
+	 * marks the index for a refresh, which adds the labels.
+	 */
+	private static Rectangle2D getShapeIndexBounds(Edge pEdge)
+	{
+		if(pEdge instanceof ShapeEdge)
+		{
+			return pad(((ShapeEdge) pEdge).getShape().getBounds2D(), EDGE_MARGIN);
+		}
+		Line2D connection = pEdge.getConnectionPoints();
+		Rectangle2D bounds = new Rectangle2D.Double();
+		bounds.setFrameFromDiagonal(connection.getP1(), connection.getP2());
+		return pad(bounds, EDGE_MARGIN);
+	}
+
+	private static Rectangle2D pad(Rectangle2D pBounds, double pMargin)
+	{
+		return new Rectangle2D.Double(pBounds.getX() - pMargin, pBounds.getY() - pMargin, 
+				pBounds.getWidth() + 2 * pMargin, pBounds.getHeight() + 2 * pMargin);
+	}
+
 	/**
-	 * Returns all edges connected to the given node.
+	 * Returns all edges connected to the given node, in the
+	 * order in which they were added to the graph.
 	 * @param pNode The Node to query for Edges.
 	 * @return an ArrayList of Edges from the Node pNode.
 	 */
 	public ArrayList<Edge> getNodeEdges(Node pNode)
 	{
 		ArrayList<Edge> toRet = new ArrayList<Edge>();
-		for(int i = 0; i < aEdges.size(); i++)
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident != null)
 		{
-			Edge e = aEdges.get(i);
-			if((e.getStart() == pNode || e.getEnd() == pNode) && !aEdgesToBeRemoved.contains(e))
+			for(Edge e : incident)
 			{
-				toRet.add(e);
+				if(!aEdgesToBeRemoved.contains(e))
+				{
+					toRet.add(e);
+				}
 			}
 		}
 		return toRet;
 	}
 
+	/*
+	 * Records pEdge as incident to its start and end nodes.
+	 */
+	private void addIncidence(Edge pEdge)
+	{
+		addIncidence(pEdge.getStart(), pEdge);
+		if(pEdge.getEnd() != pEdge.getStart())
+		{
+			addIncidence(pEdge.getEnd(), pEdge);
+		}
+	}
+
+	private void addIncidence(Node pNode, Edge pEdge)
+	{
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident == null)
+		{
+			incident = new ArrayList<>();
+			aIncidentEdges.put(pNode, incident);
+		}
+		if(!incident.contains(pEdge))
+		{
+			incident.add(pEdge);
+		}
+	}
+
+	/*
+	 * Forgets that pEdge is incident to its start and end nodes.
+	 */
+	private void removeIncidence(Edge pEdge)
+	{
+		removeIncidence(pEdge.getStart(), pEdge);
+		removeIncidence(pEdge.getEnd(), pEdge);
+	}
+
+	private void removeIncidence(Node pNode, Edge pEdge)
+	{
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident != null)
+		{
+			incident.remove(pEdge);
+			if(incident.isEmpty())
+			{
+				aIncidentEdges.remove(pNode);
+			}
+		}
+	}
+
 	/**
 	 * Draws the graph.
 	 * @param pGraphics2D the graphics context
@@ -235,47 +419,154 @@ public abstract class Graph
 	 */
 	public void draw(Graphics2D pGraphics2D, Grid pGrid)
 	{
-		layout(pGraphics2D, pGrid);
+		updateLayout(pGraphics2D, pGrid);
 
-		for(int i = 0; i < aNodes.size(); i++)
+		for(Node n : getVisibleNodes(pGraphics2D))
 		{
-			Node n = aNodes.get(i);
 			n.draw(pGraphics2D);
 		}
 
-		for(int i = 0; i < aEdges.size(); i++)
+		for(Edge e : getVisibleEdges(pGraphics2D))
 		{
-			Edge e = aEdges.get(i);
 			e.draw(pGraphics2D);
 		}
 	}
 
+	/**
+	 * Returns the nodes that can show through the clip of a 
+	 * graphics context, in the order in which they must be drawn. 
+	 * All the nodes are returned if the context is not clipped.
+	 * @param pGraphics2D The graphics context to draw on.
+	 * @return The nodes to draw.
+	 */
+	protected List<Node> getVisibleNodes(Graphics2D pGraphics2D)
+	{
+		Rectangle2D clip = pGraphics2D.getClipBounds();
+		if(clip == null)
+		{
+			return aNodes;
+		}
+		refreshIndex();
+		return aNodeIndex.getIntersecting(clip);
+	}
+
+	/**
+	 * Returns the edges that can show through the clip of a 
+	 * graphics context, in the order in which they must be drawn. 
+	 * All the edges are returned if the context is not clipped.
+	 * @param pGraphics2D The graphics context to draw on.
+	 * @return The edges to draw.
+	 */
+	protected List<Edge> getVisibleEdges(Graphics2D pGraphics2D)
+	{
+		Rectangle2D clip = pGraphics2D.getClipBounds();
+		if(clip == null)
+		{
+			return aEdges;
+		}
+		refreshIndex();
+		return aEdgeIndex.getIntersecting(clip);
+	}
+
+	/**
+	 * Returns the nodes that may intersect any of a number of areas,
+	 * in the order in which they are drawn. The nodes that are not 
+	 * returned lie entirely outside of every area.
+	 * @param pAreas The areas to look up.
+	 * @return The nodes near pAreas.
+	 */
+	public List<Node> getNodesNear(Rectangle2D... pAreas)
+	{
+		refreshIndex();
+		return aNodeIndex.getIntersecting(pAreas);
+	}
+
+	/**
+	 * Returns the edges that may intersect any of a number of areas,
+	 * in the order in which they are drawn. The edges that are not 
+	 * returned lie entirely outside of every area.
+	 * @param pAreas The areas to look up.
+	 * @return The edges near pAreas.
+	 */
+	public List<Edge> getEdgesNear(Rectangle2D... pAreas)
+	{
+		refreshIndex();
+		return aEdgeIndex.getIntersecting(pAreas);
+	}
+
 	/**
 	 * Removes a node and all edges that start or end with that node.
 	 * @param pNode the node to remove
 	 */
 	public void removeNode(Node pNode)
+	{
+		aModListener.startCompoundListening();
+		removeNodeAndDependents(pNode);
+		aModListener.endCompoundListening();
+	}
+
+	/**
+	 * Removes a number of nodes and edges at once, together with the 
+	 * elements that depend on them, as a single change. The edges of
+	 * the nodes are removed first, then the edges in pElements, then
+	 * the nodes in the reverse order, so that undoing the change adds
+	 * the nodes back in their original order.
+	 * @param pElements The elements to remove.
+	 */
+	public void removeAll(Collection<? extends GraphElement> pElements)
+	{
+		aModListener.startCompoundListening();
+		List<Node> nodes = new ArrayList<>();
+		for(GraphElement element : pElements)
+		{
+			if(element instanceof Node)
+			{
+				for(Edge edge : getNodeEdges((Node) element))
+				{
+					removeEdge(edge);
+				}
+				nodes.add((Node) element);
+			}
+			else if(element instanceof Edge)
+			{
+				removeEdge((Edge) element);
+			}
+		}
+		for(int i = nodes.size() - 1; i >= 0; i--)
+		{
+			removeNodeAndDependents(nodes.get(i));
+		}
+		aModListener.endCompoundListening();
+	}
+
+	/*
+	 * Removes pNode, its edges and its children, and notifies the
+	 * nodes that depend on it, without grouping the changes.
+	 */
+	private void removeNodeAndDependents(Node pNode)
 	{
 		if(aNodesToBeRemoved.contains(pNode))
 		{
 			return;
 		}
-		aModListener.startCompoundListening();
 		aNodesToBeRemoved.add(pNode);
+		if(pNode.getParent() != null)
+		{
+			layout(pNode.getParent());
+		}
 		// notify nodes of removals
-		for(int i = 0; i < aNodes.size(); i++)
+		for(Node n2 : getNodesAffectedByRemoval(pNode))
 		{
-			Node n2 = aNodes.get(i);
 			if(n2.getParent()!= null && n2.getParent().equals(this))
 			{
 				aModListener.childDetached(this, pNode.getChildren().indexOf(n2), pNode, n2);
 			}
 			n2.removeNode(this, pNode);
 		}
-		for(int i = 0; i < aEdges.size(); i++)
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident != null)
 		{
-			Edge e = aEdges.get(i);
-			if(e.getStart() == pNode || e.getEnd() == pNode)
+			for(Edge e : new ArrayList<>(incident))
 			{
 				removeEdge(e);
 			}
@@ -283,11 +574,32 @@ public abstract class Graph
 		/*Remove the children too @JoelChev*/
 		for(Node childNode: pNode.getChildren())
 		{
-			removeNode(childNode);
+			removeNodeAndDependents(childNode);
 		}
 		aModListener.nodeRemoved(this, pNode);
-		aModListener.endCompoundListening();
 		aNeedsLayout = true;
+		aModificationCount++;
+	}
+
+	/**
+	 * Returns the nodes whose state can depend on pNode, and which
+	 * must therefore be notified when pNode is removed: pNode itself,
+	 * its parent and its children. Subclasses where nodes depend on
+	 * each other in other ways must add the dependent nodes.
+	 * @param pNode The node being removed.
+	 * @return The nodes to notify, which may include nodes that
+	 * are no longer in the graph.
+	 */
+	protected List<Node> getNodesAffectedByRemoval(Node pNode)
+	{
+		List<Node> result = new ArrayList<>();
+		result.add(pNode);
+		if(pNode.getParent() != null)
+		{
+			result.add(pNode.getParent());
+		}
+		result.addAll(pNode.getChildren());
+		return result;
 	}
 
 	/**
@@ -308,18 +620,20 @@ public abstract class Graph
 	}
 
 	/**
+	 * The spatial indexes hold exactly the nodes and edges in the
+	 * lists of the graph, so they are used to look them up.
 	 * @param pElement The element we want to check is in the grapgh.
 	 * @return True if pElement is a node or edge in this graph.
 	 */
 	public boolean contains( GraphElement pElement )
 	{
-		if( aNodes.contains(pElement))
+		if(pElement instanceof Node)
 		{
-			return true;
+			return aNodeIndex.contains((Node) pElement);
 		}
-		if( aEdges.contains( pElement ))
+		if(pElement instanceof Edge)
 		{
-			return true;
+			return aEdgeIndex.contains((Edge) pElement);
 		}
 		return false;
 	}
@@ -336,12 +650,12 @@ public abstract class Graph
 		}
 		aEdgesToBeRemoved.add(pEdge);
 		aModListener.edgeRemoved(this, pEdge);
-		for(int i = aNodes.size() - 1; i >= 0; i--)
+		pEdge.getEnd().removeEdge(this, pEdge);
+		if(pEdge.getStart() != pEdge.getEnd())
 		{
-			Node n = aNodes.get(i);
-			n.removeEdge(this, pEdge);
+			pEdge.getStart().removeEdge(this, pEdge);
 		}
-		aNeedsLayout = true;
+		layout(pEdge);
 	}
 
 	/**
@@ -350,10 +664,97 @@ public abstract class Graph
 	public void layout()
 	{
 		aNeedsLayout = true;
+		aNeedsFullLayout = true;
+		aIndexNeedsRefresh = true;
+		aModificationCount++;
 	}
 
 	/**
-	 * Computes the layout of the graph.
+	 * Causes the layout of the part of the graph that depends on
+	 * pElement to be recomputed: for a node, the node and its 
+	 * ancestors; for an edge, the nodes it connects and their
+	 * ancestors. Use this instead of layout() when the change is
+	 * known to be local to pElement.
+	 * @param pElement The element that was changed.
+	 */
+	public void layout(GraphElement pElement)
+	{
+		if(pElement instanceof Node)
+		{
+			aNodesToLayout.add((Node) pElement);
+		}
+		else if(pElement instanceof Edge)
+		{
+			aNodesToLayout.add(((Edge) pElement).getStart());
+			aNodesToLayout.add(((Edge) pElement).getEnd());
+		}
+		else
+		{
+			aNeedsFullLayout = true;
+		}
+		aNeedsLayout = true;
+		aIndexNeedsRefresh = true;
+		aModificationCount++;
+	}
+
+	/**
+	 * Computes the layout of the graph, if needed, before it is drawn.
+	 * When assertions are enabled, the result of an incremental layout 
+	 * is checked against that of a full layout.
+	 * @param pGraphics2D the graphics context
+	 * @param pGrid the grid to snap to
+	 */
+	protected void updateLayout(Graphics2D pGraphics2D, Grid pGrid)
+	{
+		boolean incremental = aNeedsLayout && !aNeedsFullLayout;
+		layout(pGraphics2D, pGrid);
+		if(incremental)
+		{
+			assert isSameAsFullLayout(pGraphics2D, pGrid) : "Incremental layout differs from a full layout";
+		}
+	}
+
+	/*
+	 * Recomputes the whole layout and checks that every node ends up 
+	 * with the bounds that the incremental layout gave it. The bounds 
+	 * of the incremental layout are put back where they differ, and the
+	 * modification count is left alone, so that the check does not hide 
+	 * the result it checks nor cause the diagram to be drawn again.
+	 */
+	private boolean isSameAsFullLayout(Graphics2D pGraphics2D, Grid pGrid)
+	{
+		IdentityHashMap<Node, Rectangle2D> incremental = new IdentityHashMap<>();
+		for(Node node : aNodes)
+		{
+			incremental.put(node, node.getBounds());
+		}
+		aNeedsLayout = true;
+		aNeedsFullLayout = true;
+		layout(pGraphics2D, pGrid);
+		boolean same = true;
+		for(Node node : aNodes)
+		{
+			Rectangle2D bounds = incremental.get(node);
+			if(!node.getBounds().equals(bounds))
+			{
+				same = false;
+				if(node instanceof RectangularNode)
+				{
+					((RectangularNode) node).setBounds(bounds);
+				}
+				else
+				{
+					node.translate(bounds.getX() - node.getX(), bounds.getY() - node.getY());
+				}
+			}
+		}
+		return same;
+	}
+
+	/**
+	 * Computes the layout of the graph. Only the nodes that were
+	 * passed to layout(GraphElement) and their ancestors are laid out, 
+	 * unless layout() was called.
 	 * If you override this method, you must first call 
 	 * <code>super.layout</code>.
 	 * @param pGraphics2D the graphics context
@@ -365,43 +766,197 @@ public abstract class Graph
 		{
 			return;
 		}
+		completeRemovals();
+
+		if(aNeedsFullLayout)
+		{
+			for(int i = 0; i < aNodes.size(); i++)
+			{
+				Node n = aNodes.get(i);
+				n.layout(this, pGraphics2D, pGrid);
+			}
+		}
+		else
+		{
+			for(Node n : getNodesToLayout())
+			{
+				n.layout(this, pGraphics2D, pGrid);
+			}
+		}
+		aNodesToLayout.clear();
+		aNeedsLayout = false;
+		aNeedsFullLayout = false;
+		aIndexNeedsRefresh = true;
+		aBoundsNeedRefresh = true;
+	}
+
+	/**
+	 * Drops from the lists of the graph the nodes and edges removed
+	 * since the graph was last laid out, which otherwise stay there
+	 * until the next layout. For uses of the lists that cannot wait
+	 * for it, such as taking a copy of the graph right after an edit.
+	 */
+	public void completeRemovals()
+	{
+		if(aNodesToBeRemoved.isEmpty() && aEdgesToBeRemoved.isEmpty())
+		{
+			return;
+		}
 		aNodes.removeAll(aNodesToBeRemoved);
 		aEdges.removeAll(aEdgesToBeRemoved);
+		for(Node node : aNodesToBeRemoved)
+		{
+			aNodeIndex.remove(node);
+		}
+		for(Edge edge : aEdgesToBeRemoved)
+		{
+			aEdgeIndex.remove(edge);
+			removeIncidence(edge);
+		}
 		aNodesToBeRemoved.clear();
 		aEdgesToBeRemoved.clear();
+	}
 
-		for(int i = 0; i < aNodes.size(); i++)
+	/*
+	 * Returns the nodes marked for layout that are still in the graph,
+	 * together with their ancestors, in the order in which a full
+	 * layout would visit them.
+	 */
+	private List<Node> getNodesToLayout()
+	{
+		IdentityHashMap<Node, Node> marked = new IdentityHashMap<>();
+		for(Node node : aNodesToLayout)
 		{
-			Node n = aNodes.get(i);
-			n.layout(this, pGraphics2D, pGrid);
+			for(Node ancestor = node; ancestor != null && !marked.containsKey(ancestor); ancestor = ancestor.getParent())
+			{
+				marked.put(ancestor, ancestor);
+			}
+		}
+		List<Node> result = new ArrayList<>(marked.size());
+		for(Node node : aNodes)
+		{
+			if(marked.containsKey(node))
+			{
+				result.add(node);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Moves a node, and the nodes it carries along, without laying 
+	 * out the graph. Use this instead of Node.translate for moves that
+	 * are not followed by a layout, such as while nodes are dragged, 
+	 * so that the graph keeps track of the area the nodes cover.
+	 * @param pNode The node to move.
+	 * @param pDeltaX The amount to move the node along the x-axis.
+	 * @param pDeltaY The amount to move the node along the y-axis.
+	 */
+	public void translate(Node pNode, double pDeltaX, double pDeltaY)
+	{
+		pNode.translate(pDeltaX, pDeltaY);
+		if(!aIndexNeedsRefresh)
+		{
+			updateIndex(pNode);
+		}
+		aModificationCount++;
+		if(!aBoundsNeedRefresh)
+		{
+			Rectangle2D affected = getBoundsAffectedByMove(pNode);
+			if(affected == null)
+			{
+				aBoundsNeedRefresh = true;
+			}
+			else
+			{
+				includeInBounds(affected);
+			}
 		}
-		aNeedsLayout = false;
 	}
 
 	/**
-	 * Gets the smallest rectangle enclosing the graph.
+	 * Returns the part of the drawing that can change when pNode
+	 * is moved without laying out the graph: the bounds of pNode,
+	 * of its descendants and of the edges attached to any of them.
+	 * Subclasses whose layout moves other elements along with a 
+	 * node must account for them.
+	 * @param pNode The node being moved.
+	 * @return The area that can change, or null if moving the
+	 * node can change the whole drawing.
+	 */
+	public Rectangle2D getBoundsAffectedByMove(Node pNode)
+	{
+		Rectangle2D result = new Rectangle2D.Double(pNode.getX(), pNode.getY(), pNode.getWidth(), pNode.getHeight());
+		addBoundsAffectedByMove(pNode, result);
+		return result;
+	}
+
+	private void addBoundsAffectedByMove(Node pNode, Rectangle2D pResult)
+	{
+		pResult.add(pNode.getBounds());
+		List<Edge> incident = aIncidentEdges.get(pNode);
+		if(incident != null)
+		{
+			for(Edge edge : incident)
+			{
+				pResult.add(edge.getBounds());
+			}
+		}
+		for(Node child : pNode.getChildren())
+		{
+			addBoundsAffectedByMove(child, pResult);
+		}
+	}
+
+	private void includeInBounds(Rectangle2D pBounds)
+	{
+		if(aContentBounds == null)
+		{
+			aContentBounds = new Rectangle2D.Double(pBounds.getX(), pBounds.getY(), pBounds.getWidth(), pBounds.getHeight());
+		}
+		else
+		{
+			aContentBounds.add(pBounds);
+		}
+	}
+
+	/**
+	 * Gets the smallest rectangle enclosing the graph. The area 
+	 * covered by the nodes and edges is only recomputed after the
+	 * graph is laid out; in between, moves made through 
+	 * translate(Node, double, double) can only make it grow.
 	 * @return the bounding rectangle
 	 */
 	public Rectangle2D getBounds()
 	{
-		Rectangle2D r = aMinBounds;
-		for(int i = 0; i < aNodes.size(); i++)
+		if(aBoundsNeedRefresh)
 		{
-			Node n = aNodes.get(i);
-			Rectangle2D b = n.getBounds();
-			if(r == null)
+			aContentBounds = null;
+			for(Node node : aNodes)
 			{
-				r = b;
+				includeInBounds(node.getBounds());
 			}
-			else
+			for(Edge edge : aEdges)
 			{
-				r.add(b);
+				includeInBounds(edge.getBounds());
 			}
+			aBoundsNeedRefresh = false;
 		}
-		for(int i = 0; i < aEdges.size(); i++)
+		Rectangle2D r = null;
+		if(aMinBounds != null)
 		{
-			Edge e = aEdges.get(i);
-			r.add(e.getBounds());
+			r = new Rectangle2D.Double(aMinBounds.getX(), aMinBounds.getY(), aMinBounds.getWidth(), aMinBounds.getHeight());
+		}
+		if(aContentBounds != null)
+		{
+			if(r == null)
+			{
+				r = aContentBounds;
+			}
+			else
+			{
+				r.add(aContentBounds);
+			}
 		}
 		if(r == null )
 		{
@@ -423,7 +978,23 @@ public abstract class Graph
 	 * @param pMinBounds The minimum bounds property
 	 */
 	public void setMinBounds(Rectangle2D pMinBounds)
-	{ aMinBounds = pMinBounds; }
+	{
+		aMinBounds = pMinBounds;
+		aModificationCount++;
+	}
+
+	/**
+	 * Returns a number that changes every time the graph is
+	 * changed in a way that can change how it is drawn: elements
+	 * added, removed, moved or edited, or the minimum bounds set.
+	 * Changes made directly to nodes and edges are only counted
+	 * once they are reported through one of the layout methods.
+	 * @return The modification count of the graph.
+	 */
+	public int getModificationCount()
+	{
+		return aModificationCount;
+	}
 
 	/**
 	 * Gets the node types of a particular graph type.
@@ -454,8 +1025,7 @@ public abstract class Graph
 				for(int i = 0; i < g.aNodes.size(); i++)
 				{
 					Node n = g.aNodes.get(i);
-					Rectangle2D bounds = n.getBounds();
-					Point2D p = new Point2D.Double(bounds.getX(), bounds.getY());
+					Point2D p = new Point2D.Double(n.getX(), n.getY());
 					pOut.writeStatement( new Statement(pOldInstance, "addNode", new Object[]{ n, p }) );
 				}
 				for(int i = 0; i < g.aEdges.size(); i++)
@@ -489,9 +1059,9 @@ public abstract class Graph
 	 */
 	public void addNode(Node pNode, Point2D pPoint)
 	{
-		Rectangle2D bounds = pNode.getBounds();
-		pNode.translate(pPoint.getX() - bounds.getX(), pPoint.getY() - bounds.getY()); 
+		pNode.translate(pPoint.getX() - pNode.getX(), pPoint.getY() - pNode.getY()); 
 		aNodes.add(pNode); 
+		aNodeIndex.add(pNode, getIndexBounds(pNode));
 	}
 
 	/**
@@ -505,6 +1075,9 @@ public abstract class Graph
 	{
 		pEdge.connect(pStart, pEnd);
 		aEdges.add(pEdge);
+		aEdgeIndex.add(pEdge, getShapeIndexBounds(pEdge));
+		aIndexNeedsRefresh = true;
+		addIncidence(pEdge);
 	}
 
 	/**
@@ -71,8 +71,8 @@ public class ImplicitParameterNode extends RectangularNode
 		Rectangle2D top = getTopRectangle();
 		pGraphics2D.draw(top);
 		aName.draw(pGraphics2D, top);
-		double xmid = getBounds().getCenterX();
-		Line2D line = new Line2D.Double(xmid, top.getMaxY(), xmid, getBounds().getMaxY());
+		double xmid = getX() + getWidth() / 2;
+		Line2D line = new Line2D.Double(xmid, top.getMaxY(), xmid, getY() + getHeight());
 		Stroke oldStroke = pGraphics2D.getStroke();
 		// CSOFF:
 		pGraphics2D.setStroke(new BasicStroke(1.0f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0.0f, new float[] { 5.0f, 5.0f }, 0.0f));
@@ -87,7 +87,7 @@ public class ImplicitParameterNode extends RectangularNode
 	 */
 	public Rectangle2D getTopRectangle()
 	{
-		return new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), getBounds().getWidth(), aTopHeight);
+		return new Rectangle2D.Double(getX(), getY(), getWidth(), aTopHeight);
 	}
 
 	@Override
@@ -105,11 +105,11 @@ public class ImplicitParameterNode extends RectangularNode
 	{
 		if(pDirection.getX() > 0)
 		{
-			return new Point2D.Double(getBounds().getMaxX(), getBounds().getMinY() + aTopHeight / 2);
+			return new Point2D.Double(getX() + getWidth(), getY() + aTopHeight / 2);
 		}
 		else
 		{
-			return new Point2D.Double(getBounds().getX(), getBounds().getMinY() + aTopHeight / 2);
+			return new Point2D.Double(getX(), getY() + aTopHeight / 2);
 		}
 	}
 
@@ -118,9 +118,9 @@ public class ImplicitParameterNode extends RectangularNode
 	{
 		Rectangle2D b = aName.getBounds(pGraphics2D); 
 		b.add(new Rectangle2D.Double(0, 0, DEFAULT_WIDTH, DEFAULT_TOP_HEIGHT));      
-		Rectangle2D top = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), b.getWidth(), b.getHeight());
+		Rectangle2D top = new Rectangle2D.Double(getX(), getY(), b.getWidth(), b.getHeight());
 		pGrid.snap(top);
-		setBounds(new Rectangle2D.Double(top.getX(), top.getY(), top.getWidth(), getBounds().getHeight()));
+		setBounds(new Rectangle2D.Double(top.getX(), top.getY(), top.getWidth(), getHeight()));
 		aTopHeight = top.getHeight();
 	}
 
@@ -27,6 +27,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.MultiLineString;
 
 /**
@@ -62,15 +63,18 @@ public class InterfaceNode extends RectangularNode
 	public void draw(Graphics2D pGraphics2D)
 	{
 		super.draw(pGraphics2D);
-		Rectangle2D top = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), 
-    		  getBounds().getWidth(), getBounds().getHeight() - aMidHeight - aBotHeight);
+		Rectangle2D top = new Rectangle2D.Double(getX(), getY(), 
+    		  getWidth(), getHeight() - aMidHeight - aBotHeight);
 		pGraphics2D.draw(top);
 		aName.draw(pGraphics2D, top);
 		Rectangle2D mid = new Rectangle2D.Double(top.getX(), top.getMaxY(), top.getWidth(), aMidHeight);
 		pGraphics2D.draw(mid);
 		Rectangle2D bot = new Rectangle2D.Double(top.getX(), mid.getMaxY(), top.getWidth(), aBotHeight);
 		pGraphics2D.draw(bot);
-		aMethods.draw(pGraphics2D, bot);
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.FULL)
+		{
+			aMethods.draw(pGraphics2D, bot);
+		}
 	}
 
 	@Override
@@ -94,7 +98,7 @@ public class InterfaceNode extends RectangularNode
 			aBotHeight = bot.getHeight();
 		}
 
-		Rectangle2D b = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), 
+		Rectangle2D b = new Rectangle2D.Double(getX(), getY(), 
 				Math.max(top.getWidth(), bot.getWidth()), top.getHeight() + aMidHeight + aBotHeight);
 		pGrid.snap(b);
 		setBounds(b);
@@ -71,6 +71,42 @@ public interface Node extends GraphElement
 	 */
 	Rectangle2D getBounds();
 
+	/**
+     * Gets the x coordinate of the left side of the bounding 
+     * rectangle, without creating a copy of the rectangle.
+     * @return the same value as getBounds().getX()
+	 */
+	double getX();
+
+	/**
+     * Gets the y coordinate of the top of the bounding 
+     * rectangle, without creating a copy of the rectangle.
+     * @return the same value as getBounds().getY()
+	 */
+	double getY();
+
+	/**
+     * Gets the width of the bounding rectangle, without 
+     * creating a copy of the rectangle.
+     * @return the same value as getBounds().getWidth()
+	 */
+	double getWidth();
+
+	/**
+     * Gets the height of the bounding rectangle, without 
+     * creating a copy of the rectangle.
+     * @return the same value as getBounds().getHeight()
+	 */
+	double getHeight();
+
+	/**
+     * Gets a number that changes whenever the bounds or the 
+     * connection points of this node may have changed, so that
+     * edges can tell when their geometry must be recomputed.
+     * @return the version of the geometry of this node
+	 */
+	int getGeometryVersion();
+
 	/**
      * Adds an edge that originates at this node.
      * @param pPoint1 the point that the user selected as
@@ -91,14 +127,16 @@ public interface Node extends GraphElement
 	boolean addNode(Node pNode, Point2D pPoint);
 
 	/**
-     * Notifies this node that an edge is being removed.
+     * Notifies this node that an edge that starts or ends
+     * at this node is being removed.
      * @param pGraph the ambient graph
      * @param pEdge the edge to be removed
 	 */
 	void removeEdge(Graph pGraph, Edge pEdge);
 
 	/**
-     * Notifies this node that a node is being removed.
+     * Notifies this node that a node it may depend on is being
+     * removed. See Graph.getNodesAffectedByRemoval.
      * @param pGraph the ambient graph
      * @param pNode the node to be removed
 	 */
@@ -28,7 +28,6 @@ import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
-import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
 
@@ -53,9 +52,10 @@ public class NoteEdge extends ShapeEdge
 	@Override
 	public Line2D getConnectionPoints()
 	{
-		Rectangle2D start = getStart().getBounds();
-		Rectangle2D end = getEnd().getBounds();
-		Direction d = new Direction(end.getCenterX() - start.getCenterX(), end.getCenterY() - start.getCenterY());
+		Node start = getStart();
+		Node end = getEnd();
+		Direction d = new Direction(end.getX() + end.getWidth() / 2 - (start.getX() + start.getWidth() / 2), 
+				end.getY() + end.getHeight() / 2 - (start.getY() + start.getHeight() / 2));
 		return new Line2D.Double(getStart().getConnectionPoint(d), getEnd().getConnectionPoint(d.turn(DEGREES_180)));
   	}
 
@@ -30,6 +30,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.MultiLineString;
 
 /**
@@ -127,7 +128,10 @@ public class NoteNode extends RectangularNode
 		pGraphics2D.setColor(oldColor);      
 		pGraphics2D.draw(fold);      
       
-		aText.draw(pGraphics2D, getBounds());
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.FULL)
+		{
+			aText.draw(pGraphics2D, getBounds());
+		}
 	}
    
 	@Override
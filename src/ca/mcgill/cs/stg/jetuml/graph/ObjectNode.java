@@ -83,7 +83,7 @@ public class ObjectNode extends RectangularNode
 	 */
 	public Rectangle2D getTopRectangle()
 	{
-		return new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), getBounds().getWidth(), aTopHeight);
+		return new Rectangle2D.Double(getX(), getY(), getWidth(), aTopHeight);
 	}
 
 	@Override
@@ -97,11 +97,11 @@ public class ObjectNode extends RectangularNode
 	{
 		if(pDirection.getX() > 0)
 		{
-			return new Point2D.Double(getBounds().getMaxX(), getBounds().getMinY() + aTopHeight / 2);
+			return new Point2D.Double(getX() + getWidth(), getY() + aTopHeight / 2);
 		}
 		else
 		{
-			return new Point2D.Double(getBounds().getX(), getBounds().getMinY() + aTopHeight / 2);
+			return new Point2D.Double(getX(), getY() + aTopHeight / 2);
 		}
 	}
 
@@ -123,7 +123,7 @@ public class ObjectNode extends RectangularNode
 			FieldNode f = (FieldNode)fields.get(i);
 			f.layout(pGraph, pGraphics2D, pGrid);
 			Rectangle2D b2 = f.getBounds();
-			height += b2.getBounds().getHeight() + YGAP;   
+			height += b2.getHeight() + YGAP;   
 			double axis = f.getAxisX();
 			leftWidth = Math.max(leftWidth, axis);
 			rightWidth = Math.max(rightWidth, b2.getWidth() - axis);
@@ -131,7 +131,7 @@ public class ObjectNode extends RectangularNode
 		double width = 2 * Math.max(leftWidth, rightWidth) + 2 * XGAP;
 		width = Math.max(width, b.getWidth());
 		width = Math.max(width, DEFAULT_WIDTH);
-		b = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), width, b.getHeight() + height);
+		b = new Rectangle2D.Double(getX(), getY(), width, b.getHeight() + height);
 		pGrid.snap(b);
 		setBounds(b);
 		aTopHeight = b.getHeight() - height;
@@ -143,7 +143,7 @@ public class ObjectNode extends RectangularNode
 			Rectangle2D b2 = f.getBounds();
 			f.setBounds(new Rectangle2D.Double(xmid - f.getAxisX(), ytop, f.getAxisX() + rightWidth, b2.getHeight()));
 			f.setBoxWidth(rightWidth);
-			ytop += f.getBounds().getHeight() + YGAP;
+			ytop += f.getHeight() + YGAP;
 		}
 	}
 
@@ -190,7 +190,7 @@ public class ObjectNode extends RectangularNode
 			return true;
 		}
 		int i = 0;
-		while (i < fields.size() && ((Node)fields.get(i)).getBounds().getY() < pPoint.getY())
+		while (i < fields.size() && ((Node)fields.get(i)).getY() < pPoint.getY())
 		{
 			i++;
 		}
@@ -27,7 +27,6 @@ import java.awt.Shape;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
 
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
@@ -112,8 +111,7 @@ public class ObjectReferenceEdge extends ShapeEdge
 	 */
 	private boolean isSShaped()
 	{
-		Rectangle2D b = getEnd().getBounds();
 		Point2D p = getStart().getConnectionPoint(Direction.EAST);
-		return b.getX() >= p.getX() + 2 * ENDSIZE;
+		return getEnd().getX() >= p.getX() + 2 * ENDSIZE;
 	}
 }
@@ -30,9 +30,9 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.List;
 
-import javax.swing.JLabel;
-
 import ca.mcgill.cs.stg.jetuml.framework.Grid;
+import ca.mcgill.cs.stg.jetuml.framework.LabelCache;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.MultiLineString;
 
 /**
@@ -48,7 +48,6 @@ public class PackageNode extends RectangularNode
 	private static final int XGAP = 5;
 	private static final int YGAP = 5;
 	   
-	private static JLabel label = new JLabel();
 
 	private String aName;
 	private MultiLineString aContents;
@@ -71,26 +70,39 @@ public class PackageNode extends RectangularNode
 	public void draw(Graphics2D pGraphics2D)
 	{
 		super.draw(pGraphics2D);
-		Rectangle2D bounds = getBounds();
-
-		label.setText("<html>" + aName + "</html>");
-		label.setFont(pGraphics2D.getFont());
-		Dimension d = label.getPreferredSize();
-		label.setBounds(0, 0, d.width, d.height);
-
 		pGraphics2D.draw(aTop);
+		pGraphics2D.draw(aBottom);
+		LevelOfDetail detail = LevelOfDetail.of(pGraphics2D);
+		if(detail == LevelOfDetail.SHAPES)
+		{
+			return;
+		}
+		
+		Rectangle2D bounds = getBounds();
+		Dimension d = LabelCache.getSize(aName, pGraphics2D.getFont());
 
 		double textX = bounds.getX() + NAME_GAP;
 		double textY = bounds.getY() + (aTop.getHeight() - d.getHeight()) / 2;
-      
-		pGraphics2D.translate(textX, textY);
-		label.paint(pGraphics2D);
-		pGraphics2D.translate(-textX, -textY);        
+		LabelCache.draw(pGraphics2D, aName, pGraphics2D.getFont(), textX, textY);
      
-		pGraphics2D.draw(aBottom);
-		aContents.draw(pGraphics2D, aBottom);
+		if(detail == LevelOfDetail.FULL)
+		{
+			aContents.draw(pGraphics2D, aBottom);
+		}
 	}
    
+	/*
+	 * The top and bottom rectangles are only computed by the layout,
+	 * so they must follow the node when it is dragged around.
+	 */
+	@Override
+	public void translate(double pDeltaX, double pDeltaY)
+	{
+		super.translate(pDeltaX, pDeltaY);
+		aTop = new Rectangle2D.Double(aTop.getX() + pDeltaX, aTop.getY() + pDeltaY, aTop.getWidth(), aTop.getHeight());
+		aBottom = new Rectangle2D.Double(aBottom.getX() + pDeltaX, aBottom.getY() + pDeltaY, aBottom.getWidth(), aBottom.getHeight());
+	}
+
 	@Override
 	public Shape getShape()
 	{
@@ -105,9 +117,7 @@ public class PackageNode extends RectangularNode
 	{
 		Rectangle2D bounds = getBounds();
 
-		label.setText("<html>" + aName + "</html>");
-		label.setFont(pGraphics2D.getFont());
-		Dimension d = label.getPreferredSize();
+		Dimension d = LabelCache.getSize(aName, pGraphics2D.getFont());
       
 		aTop = new Rectangle2D.Double(bounds.getX(), bounds.getY(), 
 				Math.max(d.getWidth(), DEFAULT_TOP_WIDTH), Math.max(d.getHeight(), DEFAULT_TOP_HEIGHT));
@@ -135,10 +145,10 @@ public class PackageNode extends RectangularNode
      	pGrid.snap(b);
      	setBounds(b);
       
-     	aTop = new Rectangle2D.Double(bounds.getX(), bounds.getY(), 
+     	aTop = new Rectangle2D.Double(b.getX(), b.getY(), 
      			Math.max(d.getWidth() + 2 * NAME_GAP, DEFAULT_TOP_WIDTH), Math.max(d.getHeight(), DEFAULT_TOP_HEIGHT));
       
-     	aBottom = new Rectangle2D.Double(bounds.getX(), bounds.getY() + aTop.getHeight(), bounds.getWidth(), bounds.getHeight() - aTop.getHeight());
+     	aBottom = new Rectangle2D.Double(b.getX(), b.getY() + aTop.getHeight(), b.getWidth(), b.getHeight() - aTop.getHeight());
      }
 
 	/**
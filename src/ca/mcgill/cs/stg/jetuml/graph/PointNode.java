@@ -53,6 +53,7 @@ public class PointNode extends AbstractNode
 	public void translate(double pDeltaX, double pDeltaY)
 	{
       aPoint.setLocation(aPoint.getX() + pDeltaX, aPoint.getY() + pDeltaY);
+      geometryChanged();
 	}
 
 	@Override
@@ -68,6 +69,30 @@ public class PointNode extends AbstractNode
 		return new Rectangle2D.Double(aPoint.getX(), aPoint.getY(), 0, 0);
 	}
 
+	@Override
+	public double getX()
+	{
+		return aPoint.getX();
+	}
+
+	@Override
+	public double getY()
+	{
+		return aPoint.getY();
+	}
+
+	@Override
+	public double getWidth()
+	{
+		return 0;
+	}
+
+	@Override
+	public double getHeight()
+	{
+		return 0;
+	}
+
 	@Override
 	public Point2D getConnectionPoint(Direction pDirection)
 	{
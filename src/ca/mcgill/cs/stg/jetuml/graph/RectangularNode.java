@@ -49,6 +49,7 @@ public abstract class RectangularNode extends AbstractNode
 	public void translate(double pDeltaX, double pDeltaY)
 	{
       aBounds.setFrame(aBounds.getX() + pDeltaX, aBounds.getY() + pDeltaY, aBounds.getWidth(), aBounds.getHeight());
+      geometryChanged();
       super.translate(pDeltaX, pDeltaY);
 	}
 
@@ -64,18 +65,44 @@ public abstract class RectangularNode extends AbstractNode
 		return (Rectangle2D) aBounds.clone();
 	}
 
+	@Override
+	public double getX()
+	{
+		return aBounds.getX();
+	}
+
+	@Override
+	public double getY()
+	{
+		return aBounds.getY();
+	}
+
+	@Override
+	public double getWidth()
+	{
+		return aBounds.getWidth();
+	}
+
+	@Override
+	public double getHeight()
+	{
+		return aBounds.getHeight();
+	}
+
 	/**
 	 * @param pNewBounds The new bounds for this node.
 	 */
 	public void setBounds(Rectangle2D pNewBounds)
 	{
 		aBounds = pNewBounds;
+		geometryChanged();
 	}
 
 	@Override
 	public void layout(Graph pGraph, Graphics2D pGraphics2D, Grid pGrid)
 	{
 		pGrid.snap(aBounds);
+		geometryChanged();
 	}
 
 	@Override
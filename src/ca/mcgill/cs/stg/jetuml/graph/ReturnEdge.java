@@ -22,12 +22,11 @@
 
 package ca.mcgill.cs.stg.jetuml.graph;
 
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
 
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
 import ca.mcgill.cs.stg.jetuml.framework.LineStyle;
+import ca.mcgill.cs.stg.jetuml.framework.Polyline;
 
 /**
  *  An edge that joins two call nodes.
@@ -44,27 +43,22 @@ public class ReturnEdge extends SegmentedLineEdge
 	}
 
 	@Override
-	protected ArrayList<Point2D> getPoints()
+	protected Polyline getPoints()
 	{
-		ArrayList<Point2D> lReturn = new ArrayList<>();
 		Node endNode = getEnd();
 		Rectangle2D start = getStart().getBounds();
 		Rectangle2D end = getEnd().getBounds();
 		if(endNode instanceof PointNode) // show nicely in tool bar
 		{
-			lReturn.add(new Point2D.Double(end.getX(), end.getY()));
-			lReturn.add(new Point2D.Double(start.getMaxX(), end.getY()));
+			return new Polyline(end.getX(), end.getY(), start.getMaxX(), end.getY());
 		}      
 		else if(start.getCenterX() < end.getCenterX())
 		{
-			lReturn.add(new Point2D.Double(start.getMaxX(), start.getMaxY()));
-			lReturn.add(new Point2D.Double(end.getX(), start.getMaxY()));
+			return new Polyline(start.getMaxX(), start.getMaxY(), end.getX(), start.getMaxY());
 		}
 		else
 		{
-			lReturn.add(new Point2D.Double(start.getX(), start.getMaxY()));
-			lReturn.add(new Point2D.Double(end.getMaxX(), start.getMaxY()));
+			return new Polyline(start.getX(), start.getMaxY(), end.getMaxX(), start.getMaxY());
 		}
-		return lReturn;
 	}
 }
@@ -24,6 +24,7 @@ package ca.mcgill.cs.stg.jetuml.graph;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.Stroke;
@@ -31,19 +32,19 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-
-import javax.swing.JLabel;
 
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
+import ca.mcgill.cs.stg.jetuml.framework.LabelCache;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 import ca.mcgill.cs.stg.jetuml.framework.LineStyle;
+import ca.mcgill.cs.stg.jetuml.framework.Polyline;
 
 /**
  *  An edge that is composed of multiple line segments.
  */
 public abstract class SegmentedLineEdge extends ShapeEdge
 {
-	private static JLabel label = new JLabel();
+	private static Font labelFont = LabelCache.getDefaultFont();
 	
 	private LineStyle aLineStyle;
 	private ArrowHead aStartArrowHead;
@@ -52,6 +53,13 @@ public abstract class SegmentedLineEdge extends ShapeEdge
 	private String aMiddleLabel;
 	private String aEndLabel;
 	
+	// Computed from the corner points until the geometry of the edge changes
+	private transient Polyline aPoints;
+	private transient GeneralPath aSegmentPath;
+	private transient Shape aShape;
+	private transient Rectangle2D aBounds;
+	private transient Font aBoundsFont;
+	
 	/**
      * Constructs an edge with no adornments.
 	 */
@@ -84,7 +92,10 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     *  @param pNewValue the new value
     */
    	public void setStartArrowHead(ArrowHead pNewValue) 
-   	{ aStartArrowHead = pNewValue; }
+   	{ 
+   		aStartArrowHead = pNewValue; 
+   		geometryChanged();
+   	}
 
    	/**
      * Gets the start arrow head property.
@@ -98,7 +109,10 @@ public abstract class SegmentedLineEdge extends ShapeEdge
      * @param pNewValue the new value
      */
    	public void setEndArrowHead(ArrowHead pNewValue) 
-	{ aEndArrowHead = pNewValue; }
+	{ 
+   		aEndArrowHead = pNewValue; 
+   		geometryChanged();
+   	}
 
    	/**
      *  Gets the end arrow head property.
@@ -112,7 +126,10 @@ public abstract class SegmentedLineEdge extends ShapeEdge
      * @param pNewValue the new value
      */
   	public void setStartLabel(String pNewValue) 
-  	{ aStartLabel = pNewValue; }
+  	{ 
+  		aStartLabel = pNewValue; 
+  		geometryChanged();
+  	}
 
   	/**
      * Gets the start label property.
@@ -126,7 +143,10 @@ public abstract class SegmentedLineEdge extends ShapeEdge
     *  @param pNewValue the new value
     */
   	public void setMiddleLabel(String pNewValue) 
-  	{ aMiddleLabel = pNewValue; }
+  	{ 
+  		aMiddleLabel = pNewValue; 
+  		geometryChanged();
+  	}
 
   	/**
      * Gets the middle label property.
@@ -140,7 +160,10 @@ public abstract class SegmentedLineEdge extends ShapeEdge
       @param pNewValue the new value
   	 */
   	public void setEndLabel(String pNewValue) 
-  	{ aEndLabel = pNewValue; }
+  	{ 
+  		aEndLabel = pNewValue; 
+  		geometryChanged();
+  	}
 
   	/**
      * Gets the end label property.
@@ -152,50 +175,46 @@ public abstract class SegmentedLineEdge extends ShapeEdge
   	@Override
   	public void draw(Graphics2D pGraphics2D)
   	{
-  		ArrayList<Point2D> points = getPoints();
+  		Polyline points = getCachedPoints();
+  		int last = points.size() - 1;
       
   		Stroke oldStroke = pGraphics2D.getStroke();
   		pGraphics2D.setStroke(aLineStyle.getStroke());
   		pGraphics2D.draw(getSegmentPath());
   		pGraphics2D.setStroke(oldStroke);
-  		aStartArrowHead.draw(pGraphics2D, points.get(1), points.get(0));
-  		aEndArrowHead.draw(pGraphics2D, points.get(points.size() - 2), points.get(points.size() - 1));
+  		aStartArrowHead.draw(pGraphics2D, points.getPoint(1), points.getPoint(0));
+  		aEndArrowHead.draw(pGraphics2D, points.getPoint(last - 1), points.getPoint(last));
 
-  		drawString(pGraphics2D, points.get(1), points.get(0), aStartArrowHead, aStartLabel, false);
-  		drawString(pGraphics2D, points.get(points.size() / 2 - 1), points.get(points.size() / 2), null, aMiddleLabel, true);
-  		drawString(pGraphics2D, points.get(points.size() - 2), points.get(points.size() - 1), aEndArrowHead, aEndLabel, false);
+  		drawString(pGraphics2D, points, 1, 0, aStartArrowHead, aStartLabel, false);
+  		drawString(pGraphics2D, points, points.size() / 2 - 1, points.size() / 2, null, aMiddleLabel, true);
+  		drawString(pGraphics2D, points, last - 1, last, aEndArrowHead, aEndLabel, false);
    }
 
   	/**
      * Draws a string.
      * @param pGraphics2D the graphics context
-     * @param pEndPoint1 an endpoint of the segment along which to draw the string
-     * @param pEndPoint2 the other endpoint of the segment along which to draw the string
+     * @param pPoints the corner points of the edge
+     * @param pEndPoint1 the index of an endpoint of the segment along which to draw the string
+     * @param pEndPoint2 the index of the other endpoint of the segment along which to draw the string
      * @param pString the string to draw 
      * @param pCenter true if the string should be centered along the segment
      */
-  	private static void drawString(Graphics2D pGraphics2D, Point2D pEndPoint1, Point2D pEndPoint2, 
+  	private static void drawString(Graphics2D pGraphics2D, Polyline pPoints, int pEndPoint1, int pEndPoint2, 
   			ArrowHead pArrowHead, String pString, boolean pCenter)
   	{
-  		if (pString == null || pString.length() == 0)
+  		if (pString == null || pString.length() == 0 || LevelOfDetail.of(pGraphics2D) != LevelOfDetail.FULL)
   		{
   			return;
   		}
-  		label.setText("<html>" + pString + "</html>");
-  		label.setFont(pGraphics2D.getFont());
-  		Dimension d = label.getPreferredSize();      
-  		label.setBounds(0, 0, d.width, d.height);
-
-  		Rectangle2D b = getStringBounds(pEndPoint1, pEndPoint2, pArrowHead, pString, pCenter);
+  		labelFont = pGraphics2D.getFont();
+  		Rectangle2D b = getStringBounds(pPoints.getPoint(pEndPoint1), pPoints.getPoint(pEndPoint2), pArrowHead, pString, pCenter);
       
   		Color oldColor = pGraphics2D.getColor();
   		pGraphics2D.setColor(pGraphics2D.getBackground());
   		pGraphics2D.fill(b);
   		pGraphics2D.setColor(oldColor);
       
-  		pGraphics2D.translate(b.getX(), b.getY());
-  		label.paint(pGraphics2D);
-  		pGraphics2D.translate(-b.getX(), -b.getY());        
+  		LabelCache.draw(pGraphics2D, pString, labelFont, b.getX(), b.getY());
   	}
 
   	/**
@@ -275,8 +294,7 @@ public abstract class SegmentedLineEdge extends ShapeEdge
   		{
   			return new Rectangle2D.Double(pEndPoint2.getX(), pEndPoint2.getY(), 0, 0);
   		}
-  		label.setText("<html>" + pString + "</html>");
-  		Dimension d = label.getPreferredSize();
+  		Dimension d = LabelCache.getSize(pString, labelFont);
   		Point2D a = getAttachmentPoint(pEndPoint1, pEndPoint2, pArrow, d, pCenter);
   		return new Rectangle2D.Double(a.getX(), a.getY(), d.getWidth(), d.getHeight());
   	}
@@ -284,49 +302,88 @@ public abstract class SegmentedLineEdge extends ShapeEdge
   	@Override
   	public Rectangle2D getBounds()
   	{
-  		ArrayList<Point2D> points = getPoints();
-  		Rectangle2D r = super.getBounds();
-  		r.add(getStringBounds(points.get(1), points.get(0), aStartArrowHead, aStartLabel, false));
-  		r.add(getStringBounds(points.get(points.size() / 2 - 1), points.get(points.size() / 2), null, aMiddleLabel, true));
-  		r.add(getStringBounds(points.get(points.size() - 2), points.get(points.size() - 1), aEndArrowHead, aEndLabel, false));
-  		return r;
+  		Polyline points = getCachedPoints();
+  		// The labels are measured in the font they were last drawn with
+  		if(aBounds == null || !labelFont.equals(aBoundsFont))
+  		{
+  			int last = points.size() - 1;
+  			Rectangle2D r = super.getBounds();
+  			r.add(getStringBounds(points.getPoint(1), points.getPoint(0), aStartArrowHead, aStartLabel, false));
+  			r.add(getStringBounds(points.getPoint(points.size() / 2 - 1), points.getPoint(points.size() / 2), null, aMiddleLabel, true));
+  			r.add(getStringBounds(points.getPoint(last - 1), points.getPoint(last), aEndArrowHead, aEndLabel, false));
+  			aBounds = r;
+  			aBoundsFont = labelFont;
+  		}
+  		return (Rectangle2D) aBounds.clone();
   	}
   	
   	@Override
   	public Shape getShape()
   	{
-  		GeneralPath path = getSegmentPath();
-  		ArrayList<Point2D> points = getPoints();
-  		path.append(aStartArrowHead.getPath(points.get(1), points.get(0)), false);
-  		path.append(aEndArrowHead.getPath(points.get(points.size() - 2), points.get(points.size() - 1)), false);
-  		return path;
+  		Polyline points = getCachedPoints();
+  		if(aShape == null)
+  		{
+  			int last = points.size() - 1;
+  			GeneralPath path = new GeneralPath(getSegmentPath());
+  			path.append(aStartArrowHead.getPath(points.getPoint(1), points.getPoint(0)), false);
+  			path.append(aEndArrowHead.getPath(points.getPoint(last - 1), points.getPoint(last)), false);
+  			aShape = path;
+  		}
+  		return aShape;
    }
 
   	private GeneralPath getSegmentPath()
   	{
-  		ArrayList<Point2D> points = getPoints();
-  		GeneralPath path = new GeneralPath();
-  		Point2D p = points.get(points.size() - 1);
-  		path.moveTo((float) p.getX(), (float) p.getY());
-  		for(int i = points.size() - 2; i >= 0; i--)
+  		Polyline points = getCachedPoints();
+  		if(aSegmentPath == null)
   		{
-  			p = points.get(i);
-  			path.lineTo((float) p.getX(), (float) p.getY());
+  			GeneralPath path = new GeneralPath();
+  			int last = points.size() - 1;
+  			path.moveTo((float) points.getX(last), (float) points.getY(last));
+  			for(int i = last - 1; i >= 0; i--)
+  			{
+  				path.lineTo((float) points.getX(i), (float) points.getY(i));
+  			}
+  			aSegmentPath = path;
   		}
-  		return path;
+  		return aSegmentPath;
   	}
    
   	@Override
   	public Line2D getConnectionPoints()
   	{
-  		ArrayList<Point2D> points = getPoints();
-  		return new Line2D.Double(points.get(0), points.get(points.size() - 1));
+  		Polyline points = getCachedPoints();
+  		int last = points.size() - 1;
+  		return new Line2D.Double(points.getX(0), points.getY(0), points.getX(last), points.getY(last));
+  	}
+  	
+  	@Override
+  	protected void geometryChanged()
+  	{
+  		super.geometryChanged();
+  		aPoints = null;
+  		aSegmentPath = null;
+  		aShape = null;
+  		aBounds = null;
+  	}
+  	
+  	/*
+  	 * Returns the corner points, computing them again only 
+  	 * if the geometry of the edge changed.
+  	 */
+  	private Polyline getCachedPoints()
+  	{
+  		checkGeometry();
+  		if(aPoints == null)
+  		{
+  			aPoints = getPoints();
+  		}
+  		return aPoints;
   	}
 
   	/**
      * Gets the corner points of this segmented line edge.
-     * @return an array list of Point2D objects, containing
-     * the corner points
+     * @return the corner points
   	 */
-  	protected abstract ArrayList<Point2D> getPoints();
+  	protected abstract Polyline getPoints();
 }
@@ -38,6 +38,13 @@ import java.awt.geom.Rectangle2D;
  */
 public abstract class ShapeEdge extends AbstractEdge
 {  
+	private static final double MAX_DISTANCE = 3;
+	private static final BasicStroke FAT_STROKE = new BasicStroke((float)(2 * MAX_DISTANCE));
+	
+	// The shape stroked with the fat stroke, kept until the geometry changes
+	private transient Shape aHitArea;
+	private transient Rectangle2D aHitBounds;
+	
 	/**
      * Returns the path that should be stroked to
      * draw this edge. The path does not include
@@ -55,19 +62,32 @@ public abstract class ShapeEdge extends AbstractEdge
 	@Override
 	public boolean contains(Point2D pPoint)
 	{
-		final double maxDistance = 3;
+		checkGeometry();
+		if(aHitArea == null)
+		{
+			aHitArea = FAT_STROKE.createStrokedShape(getShape());
+			aHitBounds = aHitArea.getBounds2D();
+		}
+		if(!aHitBounds.contains(pPoint))
+		{
+			return false;
+		}
 
 		// the end points may contain small nodes, so don't
 		// match them
 		Line2D conn = getConnectionPoints();
-		if(pPoint.distance(conn.getP1()) <= maxDistance || pPoint.distance(conn.getP2()) <= maxDistance)
+		if(pPoint.distance(conn.getP1()) <= MAX_DISTANCE || pPoint.distance(conn.getP2()) <= MAX_DISTANCE)
 		{
 			return false;
 		}
-
-		Shape p = getShape();
-		BasicStroke fatStroke = new BasicStroke((float)(2 * maxDistance));
-		Shape fatPath = fatStroke.createStrokedShape(p);
-		return fatPath.contains(pPoint);
+		return aHitArea.contains(pPoint);
+	}
+	
+	@Override
+	protected void geometryChanged()
+	{
+		super.geometryChanged();
+		aHitArea = null;
+		aHitBounds = null;
 	}
 }
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.graph;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A bucketed grid that indexes graph elements by their bounds, so
+ * that point and rectangle queries only look at the elements that
+ * are close to the query instead of at every element of the graph.
+ *
+ * Each element is stamped with an insertion order so that query
+ * results can be returned in the same order as the element lists
+ * of the graph, which determines which element is drawn on top.
+ * Elements whose bounds span too many cells (or are unbounded) are
+ * kept in a separate list that every query inspects.
+ *
+ * @param <E> The type of elements in the index.
+ */
+class SpatialIndex<E>
+{
+	private static final double CELL_SIZE = 128;
+	private static final double MAX_CELLS = 256;
+
+	private static final Comparator<Entry<?>> TOPMOST_FIRST = new Comparator<Entry<?>>()
+	{
+		@Override
+		public int compare(Entry<?> pEntry1, Entry<?> pEntry2)
+		{
+			return Long.compare(pEntry2.aOrder, pEntry1.aOrder);
+		}
+	};
+
+	private static final Comparator<Entry<?>> BOTTOMMOST_FIRST = Collections.reverseOrder(TOPMOST_FIRST);
+
+	private final HashMap<Long, List<Entry<E>>> aCells = new HashMap<>();
+	private final IdentityHashMap<E, Entry<E>> aEntries = new IdentityHashMap<>();
+	private final List<Entry<E>> aOversized = new ArrayList<>();
+	private long aNextOrder;
+	private int aQueryStamp;
+
+	/**
+	 * Adds an element on top of all the elements already in the index.
+	 * If the element is already indexed it is moved to the top.
+	 * @param pElement The element to add.
+	 * @param pBounds The area in which the element can be hit.
+	 */
+	public void add(E pElement, Rectangle2D pBounds)
+	{
+		remove(pElement);
+		Entry<E> entry = new Entry<>(pElement, aNextOrder++);
+		aEntries.put(pElement, entry);
+		place(entry, pBounds);
+	}
+
+	/**
+	 * Records new bounds for an element without changing its
+	 * position in the stacking order. Does nothing if the element
+	 * is not in the index.
+	 * @param pElement The element to update.
+	 * @param pBounds The area in which the element can now be hit.
+	 */
+	public void update(E pElement, Rectangle2D pBounds)
+	{
+		Entry<E> entry = aEntries.get(pElement);
+		if(entry == null)
+		{
+			return;
+		}
+		displace(entry);
+		place(entry, pBounds);
+	}
+
+	/**
+	 * Removes an element from the index, or does nothing if
+	 * the element is not indexed.
+	 * @param pElement The element to remove.
+	 */
+	public void remove(E pElement)
+	{
+		Entry<E> entry = aEntries.remove(pElement);
+		if(entry != null)
+		{
+			displace(entry);
+		}
+	}
+
+	/**
+	 * @param pElement The element to check.
+	 * @return True if pElement is in the index.
+	 */
+	public boolean contains(E pElement)
+	{
+		return aEntries.containsKey(pElement);
+	}
+
+	/**
+	 * Removes all the elements from the index.
+	 */
+	public void clear()
+	{
+		aCells.clear();
+		aEntries.clear();
+		aOversized.clear();
+	}
+
+	/**
+	 * Returns the elements whose bounds contain a point, the
+	 * topmost element first.
+	 * @param pPoint The point to look up.
+	 * @return The candidate elements, which must still be tested
+	 * for an exact hit.
+	 */
+	public List<E> getCandidates(Point2D pPoint)
+	{
+		List<Entry<E>> hits = new ArrayList<>();
+		List<Entry<E>> cell = aCells.get(key(cellOf(pPoint.getX()), cellOf(pPoint.getY())));
+		if(cell != null)
+		{
+			collect(cell, pPoint, hits);
+		}
+		collect(aOversized, pPoint, hits);
+		Collections.sort(hits, TOPMOST_FIRST);
+		return elementsOf(hits);
+	}
+
+	/**
+	 * Returns the elements whose bounds intersect any of a number 
+	 * of rectangles, in the order in which they were added 
+	 * (bottommost first). Each element is returned once.
+	 * @param pRectangles The areas to look up.
+	 * @return The elements whose bounds intersect one of pRectangles.
+	 */
+	public List<E> getIntersecting(Rectangle2D... pRectangles)
+	{
+		List<Entry<E>> hits = new ArrayList<>();
+		aQueryStamp++;
+		for(Rectangle2D rectangle : pRectangles)
+		{
+			double cells = (cellOf(rectangle.getMaxX()) - cellOf(rectangle.getMinX()) + 1.0) *
+					(cellOf(rectangle.getMaxY()) - cellOf(rectangle.getMinY()) + 1.0);
+			if(cells > aCells.size() || cells <= 0)
+			{
+				// Cheaper to visit the occupied cells than every cell under the rectangle
+				for(List<Entry<E>> cell : aCells.values())
+				{
+					collect(cell, rectangle, hits);
+				}
+			}
+			else
+			{
+				for(int row = cellOf(rectangle.getMinY()); row <= cellOf(rectangle.getMaxY()); row++)
+				{
+					for(int column = cellOf(rectangle.getMinX()); column <= cellOf(rectangle.getMaxX()); column++)
+					{
+						List<Entry<E>> cell = aCells.get(key(column, row));
+						if(cell != null)
+						{
+							collect(cell, rectangle, hits);
+						}
+					}
+				}
+			}
+			collect(aOversized, rectangle, hits);
+		}
+		Collections.sort(hits, BOTTOMMOST_FIRST);
+		return elementsOf(hits);
+	}
+
+	private void collect(List<Entry<E>> pEntries, Point2D pPoint, List<Entry<E>> pResult)
+	{
+		for(Entry<E> entry : pEntries)
+		{
+			if(entry.aMinX <= pPoint.getX() && pPoint.getX() <= entry.aMaxX &&
+					entry.aMinY <= pPoint.getY() && pPoint.getY() <= entry.aMaxY)
+			{
+				pResult.add(entry);
+			}
+		}
+	}
+
+	private void collect(List<Entry<E>> pEntries, Rectangle2D pRectangle, List<Entry<E>> pResult)
+	{
+		for(Entry<E> entry : pEntries)
+		{
+			if(entry.aQueryStamp != aQueryStamp &&
+					entry.aMinX <= pRectangle.getMaxX() && pRectangle.getMinX() <= entry.aMaxX &&
+					entry.aMinY <= pRectangle.getMaxY() && pRectangle.getMinY() <= entry.aMaxY)
+			{
+				entry.aQueryStamp = aQueryStamp;
+				pResult.add(entry);
+			}
+		}
+	}
+
+	private List<E> elementsOf(List<Entry<E>> pEntries)
+	{
+		List<E> result = new ArrayList<>(pEntries.size());
+		for(Entry<E> entry : pEntries)
+		{
+			result.add(entry.aElement);
+		}
+		return result;
+	}
+
+	private void place(Entry<E> pEntry, Rectangle2D pBounds)
+	{
+		pEntry.aMinX = pBounds.getMinX();
+		pEntry.aMinY = pBounds.getMinY();
+		pEntry.aMaxX = pBounds.getMaxX();
+		pEntry.aMaxY = pBounds.getMaxY();
+		double cells = (cellOf(pEntry.aMaxX) - (double) cellOf(pEntry.aMinX) + 1) *
+				(cellOf(pEntry.aMaxY) - (double) cellOf(pEntry.aMinY) + 1);
+		if(Double.isInfinite(pEntry.aMaxX - pEntry.aMinX) || Double.isInfinite(pEntry.aMaxY - pEntry.aMinY) ||
+				Double.isNaN(cells) || cells > MAX_CELLS)
+		{
+			pEntry.aOversized = true;
+			aOversized.add(pEntry);
+			return;
+		}
+		pEntry.aOversized = false;
+		if(isEmpty(pEntry))
+		{
+			return;
+		}
+		for(int row = cellOf(pEntry.aMinY); row <= cellOf(pEntry.aMaxY); row++)
+		{
+			for(int column = cellOf(pEntry.aMinX); column <= cellOf(pEntry.aMaxX); column++)
+			{
+				Long key = key(column, row);
+				List<Entry<E>> cell = aCells.get(key);
+				if(cell == null)
+				{
+					cell = new ArrayList<>();
+					aCells.put(key, cell);
+				}
+				cell.add(pEntry);
+			}
+		}
+	}
+
+	private void displace(Entry<E> pEntry)
+	{
+		if(pEntry.aOversized)
+		{
+			aOversized.remove(pEntry);
+			return;
+		}
+		if(isEmpty(pEntry))
+		{
+			return;
+		}
+		for(int row = cellOf(pEntry.aMinY); row <= cellOf(pEntry.aMaxY); row++)
+		{
+			for(int column = cellOf(pEntry.aMinX); column <= cellOf(pEntry.aMaxX); column++)
+			{
+				Long key = key(column, row);
+				List<Entry<E>> cell = aCells.get(key);
+				if(cell != null)
+				{
+					cell.remove(pEntry);
+					if(cell.isEmpty())
+					{
+						aCells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Bounds with a negative width or height cover no cell. Without 
+	 * this check, placing them would step through every row or column
+	 * of the other dimension for nothing.
+	 */
+	private static boolean isEmpty(Entry<?> pEntry)
+	{
+		return pEntry.aMaxX < pEntry.aMinX || pEntry.aMaxY < pEntry.aMinY;
+	}
+
+	/*
+	 * The last cell is one short of Integer.MAX_VALUE so that loops 
+	 * up to and including it terminate for very large coordinates.
+	 */
+	private static int cellOf(double pCoordinate)
+	{
+		return (int) Math.min(Math.floor(pCoordinate / CELL_SIZE), Integer.MAX_VALUE - 1);
+	}
+
+	private static Long key(int pColumn, int pRow)
+	{
+		return ((long) pColumn << Integer.SIZE) | (pRow & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * The bounds and stacking order recorded for one element.
+	 */
+	private static final class Entry<E>
+	{
+		private final E aElement;
+		private final long aOrder;
+		private double aMinX;
+		private double aMinY;
+		private double aMaxX;
+		private double aMaxY;
+		private boolean aOversized;
+		private int aQueryStamp;
+
+		Entry(E pElement, long pOrder)
+		{
+			aElement = pElement;
+			aOrder = pOrder;
+		}
+	}
+}
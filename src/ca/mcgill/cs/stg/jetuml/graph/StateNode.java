@@ -61,15 +61,15 @@ public class StateNode extends RectangularNode
 	@Override
 	public Shape getShape()
 	{       
-		return new RoundRectangle2D.Double(getBounds().getX(), getBounds().getY(), 
-				getBounds().getWidth(), getBounds().getHeight(), ARC_SIZE, ARC_SIZE);
+		return new RoundRectangle2D.Double(getX(), getY(), 
+				getWidth(), getHeight(), ARC_SIZE, ARC_SIZE);
    }
 
 	@Override	
 	public void layout(Graph pGraph, Graphics2D pGraphics2D, Grid pGrid)
 	{
 		Rectangle2D b = aName.getBounds(pGraphics2D);
-		b = new Rectangle2D.Double(getBounds().getX(), getBounds().getY(), 
+		b = new Rectangle2D.Double(getX(), getY(), 
 				Math.max(b.getWidth(), DEFAULT_WIDTH), Math.max(b.getHeight(), DEFAULT_HEIGHT));
 		pGrid.snap(b);
 		setBounds(b);
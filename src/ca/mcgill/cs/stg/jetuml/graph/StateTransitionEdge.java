@@ -30,10 +30,10 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
-import javax.swing.JLabel;
-
 import ca.mcgill.cs.stg.jetuml.framework.ArrowHead;
 import ca.mcgill.cs.stg.jetuml.framework.Direction;
+import ca.mcgill.cs.stg.jetuml.framework.LabelCache;
+import ca.mcgill.cs.stg.jetuml.framework.LevelOfDetail;
 
 /**
  *  A curved edge for a state transition in a state diagram.
@@ -44,7 +44,6 @@ public class StateTransitionEdge extends ShapeEdge
 	private static final int DEGREES_10 = 10;
 	private static final int DEGREES_30 = 30;
 	private static final int DEGREES_60 = 60;
-	private static JLabel label = new JLabel();
 	private double aAngle;
 	private String aLabelText = "";
 	   
@@ -70,7 +69,10 @@ public class StateTransitionEdge extends ShapeEdge
 	public void draw(Graphics2D pGraphics2D)
 	{
 		pGraphics2D.draw(getShape());
-		drawLabel(pGraphics2D);
+		if(LevelOfDetail.of(pGraphics2D) == LevelOfDetail.FULL)
+		{
+			drawLabel(pGraphics2D);
+		}
 		ArrowHead.V.draw(pGraphics2D, getControlPoint(), getConnectionPoints().getP2());
 	}
 
@@ -81,11 +83,7 @@ public class StateTransitionEdge extends ShapeEdge
 	private void drawLabel(Graphics2D pGraphics2D)
 	{
 		Rectangle2D labelBounds = getLabelBounds();
-		double x = labelBounds.getX();
-		double y = labelBounds.getY();
-		pGraphics2D.translate(x, y);
-		label.paint(pGraphics2D);
-		pGraphics2D.translate(-x, -y);        
+		LabelCache.draw(pGraphics2D, aLabelText, LabelCache.getDefaultFont(), labelBounds.getX(), labelBounds.getY());
 	}
 
 	/*
@@ -99,9 +97,7 @@ public class StateTransitionEdge extends ShapeEdge
 		double x = control.getX() / 2 + line.getX1() / 4 + line.getX2() / 4;
 		double y = control.getY() / 2 + line.getY1() / 4 + line.getY2() / 4;
 
-		label.setText("<html>" + aLabelText + "</html>");
-		Dimension d = label.getPreferredSize();
-		label.setBounds(0, 0, d.width, d.height);
+		Dimension d = LabelCache.getSize(aLabelText, LabelCache.getDefaultFont());
    
 		final int gap = 3;
 		if (line.getY1() == line.getY2())
@@ -178,10 +174,10 @@ public class StateTransitionEdge extends ShapeEdge
 		else
 		{
 			aAngle = DEGREES_10;
-			Rectangle2D start = getStart().getBounds();
-			Rectangle2D end = getEnd().getBounds();
-			Point2D startCenter = new Point2D.Double(start.getCenterX(), start.getCenterY());
-			Point2D endCenter = new Point2D.Double(end.getCenterX(), end.getCenterY());
+			Node start = getStart();
+			Node end = getEnd();
+			Point2D startCenter = new Point2D.Double(start.getX() + start.getWidth() / 2, start.getY() + start.getHeight() / 2);
+			Point2D endCenter = new Point2D.Double(end.getX() + end.getWidth() / 2, end.getY() + end.getHeight() / 2);
 			d1 = new Direction(startCenter, endCenter).turn(-DEGREES_5);
 			d2 = new Direction(endCenter, startCenter).turn(DEGREES_5);
 		}
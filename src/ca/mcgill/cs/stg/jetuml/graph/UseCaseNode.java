@@ -59,7 +59,7 @@ public class UseCaseNode extends RectangularNode
 	@Override
 	public Shape getShape()
 	{
-		return new Ellipse2D.Double(getBounds().getX(), getBounds().getY(), getBounds().getWidth(), getBounds().getHeight());
+		return new Ellipse2D.Double(getX(), getY(), getWidth(), getHeight());
 	}
    
 	/**
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.mcgill.cs.stg.jetuml.graph.ClassNode;
+import ca.mcgill.cs.stg.jetuml.graph.Graph;
+import ca.mcgill.cs.stg.jetuml.graph.Node;
+
+public class TestEditJournal
+{
+	private static final String TEST_FILE_NAME = "testdata/tmpjournal.jet";
+	private static final int LONG_NAME = 10000; // Characters in a name that makes a large entry
+	private static final int MANY_EDITS = 40; // Of a long name, enough to outgrow the minimum compaction
+	
+	private File aFile;
+	private File aJournalFile;
+	private Graph aGraph;
+	private GraphModificationListener aListener;
+	private EditJournal aJournal;
+	private List<byte[]> aStates = new ArrayList<>(); // Of the graph after each entry
+	private List<Long> aEnds = new ArrayList<>(); // Where each entry ends in the journal file
+	
+	@Before
+	public void setup() throws Exception
+	{
+		aFile = new File(TEST_FILE_NAME);
+		aJournalFile = new File(TEST_FILE_NAME + ".journal");
+		Files.copy(new File("testdata/testPersistenceService.class.jet").toPath(), aFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		aJournalFile.delete();
+		aGraph = read();
+		UndoManager undoManager = new UndoManager();
+		aListener = new GraphModificationListener(undoManager);
+		aGraph.addModificationListener(aListener);
+		aJournal = new EditJournal(aJournalFile, new Executor()
+		{
+			public void execute(Runnable pTask)
+			{
+				pTask.run();
+			}
+		});
+		aJournal.startFrom(aGraph, aFile.length(), aFile.lastModified());
+		undoManager.setJournal(aJournal);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		aJournal.discard();
+		aJournalFile.delete();
+		aFile.delete();
+	}
+	
+	@Test
+	public void testRecover() throws Exception
+	{
+		makeEdits();
+		assertArrayEquals(save(aGraph), save(recover(read())));
+	}
+	
+	@Test
+	public void testRecoverTruncatedJournal() throws Exception
+	{
+		makeEdits();
+		byte[] journal = Files.readAllBytes(aJournalFile.toPath());
+		Graph base = read();
+		for(int length = 0; length <= journal.length; length++)
+		{
+			Files.write(aJournalFile.toPath(), Arrays.copyOf(journal, length));
+			int entries = 0;
+			while(entries < aEnds.size() && aEnds.get(entries) <= length)
+			{
+				entries++;
+			}
+			Graph recovered;
+			try
+			{
+				recovered = recover(base);
+			}
+			catch(IOException exception)
+			{
+				recovered = null; // A header that was not completely written
+			}
+			if(entries == 0)
+			{
+				assertNull("Length " + length, recovered);
+			}
+			else
+			{
+				assertArrayEquals("Length " + length, aStates.get(entries - 1), save(recovered));
+			}
+		}
+	}
+	
+	@Test
+	public void testBadChecksumEndsTheJournal() throws Exception
+	{
+		makeEdits();
+		byte[] journal = Files.readAllBytes(aJournalFile.toPath());
+		journal[aEnds.get(1).intValue() - 1] ^= 1; // The last byte of the second entry
+		Files.write(aJournalFile.toPath(), journal);
+		assertArrayEquals(aStates.get(0), save(recover(read())));
+	}
+	
+	@Test
+	public void testMismatchedBase() throws Exception
+	{
+		makeEdits();
+		assertNull(EditJournal.recover(aJournalFile, read(), aFile.length() + 1, aFile.lastModified()));
+		assertNull(EditJournal.recover(aJournalFile, read(), aFile.length(), aFile.lastModified() + 1));
+	}
+	
+	@Test
+	public void testRecoverAfterCompaction() throws Exception
+	{
+		boolean compacted = false;
+		long length = 0;
+		for(int i = 0; i < MANY_EDITS; i++)
+		{
+			char[] name = new char[LONG_NAME];
+			Arrays.fill(name, (char) ('a' + i % 26));
+			rename(getClassNode(), new String(name) + i); // Distinct, as the entries keep each string once
+			compacted |= aJournalFile.length() < length;
+			length = aJournalFile.length();
+		}
+		assertTrue(compacted);
+		move(getNode(1), 15, 25);
+		// The base of the journal is now a copy of the graph, not the file
+		assertArrayEquals(save(aGraph), save(recover(read())));
+	}
+	
+	@Test
+	public void testRecoverFromSnapshot() throws Exception
+	{
+		move(getNode(0), 20, 30);
+		aJournal.startFrom(aGraph, PersistenceService.snapshot(aGraph));
+		assertArrayEquals(save(aGraph), save(recover(read())));
+		move(getNode(1), -5, 10);
+		assertArrayEquals(save(aGraph), save(recover(read())));
+	}
+	
+	/*
+	 * One entry each, for a move, a rename, an addition and a removal.
+	 */
+	private void makeEdits() throws Exception
+	{
+		move(getNode(0), 20, 30);
+		rename(getClassNode(), "Renamed");
+		add(new ClassNode(), new Point2D.Double(500, 400));
+		remove(getNode(2));
+		move(getNode(1), -10, 5);
+	}
+	
+	private void move(final Node pNode, final double pDeltaX, final double pDeltaY) throws Exception
+	{
+		edit(new Runnable()
+		{
+			public void run()
+			{
+				SelectionList selection = new SelectionList();
+				selection.add(pNode);
+				aListener.startTrackingMove(aGraph, selection);
+				aGraph.translate(pNode, pDeltaX, pDeltaY);
+				aListener.endTrackingMove(aGraph, selection);
+			}
+		});
+	}
+	
+	private void rename(final ClassNode pNode, final String pName) throws Exception
+	{
+		edit(new Runnable()
+		{
+			public void run()
+			{
+				aListener.trackPropertyChange(aGraph, pNode);
+				MultiLineString name = new MultiLineString();
+				name.setText(pName);
+				pNode.setName(name);
+				aListener.finishPropertyChange(aGraph, pNode);
+			}
+		});
+	}
+	
+	private void add(final Node pNode, final Point2D pPoint) throws Exception
+	{
+		edit(new Runnable()
+		{
+			public void run()
+			{
+				aGraph.add(pNode, pPoint);
+			}
+		});
+	}
+	
+	private void remove(final Node pNode) throws Exception
+	{
+		edit(new Runnable()
+		{
+			public void run()
+			{
+				aGraph.removeNode(pNode);
+			}
+		});
+	}
+	
+	/*
+	 * Makes pEdit as the editor does, on the Event Dispatch Thread, 
+	 * then waits for its entry and keeps the state that it leads to.
+	 */
+	private void edit(Runnable pEdit) throws Exception
+	{
+		SwingUtilities.invokeAndWait(pEdit);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			public void run()
+			{
+				aGraph.layout();
+			}
+		});
+		aStates.add(save(aGraph));
+		aEnds.add(aJournalFile.length());
+	}
+	
+	private Node getNode(int pIndex)
+	{
+		return new ArrayList<>(aGraph.getNodes()).get(pIndex);
+	}
+	
+	private ClassNode getClassNode()
+	{
+		for(Node node : aGraph.getNodes())
+		{
+			if(node instanceof ClassNode)
+			{
+				return (ClassNode) node;
+			}
+		}
+		throw new IllegalStateException("No class in " + TEST_FILE_NAME);
+	}
+	
+	private Graph read() throws IOException
+	{
+		return PersistenceService.read(new FileInputStream(aFile));
+	}
+	
+	private Graph recover(Graph pBase) throws IOException
+	{
+		return EditJournal.recover(aJournalFile, pBase, aFile.length(), aFile.lastModified());
+	}
+	
+	private static byte[] save(Graph pGraph) throws IOException
+	{
+		pGraph.layout();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PersistenceService.saveFile(pGraph, out);
+		return out.toByteArray();
+	}
+}
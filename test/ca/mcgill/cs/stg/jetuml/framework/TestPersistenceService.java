@@ -1,11 +1,14 @@
 package ca.mcgill.cs.stg.jetuml.framework;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -42,6 +45,60 @@ public class TestPersistenceService
 {
 	private static final String TEST_FILE_NAME = "testdata/tmp";
 	
+	@Test
+	public void testSaveAfterLoadIsStable() throws Exception
+	{
+		for(File file : new File("testdata").listFiles())
+		{
+			if(!file.getName().endsWith(".jet"))
+			{
+				continue;
+			}
+			ByteArrayOutputStream first = new ByteArrayOutputStream();
+			PersistenceService.saveFile(PersistenceService.read(new FileInputStream(file)), first);
+			ByteArrayOutputStream second = new ByteArrayOutputStream();
+			PersistenceService.saveFile(PersistenceService.read(new ByteArrayInputStream(first.toByteArray())), second);
+			assertArrayEquals(file.getName(), first.toByteArray(), second.toByteArray());
+		}
+	}
+	
+	@Test
+	public void testWriterMatchesXMLEncoder() throws Exception
+	{
+		for(File file : new File("testdata").listFiles())
+		{
+			if(!file.getName().endsWith(".jet"))
+			{
+				continue;
+			}
+			ByteArrayOutputStream written = new ByteArrayOutputStream();
+			assertTrue(file.getName(), XmlGraphWriter.write(PersistenceService.read(new FileInputStream(file)), written));
+			ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			PersistenceService.encode(PersistenceService.read(new FileInputStream(file)), encoded);
+			assertArrayEquals(file.getName(), encoded.toByteArray(), written.toByteArray());
+		}
+	}
+	
+	@Test
+	public void testBinaryFormatKeepsTheGraph() throws Exception
+	{
+		for(File file : new File("testdata").listFiles())
+		{
+			if(!file.getName().endsWith(".jet"))
+			{
+				continue;
+			}
+			Graph graph = PersistenceService.read(new FileInputStream(file));
+			ByteArrayOutputStream xml = new ByteArrayOutputStream();
+			PersistenceService.saveFile(graph, xml);
+			ByteArrayOutputStream binary = new ByteArrayOutputStream();
+			PersistenceService.saveBinaryFile(graph, binary);
+			ByteArrayOutputStream converted = new ByteArrayOutputStream();
+			PersistenceService.saveFile(PersistenceService.read(new ByteArrayInputStream(binary.toByteArray())), converted);
+			assertArrayEquals(file.getName(), xml.toByteArray(), converted.toByteArray());
+		}
+	}
+	
 	@Test
 	public void testClassDiagram() throws Exception
 	{
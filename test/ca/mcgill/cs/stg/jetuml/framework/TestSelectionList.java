@@ -93,6 +93,42 @@ public class TestSelectionList
 		assertEquals(aNode1, aList.getLastSelected());
 	}
 	
+	@Test
+	public void testRemoveNode()
+	{
+		Node node2 = new ClassNode();
+		aEdge1.connect(aNode1, node2);
+		aEdge2.connect(node2, aNode1);
+		aList.add(aNode1);
+		aList.add(aEdge1);
+		aList.add(node2);
+		aList.add(aEdge2);
+		aList.remove(aNode1);
+		assertEquals(1, aList.size());
+		assertEquals(node2, aList.getLastSelected());
+		assertEquals(node2, aList.getLastNode());
+		assertFalse(aList.contains(aEdge1));
+		assertFalse(aList.contains(aEdge2));
+	}
+	
+	@Test
+	public void testOrder()
+	{
+		Node node2 = new ClassNode();
+		aList.add(aNode1);
+		aList.add(aEdge1);
+		aList.add(node2);
+		aList.add(aNode1);
+		Iterator<GraphElement> iterator = aList.iterator();
+		assertEquals(aEdge1, iterator.next());
+		assertEquals(node2, iterator.next());
+		assertEquals(aNode1, iterator.next());
+		assertEquals(aNode1, aList.getLastSelected());
+		assertEquals(node2, aList.getLastNode());
+		aList.remove(aNode1);
+		assertEquals(node2, aList.getLastSelected());
+	}
+	
 	@Test
 	public void testSet()
 	{
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Font;
+
+import javax.swing.JLabel;
+
+import org.junit.Test;
+
+public class TestStyledText
+{
+	private static final Font FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
+
+	@Test
+	public void testUnsupportedMarkup()
+	{
+		assertNull(StyledText.parse("plain"));
+		assertNull(StyledText.parse("<html><font color=\"red\">x</font></html>"));
+		assertNull(StyledText.parse("<html>a &amp; b</html>"));
+		assertNull(StyledText.parse("<html>a</b></html>"));
+		assertNull(StyledText.parse("<html><b</html>"));
+	}
+
+	@Test
+	public void testSupportedMarkup()
+	{
+		assertNotNull(StyledText.parse("<html></html>"));
+		assertNotNull(StyledText.parse("<html>&nbsp;<u><b>x</b></u>&nbsp;<br>&nbsp;<i>y</i> <tt>z</tt>&nbsp;</html>"));
+		assertNotNull(StyledText.parse("<html>&nbsp;List&lt;String>&nbsp;</html>"));
+	}
+
+	@Test
+	public void testSameSizeAsLabel()
+	{
+		assertSameSizeAsLabel("<html></html>");
+		assertSameSizeAsLabel("<html>&nbsp;Hello&nbsp;</html>");
+		assertSameSizeAsLabel("<html>&nbsp;a&nbsp;&nbsp;b&nbsp;</html>");
+		assertSameSizeAsLabel("<html>&nbsp;x   y&nbsp;<br>&nbsp;  z&nbsp;</html>");
+		assertSameSizeAsLabel("<html>&nbsp;<b>bold</b>&nbsp;<br>&nbsp;<i>italic</i>&nbsp;</html>");
+		assertSameSizeAsLabel("<html>&nbsp;<u><b>both</b></u>&nbsp;<br>&nbsp;<tt>mono</tt> text&nbsp;</html>");
+		assertSameSizeAsLabel("<html>&nbsp;1 &lt; 2 > 0&nbsp;</html>");
+	}
+
+	private static void assertSameSizeAsLabel(String pHtml)
+	{
+		JLabel label = new JLabel(pHtml);
+		label.setFont(FONT);
+		assertEquals(label.getPreferredSize(), StyledText.parse(pHtml).getSize(FONT));
+	}
+}
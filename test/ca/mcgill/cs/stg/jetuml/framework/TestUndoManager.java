@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.framework;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.mcgill.cs.stg.jetuml.commands.Command;
+
+public class TestUndoManager
+{
+	private UndoManager aManager;
+	private List<String> aLog;
+	
+	@Before
+	public void setup()
+	{
+		aManager = new UndoManager();
+		aLog = new ArrayList<>();
+	}
+	
+	@Test
+	public void testUndoRedo()
+	{
+		aManager.add(new LoggedCommand("A"));
+		aManager.add(new LoggedCommand("B"));
+		aManager.undoCommand();
+		aManager.redoCommand();
+		aManager.undoCommand();
+		aManager.undoCommand();
+		aManager.undoCommand();
+		assertEquals("[undo B, execute B, undo B, undo A]", aLog.toString());
+	}
+	
+	@Test
+	public void testAddAfterRedoWithNothingToRedo()
+	{
+		aManager.add(new LoggedCommand("A"));
+		aManager.redoCommand();
+		aManager.add(new LoggedCommand("B"));
+		aManager.undoCommand();
+		aManager.undoCommand();
+		assertEquals("[undo B, undo A]", aLog.toString());
+	}
+	
+	private class LoggedCommand implements Command
+	{
+		private final String aName;
+		
+		LoggedCommand(String pName)
+		{
+			aName = pName;
+		}
+		
+		@Override
+		public void undo()
+		{
+			aLog.add("undo " + aName);
+		}
+
+		@Override
+		public void execute()
+		{
+			aLog.add("execute " + aName);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2015 Cay S. Horstmann and the contributors of the 
+ * JetUML project.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *******************************************************************************/
+
+package ca.mcgill.cs.stg.jetuml.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSpatialIndex
+{
+	private SpatialIndex<String> aIndex;
+	
+	@Before
+	public void setup()
+	{
+		aIndex = new SpatialIndex<>();
+	}
+	
+	@Test
+	public void testEmpty()
+	{
+		assertTrue(aIndex.getCandidates(new Point2D.Double(0, 0)).isEmpty());
+		assertTrue(aIndex.getIntersecting(new Rectangle2D.Double(0, 0, 1000, 1000)).isEmpty());
+		assertFalse(aIndex.contains("A"));
+	}
+	
+	@Test
+	public void testTopmostFirst()
+	{
+		aIndex.add("A", new Rectangle2D.Double(0, 0, 100, 100));
+		aIndex.add("B", new Rectangle2D.Double(50, 50, 100, 100));
+		aIndex.add("C", new Rectangle2D.Double(500, 500, 10, 10));
+		assertEquals(Arrays.asList("B", "A"), aIndex.getCandidates(new Point2D.Double(75, 75)));
+		assertEquals(Arrays.asList("A"), aIndex.getCandidates(new Point2D.Double(10, 10)));
+		assertEquals(Arrays.asList("C"), aIndex.getCandidates(new Point2D.Double(505, 505)));
+		assertTrue(aIndex.getCandidates(new Point2D.Double(300, 300)).isEmpty());
+		
+		// Adding again brings to the top
+		aIndex.add("A", new Rectangle2D.Double(0, 0, 100, 100));
+		assertEquals(Arrays.asList("A", "B"), aIndex.getCandidates(new Point2D.Double(75, 75)));
+	}
+	
+	@Test
+	public void testUpdateKeepsOrder()
+	{
+		aIndex.add("A", new Rectangle2D.Double(0, 0, 100, 100));
+		aIndex.add("B", new Rectangle2D.Double(1000, 1000, 100, 100));
+		aIndex.update("B", new Rectangle2D.Double(0, 0, 100, 100));
+		aIndex.update("A", new Rectangle2D.Double(10, 10, 100, 100));
+		assertEquals(Arrays.asList("B", "A"), aIndex.getCandidates(new Point2D.Double(50, 50)));
+		assertTrue(aIndex.getCandidates(new Point2D.Double(1050, 1050)).isEmpty());
+		aIndex.update("Z", new Rectangle2D.Double(0, 0, 100, 100));
+		assertFalse(aIndex.contains("Z"));
+	}
+	
+	@Test
+	public void testRemove()
+	{
+		aIndex.add("A", new Rectangle2D.Double(0, 0, 1000, 1000));
+		aIndex.add("B", new Rectangle2D.Double(0, 0, 10, 10));
+		aIndex.remove("A");
+		aIndex.remove("Z");
+		assertFalse(aIndex.contains("A"));
+		assertEquals(Arrays.asList("B"), aIndex.getCandidates(new Point2D.Double(5, 5)));
+		assertTrue(aIndex.getCandidates(new Point2D.Double(500, 500)).isEmpty());
+		aIndex.clear();
+		assertFalse(aIndex.contains("B"));
+	}
+	
+	@Test
+	public void testIntersecting()
+	{
+		aIndex.add("A", new Rectangle2D.Double(0, 0, 300, 300));
+		aIndex.add("B", new Rectangle2D.Double(400, 0, 10, 10));
+		aIndex.add("C", new Rectangle2D.Double(-500, -500, 10, 10));
+		List<String> result = aIndex.getIntersecting(new Rectangle2D.Double(200, 0, 250, 50));
+		assertEquals(Arrays.asList("A", "B"), result);
+		result = aIndex.getIntersecting(new Rectangle2D.Double(-1000, -1000, 5000, 5000));
+		assertEquals(Arrays.asList("A", "B", "C"), result);
+	}
+	
+	@Test
+	public void testOversized()
+	{
+		aIndex.add("A", new Rectangle2D.Double(0, -Double.MAX_VALUE / 2, 50, Double.MAX_VALUE));
+		aIndex.add("B", new Rectangle2D.Double(0, 0, 100000, 100000));
+		aIndex.add("C", new Rectangle2D.Double(0, 5000, 10, 10));
+		assertEquals(Arrays.asList("C", "B", "A"), aIndex.getCandidates(new Point2D.Double(5, 5005)));
+		assertEquals(Arrays.asList("A"), aIndex.getCandidates(new Point2D.Double(5, -5005)));
+		aIndex.remove("A");
+		assertTrue(aIndex.getCandidates(new Point2D.Double(5, -5005)).isEmpty());
+	}
+	
+	@Test(timeout = 5000)
+	public void testFarAway()
+	{
+		aIndex.add("A", new Rectangle2D.Double(Double.MAX_VALUE / 2, 1e300, 10, 10));
+		assertEquals(Arrays.asList("A"), aIndex.getCandidates(new Point2D.Double(Double.MAX_VALUE / 2, 1e300)));
+		assertEquals(Arrays.asList("A"), aIndex.getIntersecting(new Rectangle2D.Double(Double.MAX_VALUE / 2, 1e300, 1, 1)));
+		aIndex.update("A", new Rectangle2D.Double(0, 0, 10, 10));
+		assertTrue(aIndex.getCandidates(new Point2D.Double(Double.MAX_VALUE / 2, 1e300)).isEmpty());
+		aIndex.update("A", new Rectangle2D.Double(0, 0, -10, 1e300));
+		assertTrue(aIndex.getCandidates(new Point2D.Double(0, 0)).isEmpty());
+		aIndex.remove("A");
+	}
+}